@@ -0,0 +1,65 @@
+#!/usr/bin/env bash
+# Concurrency comparison under slow upstreams: platform Tomcat threads vs virtual threads.
+# Starts a stub serving every upstream with a fixed delay, then fires concurrent POST /api/observations.
+# Rate limiting is off and every request has its own avgSpeedKmh (own coalescing key), so each one
+# computes its own conditions, and the deadline budget is far above DELAY: what is measured is how many
+# requests blocked on slow upstreams the server keeps in flight, not the limiter, coalescing or 504s.
+# Usage: scripts/slow-upstream-benchmark.sh [concurrent requests] [upstream delay seconds]
+# Needs: mvn package, python3, curl
+set -euo pipefail
+
+REQUESTS="${1:-200}"
+DELAY="${2:-2}"
+PORT="${PORT:-18082}"
+STUB_PORT="${STUB_PORT:-18099}"
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+JAR="$(ls "$ROOT"/target/roadsAI-*.jar | head -1)"
+WORK="$ROOT/target/slow-upstream-bench"
+mkdir -p "$WORK"
+
+# stub: every GET waits DELAY seconds and returns an empty JSON array (no cache fill, so every request goes upstream)
+python3 - "$STUB_PORT" "$DELAY" > "$WORK/stub.log" 2>&1 <<'PY' &
+import sys, time
+from http.server import ThreadingHTTPServer, BaseHTTPRequestHandler
+port, delay = int(sys.argv[1]), float(sys.argv[2])
+class Slow(BaseHTTPRequestHandler):
+    def do_GET(self):
+        time.sleep(delay)
+        self.send_response(200)
+        self.send_header("Content-Type", "application/json")
+        self.end_headers()
+        self.wfile.write(b"[]")
+    def log_message(self, *args):
+        pass
+ThreadingHTTPServer.daemon_threads = True
+ThreadingHTTPServer(("127.0.0.1", port), Slow).serve_forever()
+PY
+STUB_PID=$!
+trap 'kill $STUB_PID 2> /dev/null || true' EXIT
+
+run() {
+    local name="$1" virtual="$2" pid start ms
+    java -jar "$JAR" --server.port="$PORT" --spring.threads.virtual.enabled="$virtual" \
+        --server.tomcat.threads.max=50 \
+        --ratelimit.enabled=false \
+        --deadline.observations-ms=600000 \
+        --vedur.api.base-url="http://127.0.0.1:$STUB_PORT" \
+        --vegagerdin.api.base-url="http://127.0.0.1:$STUB_PORT" \
+        --yr.api.base-url="http://127.0.0.1:$STUB_PORT" > "$WORK/$name.log" 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "http://localhost:$PORT/"; do sleep 0.2; done
+
+    start=$(date +%s%N)
+    seq "$REQUESTS" | xargs -P "$REQUESTS" -I{} curl -s -o /dev/null -w '%{http_code}\n' \
+        -H 'Content-Type: application/json' -d '{"from":"RVK","to":"IFJ","avgSpeedKmh":{}}' \
+        "http://localhost:$PORT/api/observations" > "$WORK/$name.codes"
+    ms=$(( ($(date +%s%N) - start) / 1000000 ))
+    kill "$pid" && wait "$pid" 2> /dev/null || true
+
+    printf '%-16s %8s ms  (%s req/s)  status:%s\n' "$name" "$ms" "$(( REQUESTS * 1000 / (ms > 0 ? ms : 1) ))" \
+        "$(sort "$WORK/$name.codes" | uniq -c | awk '{printf " %s x%s", $2, $1}')"
+}
+
+echo "$REQUESTS concurrent requests, upstream delay ${DELAY}s, tomcat max threads 50"
+run platform-threads false
+run virtual-threads true
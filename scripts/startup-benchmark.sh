@@ -0,0 +1,55 @@
+#!/usr/bin/env bash
+# Startup benchmark: time-to-first-request + RSS per launch mode (plain jar, AOT, AOT+CDS, native).
+# Usage: scripts/startup-benchmark.sh [runs]   (default 5 runs per mode, median reported)
+# Needs: mvn -Pprod package (and optionally mvn -Pnative native:compile for target/roadsAI)
+set -euo pipefail
+
+RUNS="${1:-5}"
+PORT="${PORT:-18081}"
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+JAR="$(ls "$ROOT"/target/roadsAI-*.jar | head -1)"
+WORK="$ROOT/target/startup-bench"
+NATIVE="$ROOT/target/roadsAI"
+
+# extracted layout + CDS training run (same steps as Dockerfile)
+rm -rf "$WORK" && mkdir -p "$WORK"
+java -Djarmode=tools -jar "$JAR" extract --destination "$WORK/app" > /dev/null
+APP_JAR="$WORK/app/$(basename "$JAR")"
+java -XX:ArchiveClassesAtExit="$WORK/app.jsa" -Dspring.aot.enabled=true -Dspring.context.exit=onRefresh \
+     -jar "$APP_JAR" > "$WORK/training.log" 2>&1
+
+# prints "<ms to first 200 on /> <rss kB>" for one launch
+measure() {
+    local start pid ms rss
+    start=$(date +%s%N)
+    "$@" --server.port="$PORT" > "$WORK/run.log" 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "http://localhost:$PORT/"; do
+        if ! kill -0 "$pid" 2> /dev/null; then echo "process died, see $WORK/run.log" >&2; exit 1; fi
+        sleep 0.02
+    done
+    ms=$(( ($(date +%s%N) - start) / 1000000 ))
+    rss=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status")
+    kill "$pid" && wait "$pid" 2> /dev/null || true
+    echo "$ms $rss"
+}
+
+median() { sort -n | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}'; }
+
+bench() {
+    local name="$1"; shift
+    local results=()
+    for _ in $(seq "$RUNS"); do results+=("$(measure "$@")"); done
+    local ms rss
+    ms=$(printf '%s\n' "${results[@]}" | awk '{print $1}' | median)
+    rss=$(printf '%s\n' "${results[@]}" | awk '{print $2}' | median)
+    printf '%-10s %10s ms %10s MB\n' "$name" "$ms" "$((rss / 1024))"
+}
+
+printf '%-10s %13s %13s   (median of %s)\n' "mode" "first-request" "rss" "$RUNS"
+bench jar    java -jar "$APP_JAR"
+bench aot    java -Dspring.aot.enabled=true -jar "$APP_JAR"
+bench aot+cds java -XX:SharedArchiveFile="$WORK/app.jsa" -Dspring.aot.enabled=true -jar "$APP_JAR"
+if [[ -x "$NATIVE" ]]; then
+    bench native "$NATIVE"
+fi
@@ -0,0 +1,145 @@
+package dk.ek.roadsai.assets;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/// Build-time static asset pipeline (runs on target/classes/static in process-classes, see pom.xml).
+///  1. Rewrites asset references in html/css/js to content-hash fingerprinted names ("app-<md5>.js")
+///  2. Writes precompressed .gz (and .br when the brotli CLI is installed) next to text assets
+/// Lives in src/build/java and runs as a single source file (java AssetPipeline.java), never packaged into the jar.
+/// Fingerprinted files are not copied: Spring's VersionResourceResolver maps "app-<md5>.js" back to app.js
+/// (same md5 as its ContentVersionStrategy), EncodedResourceResolver serves the .br/.gz variants.
+public final class AssetPipeline {
+
+    private static final List<String> TEXT_EXT = List.of(".html", ".css", ".js");
+    private static final int MIN_COMPRESS_BYTES = 512;
+
+    // quoted/url() reference to a local asset, optional existing fingerprint (no "://" or "data:" since ':' is excluded)
+    private static final Pattern REF = Pattern.compile(
+            "([\"'(])([^\"'()\\s:]+?)(-[0-9a-f]{32})?\\.(css|js|png)([\"')])");
+
+    private final Path root;
+
+    private AssetPipeline(Path root) {
+        this.root = root;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path root = Path.of(args.length > 0 ? args[0] : "target/classes/static");
+        if (!Files.isDirectory(root)) {
+            System.out.println("[assets] no static dir at " + root + ", skipping");
+            return;
+        }
+        new AssetPipeline(root).run();
+    }
+
+    private void run() throws Exception {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+        List<Path> text = files.stream().filter(p -> TEXT_EXT.stream().anyMatch(p.toString()::endsWith)).toList();
+
+        // rewrite until stable: a referenced file changing its hash changes the referencing file (html -> css -> css -> png)
+        int rewritten = 0;
+        for (int pass = 0; pass < 5; pass++) {
+            int changed = 0;
+            for (Path file : text) {
+                if (fingerprintRefs(file)) changed++;
+            }
+            rewritten += changed;
+            if (changed == 0) break;
+        }
+
+        int compressed = 0;
+        boolean brotli = hasTool("brotli", "--version");
+        for (Path file : text) {
+            if (Files.size(file) < MIN_COMPRESS_BYTES) continue;
+            gzip(file);
+            if (brotli) {
+                exec("brotli", "-f", "-q", "11", "-o", file + ".br", file.toString());
+            }
+            compressed++;
+        }
+
+        System.out.println("[assets] rewrote " + rewritten + " files, compressed " + compressed
+                + " files (brotli=" + brotli + ")");
+    }
+
+    // replaces each resolvable reference with "<name>-<md5>.<ext>", returns true if file content changed
+    private boolean fingerprintRefs(Path file) throws Exception {
+        String content = Files.readString(file, StandardCharsets.UTF_8);
+        Matcher m = REF.matcher(content);
+        StringBuilder out = new StringBuilder(content.length());
+        while (m.find()) {
+            String base = m.group(2);
+            String ext = m.group(4);
+            Path target = resolve(file, base + "." + ext);
+            String replacement = target != null
+                    ? m.group(1) + base + "-" + md5(target) + "." + ext + m.group(5)
+                    : m.group();
+            m.appendReplacement(out, Matcher.quoteReplacement(replacement));
+        }
+        m.appendTail(out);
+        String result = out.toString();
+        if (result.equals(content)) {
+            return false;
+        }
+        Files.writeString(file, result, StandardCharsets.UTF_8);
+        return true;
+    }
+
+    // css refs are relative to the css file, html/js refs relative to the page (static root)
+    private Path resolve(Path from, String ref) {
+        if (ref.startsWith("/")) {
+            Path p = root.resolve(ref.substring(1)).normalize();
+            return Files.isRegularFile(p) && p.startsWith(root) ? p : null;
+        }
+        for (Path dir : List.of(from.getParent(), root)) {
+            Path p = dir.resolve(ref).normalize();
+            if (p.startsWith(root) && Files.isRegularFile(p)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    private static void gzip(Path file) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(Path.of(file + ".gz")))) {
+            out.write(Files.readAllBytes(file));
+        }
+    }
+
+    // same digest as Spring's ContentVersionStrategy (DigestUtils.md5DigestAsHex)
+    private static String md5(Path file) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(Files.readAllBytes(file)));
+    }
+
+    private static boolean hasTool(String... command) {
+        try {
+            Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+            p.getInputStream().transferTo(OutputStream.nullOutputStream());
+            return p.waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static void exec(String... command) throws Exception {
+        Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+        p.getInputStream().transferTo(OutputStream.nullOutputStream());
+        if (p.waitFor() != 0) {
+            throw new IOException("command failed: " + String.join(" ", command));
+        }
+    }
+}
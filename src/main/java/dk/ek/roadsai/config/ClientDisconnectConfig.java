@@ -0,0 +1,44 @@
+package dk.ek.roadsai.config;
+
+import jakarta.servlet.ServletException;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+import org.apache.coyote.ActionCode;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+/// Client disconnect detection for blocking (non-async) requests on Tomcat.
+// the servlet API only reports a closed connection when the response is written, which is after all upstream work
+// the valve exposes a probe: once the request body is fully read, a non-blocking read on the connection that
+// hits EOF/reset means the client is gone (Tomcat reports 1 available byte for a failed read)
+// HTTP/1.1 pipelining would also report data, browsers don't pipeline
+@Configuration(proxyBeanMethods = false)
+public class ClientDisconnectConfig {
+    public static final String CLIENT_GONE_ATTRIBUTE = "roadsai.clientGone";
+
+    @Bean
+    WebServerFactoryCustomizer<TomcatServletWebServerFactory> clientDisconnectValve() {
+        return factory -> factory.addContextValves(new ValveBase(true) {
+            @Override
+            public void invoke(Request request, Response response) throws IOException, ServletException {
+                request.setAttribute(CLIENT_GONE_ATTRIBUTE, (BooleanSupplier) () -> clientGone(request));
+                getNext().invoke(request, response);
+            }
+        });
+    }
+
+    private static boolean clientGone(Request request) {
+        org.apache.coyote.Request coyote = request.getCoyoteRequest();
+        if (!coyote.isFinished() || coyote.getResponse().isCommitted()) {
+            return false; // request thread may still read the body / is writing the response
+        }
+        coyote.action(ActionCode.AVAILABLE, Boolean.TRUE);
+        return coyote.getAvailable() > 0;
+    }
+}
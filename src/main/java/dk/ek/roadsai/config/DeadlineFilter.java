@@ -0,0 +1,78 @@
+package dk.ek.roadsai.config;
+
+import dk.ek.roadsai.service.timing.Deadline;
+import dk.ek.roadsai.service.timing.DeadlineWatchdog;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+/// Binds a Deadline to each observations and departures API request (after the rate limit, before any work).
+// budget: deadline.observations-ms / deadline.departures-ms / deadline.advice-ms, a client or load balancer can only shorten it (X-Request-Deadline-Ms)
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class DeadlineFilter extends OncePerRequestFilter {
+    public static final String DEADLINE_HEADER = "X-Request-Deadline-Ms";
+
+    private final DeadlineWatchdog watchdog;
+
+    @Value("${deadline.enabled:true}")
+    private boolean enabled = true;
+    @Value("${deadline.observations-ms:10000}")
+    private long observationsMs = 10000;
+    // departure search fetches and scores the whole forecast horizon
+    @Value("${deadline.departures-ms:15000}")
+    private long departuresMs = 15000;
+    // AI advice waits for OpenAI (queue + call)
+    @Value("${deadline.advice-ms:30000}")
+    private long adviceMs = 30000;
+
+    public DeadlineFilter(DeadlineWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !enabled || !(uri.startsWith("/api/observations") || uri.startsWith("/api/departures"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String uri = request.getRequestURI();
+        long budget = RateLimitFilter.isAdvice(uri) ? adviceMs
+                : uri.startsWith("/api/departures") ? departuresMs : observationsMs;
+        Deadline deadline = Deadline.start(Duration.ofMillis(clientBudget(request, budget)));
+        watchdog.watch(deadline, (BooleanSupplier) request.getAttribute(ClientDisconnectConfig.CLIENT_GONE_ATTRIBUTE));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Deadline.clear();
+            watchdog.finish(deadline);
+        }
+    }
+
+    // shorter client budget wins, unparseable or non-positive header is ignored
+    private static long clientBudget(HttpServletRequest request, long budget) {
+        String header = request.getHeader(DEADLINE_HEADER);
+        if (header == null) {
+            return budget;
+        }
+        try {
+            long client = Long.parseLong(header.trim());
+            return client > 0 ? Math.min(client, budget) : budget;
+        } catch (NumberFormatException e) {
+            return budget;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package dk.ek.roadsai.config;
+
+import dk.ek.roadsai.dto.openai.OpenAiRequest;
+import dk.ek.roadsai.dto.openai.OpenAiResponse;
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.dto.vedur.is.VedurAwsDto;
+import dk.ek.roadsai.dto.vegagerdin.VegagerdinItemDto;
+import dk.ek.roadsai.dto.yr.YrNoForecastDto;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/// Reflection hints for Jackson DTOs used outside controller signatures (WebClient / ObjectMapper bodies).
+// controller request/response types are registered by Spring AOT automatically, these are not (native image only)
+// + bundled road geometry (RouteGeometryService classpath fallback)
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHints.Resources.class)
+@RegisterReflectionForBinding({
+        OpenAiRequest.class,
+        OpenAiResponse.class,
+        CapAlert.class,
+        VedurAwsDto.class,
+        VedurAwsDto.Aws10minBasic.class,
+        VegagerdinItemDto.class,
+        YrNoForecastDto.class
+})
+public class NativeHints {
+
+    static class Resources implements RuntimeHintsRegistrar {
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.resources().registerPattern("roads/*.geojson");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package dk.ek.roadsai.config;
+
+import dk.ek.roadsai.service.ratelimit.RateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/// Per-client rate limit on the observations and departures APIs (429 + Retry-After when the client's bucket is empty)
+// runs first, so rejected requests cost no timing, caching or upstream work
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RateLimitFilter extends OncePerRequestFilter {
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    private final RateLimiter rateLimiter;
+
+    @Value("${ratelimit.enabled:true}")
+    private boolean enabled = true;
+    // AI advice (observations + departures) calls OpenAI, costs more tokens than the rule-based fast path
+    @Value("${ratelimit.advice-cost:4}")
+    private int adviceCost = 4;
+    // behind a reverse proxy: client = first X-Forwarded-For address (only enable when the proxy sets it)
+    @Value("${ratelimit.trust-forwarded-for:false}")
+    private boolean trustForwardedFor = false;
+
+    public RateLimitFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !enabled || !(uri.startsWith("/api/observations") || uri.startsWith("/api/departures"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int cost = isAdvice(request.getRequestURI()) ? adviceCost : 1;
+        long wait = rateLimiter.acquire(request.getHeader(API_KEY_HEADER), clientIp(request), cost);
+        if (wait > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(RateLimiter.retryAfterSeconds(wait)));
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    static boolean isAdvice(String uri) {
+        return uri.startsWith("/api/observations/advice") || uri.startsWith("/api/departures/advice");
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
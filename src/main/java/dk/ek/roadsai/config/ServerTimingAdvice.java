@@ -0,0 +1,32 @@
+package dk.ek.roadsai.config;
+
+import dk.ek.roadsai.service.timing.RequestTimer;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/// Adds the Server-Timing header (stage breakdown) just before a response body is written
+// a filter would be too late: the response is committed once the body is written
+@RestControllerAdvice
+public class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                  Class<? extends HttpMessageConverter<?>> converterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestTimer timer = RequestTimer.current();
+        if (timer != null) {
+            response.getHeaders().add("Server-Timing", timer.serverTiming());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,54 @@
+package dk.ek.roadsai.config;
+
+import dk.ek.roadsai.service.cache.InMemorySharedCache;
+import dk.ek.roadsai.service.cache.RedisSharedCache;
+import dk.ek.roadsai.service.cache.SharedCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.util.Locale;
+
+/// Shared (L2) cache backend selection: cache.l2.type=memory (default) or redis, read at startup
+// one @Bean instead of @ConditionalOnProperty: the prod image is AOT-processed, which evaluates bean conditions
+// at build time and would pin the backend to what the build saw
+// Redis auto-configuration is excluded, the connection (spring.data.redis.*) is only opened for type=redis
+@Configuration
+public class SharedCacheConfig {
+
+    @Value("${cache.l2.type:memory}")
+    private String type = "memory";
+    @Value("${spring.data.redis.host:localhost}")
+    private String redisHost = "localhost";
+    @Value("${spring.data.redis.port:6379}")
+    private int redisPort = 6379;
+    @Value("${spring.data.redis.password:}")
+    private String redisPassword = "";
+    @Value("${spring.data.redis.database:0}")
+    private int redisDatabase = 0;
+
+    @Bean
+    public SharedCache sharedCache() {
+        return switch (type.trim().toLowerCase(Locale.ROOT)) {
+            case "memory" -> new InMemorySharedCache();
+            case "redis" -> new RedisSharedCache(redisConnection());
+            default -> throw new IllegalStateException("cache.l2.type must be memory or redis, was: " + type);
+        };
+    }
+
+    // owned (and closed) by RedisSharedCache
+    private LettuceConnectionFactory redisConnection() {
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(redisHost, redisPort);
+        config.setDatabase(redisDatabase);
+        if (!redisPassword.isBlank()) {
+            config.setPassword(RedisPassword.of(redisPassword));
+        }
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(config);
+        factory.afterPropertiesSet();
+        factory.start();
+        return factory;
+    }
+}
@@ -0,0 +1,38 @@
+package dk.ek.roadsai.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/// Cache-Control for static assets.
+// fingerprinted "name-<md5>.ext" (AssetPipeline) -> 1 year immutable, other static files (index.html) -> revalidate
+// only "/" and static file extensions: /api/, /actuator/ and error responses keep their own headers
+@Component
+public class StaticCacheFilter extends OncePerRequestFilter {
+    private static final Pattern FINGERPRINTED = Pattern.compile(".*-[0-9a-f]{32}\\.[a-z0-9]+$");
+    private static final Pattern STATIC = Pattern.compile("/|.*\\.(html|css|js|png|ico|svg)");
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return uri.startsWith("/api/") || !STATIC.matcher(uri).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (FINGERPRINTED.matcher(request.getRequestURI()).matches()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable");
+        } else {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache"); // revalidate via Last-Modified
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,40 @@
+package dk.ek.roadsai.config;
+
+import dk.ek.roadsai.service.timing.RequestTimer;
+import dk.ek.roadsai.service.timing.SlowRequestLog;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/// Binds a RequestTimer to each /api request and records slow ones (header written by ServerTimingAdvice)
+@Component
+public class TimingFilter extends OncePerRequestFilter {
+    private final SlowRequestLog slowRequestLog;
+
+    public TimingFilter(SlowRequestLog slowRequestLog) {
+        this.slowRequestLog = slowRequestLog;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !path.startsWith("/api/") || path.startsWith("/api/admin/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTimer timer = RequestTimer.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestTimer.clear();
+            slowRequestLog.record(request.getMethod(), request.getRequestURI(), response.getStatus(), timer);
+        }
+    }
+}
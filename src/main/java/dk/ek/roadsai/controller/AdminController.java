@@ -0,0 +1,223 @@
+package dk.ek.roadsai.controller;
+
+import dk.ek.roadsai.service.ConditionsService;
+import dk.ek.roadsai.service.ai.AiGateway;
+import dk.ek.roadsai.service.ai.AiUsageStats;
+import dk.ek.roadsai.model.AuditRecord;
+import dk.ek.roadsai.model.StationHealth;
+import dk.ek.roadsai.service.audit.AuditLog;
+import dk.ek.roadsai.service.audit.AuditRepository;
+import dk.ek.roadsai.service.cache.TieredCache;
+import dk.ek.roadsai.service.archive.ObservationArchive;
+import dk.ek.roadsai.service.delta.DeltaSyncService;
+import dk.ek.roadsai.service.departure.DepartureSearchService;
+import dk.ek.roadsai.service.events.IngestMetrics;
+import dk.ek.roadsai.service.events.IngestPipeline;
+import dk.ek.roadsai.service.health.StationHealthRegistry;
+import dk.ek.roadsai.service.heatmap.HeatmapService;
+import dk.ek.roadsai.service.push.RouteSubscriptionService;
+import dk.ek.roadsai.service.ratelimit.RateLimiter;
+import dk.ek.roadsai.service.replay.UpstreamTape;
+import dk.ek.roadsai.service.timing.DeadlineWatchdog;
+import dk.ek.roadsai.service.timing.SlowRequestLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Operational read-only endpoints (stats for tuning, no user data)
+// except /audit/recent (stored requests + advice): only with X-Admin-Token = admin.token, disabled while unset
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+    public static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+
+    private final AiUsageStats aiUsageStats;
+    private final AiGateway aiGateway;
+    private final TieredCache tieredCache;
+    private final RouteSubscriptionService subscriptionService;
+    private final ConditionsService conditionsService;
+    private final SlowRequestLog slowRequestLog;
+    private final StationHealthRegistry stationHealth;
+    private final RateLimiter rateLimiter;
+    private final AuditLog auditLog;
+    private final AuditRepository auditRepository;
+    private final DeltaSyncService deltaSync;
+    private final UpstreamTape upstreamTape;
+    private final HeatmapService heatmap;
+    private final DeadlineWatchdog deadlineWatchdog;
+    private final DepartureSearchService departureSearch;
+    private final IngestPipeline ingestPipeline;
+    private final IngestMetrics ingestMetrics;
+    private final ObservationArchive archive;
+
+    @Value("${admin.token:}")
+    private String adminToken = "";
+
+    public AdminController(
+            AiUsageStats aiUsageStats,
+            AiGateway aiGateway,
+            TieredCache tieredCache,
+            RouteSubscriptionService subscriptionService,
+            ConditionsService conditionsService,
+            SlowRequestLog slowRequestLog,
+            StationHealthRegistry stationHealth,
+            RateLimiter rateLimiter,
+            AuditLog auditLog,
+            AuditRepository auditRepository,
+            DeltaSyncService deltaSync,
+            UpstreamTape upstreamTape,
+            HeatmapService heatmap,
+            DeadlineWatchdog deadlineWatchdog,
+            DepartureSearchService departureSearch,
+            IngestPipeline ingestPipeline,
+            IngestMetrics ingestMetrics,
+            ObservationArchive archive) {
+        this.aiUsageStats = aiUsageStats;
+        this.aiGateway = aiGateway;
+        this.tieredCache = tieredCache;
+        this.subscriptionService = subscriptionService;
+        this.conditionsService = conditionsService;
+        this.slowRequestLog = slowRequestLog;
+        this.stationHealth = stationHealth;
+        this.rateLimiter = rateLimiter;
+        this.auditLog = auditLog;
+        this.auditRepository = auditRepository;
+        this.deltaSync = deltaSync;
+        this.upstreamTape = upstreamTape;
+        this.heatmap = heatmap;
+        this.deadlineWatchdog = deadlineWatchdog;
+        this.departureSearch = departureSearch;
+        this.ingestPipeline = ingestPipeline;
+        this.ingestMetrics = ingestMetrics;
+        this.archive = archive;
+    }
+
+    // average OpenAI prompt/completion tokens + latency per prompt format
+    @GetMapping("/ai-usage")
+    public Map<String, AiUsageStats.Summary> aiUsage() {
+        return aiUsageStats.snapshot();
+    }
+
+    // AI gateway admission counters (submitted, coalesced, shed, queued, running)
+    @GetMapping("/ai-gateway")
+    public Map<String, Long> aiGateway() {
+        return aiGateway.stats();
+    }
+
+    // L1/L2 hits, upstream loads, lease waits and invalidations per cache namespace
+    @GetMapping("/cache")
+    public Map<String, Map<String, Long>> cache() {
+        return tieredCache.stats();
+    }
+
+    // SSE subscribers, computed snapshots vs unchanged polls, events sent, slow consumers dropped
+    @GetMapping("/push")
+    public Map<String, Long> push() {
+        return subscriptionService.stats();
+    }
+
+    // condition pipeline runs vs requests that joined an identical in-flight run
+    @GetMapping("/conditions")
+    public Map<String, Long> conditions() {
+        return conditionsService.stats();
+    }
+
+    // recent requests over timing.slow-threshold-ms with stage breakdown + cache hits, slowest first
+    @GetMapping("/slow-requests")
+    public List<SlowRequestLog.SlowRequest> slowRequests() {
+        return slowRequestLog.slowest();
+    }
+
+    // every upstream station / source seen: status, consecutive failures, backoff until (retryAt)
+    @GetMapping("/station-health")
+    public List<StationHealth> stationHealth() {
+        return stationHealth.all();
+    }
+
+    // upstream calls skipped by the negative cache (station in backoff)
+    @GetMapping("/station-health/skipped")
+    public Map<String, Long> stationHealthSkipped() {
+        return Map.of("skipped", stationHealth.skipped());
+    }
+
+    // allowed/rejected (429) requests per tier, tracked client buckets, idle evictions
+    @GetMapping("/rate-limit")
+    public Map<String, Long> rateLimit() {
+        return rateLimiter.stats();
+    }
+
+    // audit write-behind queue: enqueued, dropped on overflow, written, batches, failed, queued
+    @GetMapping("/audit")
+    public Map<String, Long> audit() {
+        return auditLog.stats();
+    }
+
+    // latest 50 audit records (advice given + the conditions it was based on)
+    // 404 while admin.token is unset, 403 without the matching X-Admin-Token header
+    @GetMapping("/audit/recent")
+    public ResponseEntity<List<AuditRecord>> auditRecent(
+            @RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token) {
+        if (adminToken.isBlank()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (token == null || !MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.UTF_8), adminToken.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(auditRepository.findTop50ByOrderByIdDesc());
+    }
+
+    // delta sync: delta vs full responses, tracked request keys, latest snapshot version
+    @GetMapping("/delta")
+    public Map<String, Long> delta() {
+        return deltaSync.stats();
+    }
+
+    // upstream record/replay: exchanges recorded, replayed, replay misses (not in the archive)
+    @GetMapping("/replay")
+    public Map<String, Long> replay() {
+        return upstreamTape.stats();
+    }
+
+    // hazard heatmap: tile set version, stations used, tiles, refreshes (unchanged = skipped), render time, tile reads
+    @GetMapping("/heatmap")
+    public Map<String, Long> heatmap() {
+        return heatmap.stats();
+    }
+
+    // request deadlines: started, completed in time, expired, cancelled on client disconnect, active
+    @GetMapping("/deadline")
+    public Map<String, Long> deadline() {
+        return deadlineWatchdog.stats();
+    }
+
+    // departure search: searches, candidates scored, average scoring time
+    @GetMapping("/departures")
+    public Map<String, Long> departures() {
+        return departureSearch.stats();
+    }
+
+    // ingest pipeline: ring published/waited/dropped, per consumer processed/batches/failed/lag, per source events/items/freshness
+    @GetMapping("/ingest")
+    public Map<String, Long> ingest() {
+        Map<String, Long> stats = new HashMap<>(ingestPipeline.stats());
+        stats.putAll(ingestMetrics.stats());
+        return stats;
+    }
+
+    // observation archive: rows written, skipped (already archived), batches, failed
+    @GetMapping("/archive")
+    public Map<String, Long> archive() {
+        return archive.stats();
+    }
+}
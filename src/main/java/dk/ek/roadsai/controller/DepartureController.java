@@ -0,0 +1,100 @@
+package dk.ek.roadsai.controller;
+
+import dk.ek.roadsai.dto.DepartureSchedule;
+import dk.ek.roadsai.dto.ObservationsRequest;
+import dk.ek.roadsai.service.ai.AiGateway;
+import dk.ek.roadsai.service.ai.ObservationPromptBuilder;
+import dk.ek.roadsai.service.audit.AuditLog;
+import dk.ek.roadsai.service.departure.DepartureSearchService;
+import dk.ek.roadsai.service.timing.Deadline;
+import dk.ek.roadsai.service.timing.RequestTimer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/// Best departure time: candidate departures over the forecast horizon ranked by hazards along the route
+// forecastTime in the request = earliest departure (null = now)
+@RestController
+@RequestMapping("/api")
+public class DepartureController {
+    private final DepartureSearchService departureSearch;
+    private final ObservationPromptBuilder promptBuilder;
+    private final AiGateway aiGateway;
+    private final AuditLog auditLog;
+
+    public DepartureController(
+            DepartureSearchService departureSearch,
+            ObservationPromptBuilder promptBuilder,
+            AiGateway aiGateway,
+            AuditLog auditLog) {
+        this.departureSearch = departureSearch;
+        this.promptBuilder = promptBuilder;
+        this.aiGateway = aiGateway;
+        this.auditLog = auditLog;
+    }
+
+    // ranked schedule + rule-based commentary for the top candidates (no OpenAI call)
+    // POST /api/departures?hours=48&step=30
+    @PostMapping(value = "/departures", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<DepartureSchedule> getDepartures(
+            @RequestBody ObservationsRequest request,
+            @RequestParam(value = "hours", required = false) Integer hours,
+            @RequestParam(value = "step", required = false) Integer stepMinutes) {
+        if (!ObservationsRequest.isValid(request)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        try {
+            return ResponseEntity.ok(departureSearch.search(request, hours, stepMinutes));
+        } catch (Deadline.Exceeded e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build(); // budget spent or client gone
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // AI commentary for the top candidates of the same search, one line per candidate
+    // falls back to the rule-based commentary if OpenAI fails or the AI gateway sheds the request
+    // (or the request deadline leaves no time for the OpenAI call)
+    @PostMapping(value = "/departures/advice", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<String>> getDepartureAdvice(
+            @RequestBody ObservationsRequest request,
+            @RequestParam(value = "hours", required = false) Integer hours,
+            @RequestParam(value = "step", required = false) Integer stepMinutes) {
+        if (!ObservationsRequest.isValid(request)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        try {
+            DepartureSchedule schedule = departureSearch.search(request, hours, stepMinutes);
+            if (schedule.top().isEmpty()) {
+                return ResponseEntity.ok(List.of()); // no forecast covering the route
+            }
+
+            String systemPrompt;
+            String userPrompt;
+            try (var t = RequestTimer.stage("prompt")) {
+                systemPrompt = promptBuilder.buildSystemPrompt();
+                userPrompt = promptBuilder.buildDepartureUserPrompt("rvk-isf", schedule.from(), schedule.to(), schedule.top());
+            }
+            List<String> advice;
+            try (var t = RequestTimer.stage("openai")) {
+                advice = aiGateway.ask("departure", systemPrompt, userPrompt, schedule.advice(), AiGateway.Priority.INTERACTIVE);
+            }
+            // no station facts/alerts: the search only uses forecasts
+            auditLog.record("departure-advice", request, null, null, systemPrompt, userPrompt, advice);
+            return ResponseEntity.ok(advice);
+        } catch (Deadline.Exceeded e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build(); // budget spent or client gone
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package dk.ek.roadsai.controller;
+
+import dk.ek.roadsai.service.heatmap.HeatmapService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+
+/// Nationwide hazard heatmap tiles for the Leaflet overlay (precomputed, served from memory)
+@RestController
+@RequestMapping("/api")
+public class HeatmapController {
+    private static final int MAX_ZOOM = 20;
+
+    private final HeatmapService heatmap;
+
+    public HeatmapController(HeatmapService heatmap) {
+        this.heatmap = heatmap;
+    }
+
+    // GET /api/heatmap/{z}/{x}/{y}.png (XYZ scheme), ETag = tile set version (304 until the next refresh)
+    @GetMapping(value = "/heatmap/{z}/{x}/{y}.png", produces = MediaType.IMAGE_PNG_VALUE)
+    public ResponseEntity<byte[]> tile(@PathVariable int z, @PathVariable int x, @PathVariable int y, WebRequest request) {
+        if (z < 0 || z > MAX_ZOOM || x < 0 || y < 0 || x >= 1 << z || y >= 1 << z) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        HeatmapService.Tile tile = heatmap.tile(z, x, y);
+        String etag = "\"hm" + tile.version() + "\"";
+        if (request.checkNotModified(etag)) {
+            return null; // 304 written by checkNotModified
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(1)))
+                .eTag(etag)
+                .body(tile.png());
+    }
+}
@@ -1,128 +1,157 @@
 package dk.ek.roadsai.controller;
 
-import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.dto.ObservationsColumnar;
+import dk.ek.roadsai.dto.ObservationsDelta;
 import dk.ek.roadsai.dto.ObservationsRequest;
 import dk.ek.roadsai.dto.ObservationsResponse;
-import dk.ek.roadsai.model.ForecastPoint;
-import dk.ek.roadsai.model.Station;
-import dk.ek.roadsai.model.StationObservation;
-import dk.ek.roadsai.service.RouteService;
-import dk.ek.roadsai.service.StationService;
-import dk.ek.roadsai.service.provider.VedurCapProvider;
-import dk.ek.roadsai.service.provider.YrNoProvider;
-import dk.ek.roadsai.service.ai.ObservationReducer;
+import dk.ek.roadsai.service.ConditionsService;
 import dk.ek.roadsai.service.ai.ObservationPromptBuilder;
-import dk.ek.roadsai.service.ai.ObservationAiService;
+import dk.ek.roadsai.service.ai.AiGateway;
+import dk.ek.roadsai.service.audit.AuditLog;
+import dk.ek.roadsai.service.delta.DeltaSyncService;
+import dk.ek.roadsai.service.timing.Deadline;
+import dk.ek.roadsai.service.timing.RequestTimer;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.time.Instant;
-import java.time.format.DateTimeParseException;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
-/// Fetches observations and CAP alerts, generates AI advice based on current conditions
+/// Fetches observations and CAP alerts, classifies hazards (fast path) and generates AI advice (on demand)
 @RestController
 @RequestMapping("/api")
 public class ObservationsController {
-    private final RouteService routeService;
-    private final StationService stationService;
-    private final VedurCapProvider vedurCapProvider;
-    private final ObservationReducer observationReducer;
+    // snapshot version of the response, pass as ?since= to /observations/delta
+    public static final String SNAPSHOT_VERSION_HEADER = "X-Snapshot-Version";
+
+    private final ConditionsService conditionsService;
     private final ObservationPromptBuilder promptBuilder;
-    private final ObservationAiService aiService;
-    private final YrNoProvider yrNoProvider;
+    private final AiGateway aiGateway;
+    private final AuditLog auditLog;
+    private final DeltaSyncService deltaSync;
 
     public ObservationsController(
-            RouteService routeService,
-            StationService stationService,
-            VedurCapProvider vedurCapProvider,
-            ObservationReducer observationReducer,
+            ConditionsService conditionsService,
             ObservationPromptBuilder promptBuilder,
-            ObservationAiService aiService,
-            YrNoProvider yrNoProvider) {
-        this.routeService = routeService;
-        this.stationService = stationService;
-        this.vedurCapProvider = vedurCapProvider;
-        this.observationReducer = observationReducer;
+            AiGateway aiGateway,
+            AuditLog auditLog,
+            DeltaSyncService deltaSync) {
+        this.conditionsService = conditionsService;
         this.promptBuilder = promptBuilder;
-        this.aiService = aiService;
-        this.yrNoProvider = yrNoProvider;
+        this.aiGateway = aiGateway;
+        this.auditLog = auditLog;
+        this.deltaSync = deltaSync;
     }
 
-    @PostMapping(value = "/observations", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    // Observations + rule-based hazards and template advice (no OpenAI call, returns immediately)
+    // JSON by default, CBOR with "Accept: application/cbor"
+    @PostMapping(value = "/observations", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
     public ResponseEntity<ObservationsResponse> getObservations(@RequestBody ObservationsRequest request) {
-        // Validation (error handling)
-        if (request == null || request.from() == null || request.from().isBlank() ||
-            request.to() == null || request.to().isBlank() ||
-            request.from().equals(request.to())) {
+        if (!ObservationsRequest.isValid(request)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        try {
+            ObservationsResponse response = observe(request);
+            long version = deltaSync.publish(conditionsService.normalize(request), response);
+            return ResponseEntity.ok().header(SNAPSHOT_VERSION_HEADER, Long.toString(version)).body(response);
+        } catch (Deadline.Exceeded e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build(); // budget spent or client gone
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // Same data, observations/forecasts as parallel arrays (?shape=columnar), for heavy API consumers
+    @PostMapping(value = "/observations", params = "shape=columnar", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<ObservationsColumnar> getObservationsColumnar(@RequestBody ObservationsRequest request) {
+        if (!ObservationsRequest.isValid(request)) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
-        
+
         try {
-            // Get route coordinates
-            var routeGeo = routeService.getCoordinates(request.from(), request.to());
-            
-            // Get stations for route
-            List<Station> corridor = stationService.corridorStations(routeGeo);
-            
-            // Fetch latest observations (last 15 min, cache capped for precision)
-            Instant fifteenMinutesAgo = Instant.now().minusSeconds(900);
-            List<StationObservation> obs = stationService.fetchObsForStations(
-                corridor, fifteenMinutesAgo, Instant.now());
-            
-            // Fetch CAP alerts for each station (30min cache in VedurCapProvider)
-            Map<String, List<CapAlert>> stationAlerts = new HashMap<>();
-            for (Station station : corridor) {
-                List<CapAlert> alerts = vedurCapProvider.fetchAlerts(
-                    station.latitude(), station.longitude());
-                stationAlerts.put(station.id(), alerts);
+            ObservationsResponse response = observe(request);
+            long version = deltaSync.publish(conditionsService.normalize(request), response);
+            ObservationsColumnar columnar;
+            try (var t = RequestTimer.stage("columnar")) {
+                columnar = ObservationsColumnar.of(response);
             }
-            
-            // Reduce observations to station-level facts
-            Map<String, ObservationReducer.StationFacts> stationFacts = 
-                observationReducer.reduceToStations(obs, corridor, stationAlerts);
-            
-            // Parse forecast time if provided - for prompt filtering
-            Instant forecastTime = null;
-            List<ForecastPoint> forecasts = List.of();
-            if (request.forecastTime() != null && !request.forecastTime().isBlank()) {
-                try {
-                    final Instant parsedForecastTime = Instant.parse(request.forecastTime());
-                    forecastTime = parsedForecastTime;
-                    Instant now = Instant.now();
-                    forecasts = yrNoProvider.fetchForecastForStations(corridor).stream()
-                            .filter(f -> !f.time().isBefore(now) && // future forecasts only
-                                       (f.time().isBefore(parsedForecastTime) || f.time().equals(parsedForecastTime))) // up to requested time
-                            .toList();
-                } catch (DateTimeParseException e) {
-                    // Invalid forecastTime format - continue without forecasts
-                }
+            return ResponseEntity.ok().header(SNAPSHOT_VERSION_HEADER, Long.toString(version)).body(columnar);
+        } catch (Deadline.Exceeded e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build(); // budget spent or client gone
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // Same data as /observations, but only what changed since the client's snapshot version (full if unknown)
+    @PostMapping(value = "/observations/delta", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<ObservationsDelta> getObservationsDelta(
+            @RequestBody ObservationsRequest request,
+            @RequestParam(value = "since", required = false) Long since) {
+        if (!ObservationsRequest.isValid(request)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        try {
+            ObservationsResponse response = observe(request);
+            ObservationsDelta delta;
+            try (var t = RequestTimer.stage("delta")) {
+                delta = deltaSync.sync(conditionsService.normalize(request), response, since);
             }
-            
-            // Generate AI advice based on observations (and forecasts, if requested)
-            String systemPrompt = promptBuilder.buildSystemPrompt();
-            String userPrompt = promptBuilder.buildUserPrompt(
-                "rvk-isf", request.from(), request.to(), stationFacts, corridor, forecasts, forecastTime);
-            List<String> advice = aiService.ask(systemPrompt, userPrompt, corridor.size());
-            
-            return ResponseEntity.ok(new ObservationsResponse(
-                obs,
-                stationAlerts,
-                corridor,
-                routeGeo,
-                advice,
-                forecasts
-            ));
+            return ResponseEntity.ok().header(SNAPSHOT_VERSION_HEADER, Long.toString(delta.version())).body(delta);
+        } catch (Deadline.Exceeded e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build(); // budget spent or client gone
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
 
+    // AI-enriched advice for the same request (frontend calls this after rendering the fast path)
+    // falls back to rule-based advice if OpenAI fails or the AI gateway sheds the request under load
+    // (or the request deadline leaves no time for the OpenAI call)
+    @PostMapping(value = "/observations/advice", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<String>> getAiAdvice(@RequestBody ObservationsRequest request) {
+        if (!ObservationsRequest.isValid(request)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        try {
+            ConditionsService.Conditions c = conditionsService.gather(request);
+
+            String systemPrompt;
+            String userPrompt;
+            try (var t = RequestTimer.stage("prompt")) {
+                systemPrompt = promptBuilder.buildSystemPrompt();
+                userPrompt = promptBuilder.buildUserPrompt(
+                    "rvk-isf", request.from(), request.to(), c.stationFacts(), c.corridor(), c.forecasts(), c.forecastTime());
+            }
+            List<String> advice;
+            try (var t = RequestTimer.stage("openai")) {
+                advice = aiGateway.ask(promptBuilder.format(), systemPrompt, userPrompt, c.ruleAdvice(), AiGateway.Priority.INTERACTIVE);
+            }
+            auditLog.record("advice", request, c.stationFacts(), c.stationAlerts(), systemPrompt, userPrompt, advice);
+            return ResponseEntity.ok(advice);
+        } catch (Deadline.Exceeded e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build(); // budget spent or client gone
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // gathers conditions (coalesced) + audit entry for the rule-based advice
+    private ObservationsResponse observe(ObservationsRequest request) {
+        ConditionsService.Conditions c = conditionsService.gather(request);
+        ObservationsResponse response = c.toResponse();
+        auditLog.record("observations", request, c.stationFacts(), c.stationAlerts(), null, null, response.advice());
+        return response;
+    }
+}
@@ -0,0 +1,46 @@
+package dk.ek.roadsai.controller;
+
+import dk.ek.roadsai.dto.RouteGeometry;
+import dk.ek.roadsai.service.geo.RouteGeometryService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+
+/// Road geometry for the map, simplified for the client's zoom level (encoded polyline)
+@RestController
+@RequestMapping("/api")
+public class RouteController {
+    private static final Set<String> PLACES = Set.of("RVK", "IFJ");
+
+    private final RouteGeometryService routeGeometry;
+
+    public RouteController(RouteGeometryService routeGeometry) {
+        this.routeGeometry = routeGeometry;
+    }
+
+    // GET /api/route/geometry?from=RVK&to=IFJ&zoom=8 (precomputed at startup, cacheable)
+    @GetMapping(value = "/route/geometry", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<RouteGeometry> geometry(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(defaultValue = "8") int zoom) {
+        // "rvk" == "RVK", like RouteGeometryService
+        String f = from.trim().toUpperCase(Locale.ROOT);
+        String t = to.trim().toUpperCase(Locale.ROOT);
+        if (!PLACES.contains(f) || !PLACES.contains(t) || f.equals(t)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofHours(1)))
+                .body(routeGeometry.geometry(f, t, zoom));
+    }
+}
@@ -0,0 +1,36 @@
+package dk.ek.roadsai.controller;
+
+import dk.ek.roadsai.service.push.RouteSubscriptionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/// Live route conditions (Server-Sent Events) instead of polling POST /api/observations
+// events: "conditions" (ObservationsResponse), "advice" (AI advice for the same snapshot, List<String>)
+@RestController
+@RequestMapping("/api")
+public class SubscriptionController {
+    private final RouteSubscriptionService subscriptionService;
+
+    public SubscriptionController(RouteSubscriptionService subscriptionService) {
+        this.subscriptionService = subscriptionService;
+    }
+
+    // GET /api/subscribe?from=RVK&to=IFJ
+    @GetMapping(value = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe(@RequestParam String from, @RequestParam String to) {
+        if (!subscriptionService.isKnownRoute(from, to)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        SseEmitter emitter = subscriptionService.subscribe(from, to);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+}
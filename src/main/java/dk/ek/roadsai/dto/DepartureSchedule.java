@@ -0,0 +1,44 @@
+package dk.ek.roadsai.dto;
+
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.model.RiskLevel;
+import dk.ek.roadsai.model.StationRisk;
+
+import java.time.Instant;
+import java.util.List;
+
+/// Response DTO for departure search (POST /api/departures)
+// candidate departures ranked safest first, top candidates with per-station forecasts + hazards
+public record DepartureSchedule(
+        String from,
+        String to,
+        int stepMinutes,
+        int candidates, // evaluated, incl. those beyond the forecast horizon (not ranked)
+        List<Option> ranked,
+        List<Top> top,
+        List<String> advice // rule-based commentary per top candidate (AI commentary via /api/departures/advice)
+) {
+
+    public record Option(
+            Instant departure,
+            Instant arrival,
+            RiskLevel level, // worst forecast level along the route
+            int flaggedStations, // stations at MODERATE or above
+            Double peakWindMs,
+            Double minTempC
+    ) {
+    }
+
+    public record Top(
+            Option option,
+            List<ForecastPoint> forecasts, // one per station at its ETA
+            List<StationRisk> hazards
+    ) {
+    }
+
+    // "2025-11-05 06:30" as shown in advice and prompts (UTC, Iceland is on UTC all year)
+    public static String dateTime(Instant time) {
+        String s = time.toString();
+        return s.substring(0, 10) + ' ' + s.substring(11, 16);
+    }
+}
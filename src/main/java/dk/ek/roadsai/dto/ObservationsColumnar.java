@@ -0,0 +1,99 @@
+package dk.ek.roadsai.dto;
+
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.model.StationObservation;
+import dk.ek.roadsai.model.StationRisk;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Columnar shape of ObservationsResponse (POST /api/observations?shape=columnar)
+// observations + forecasts as parallel arrays (no repeated field names), times as epoch seconds
+// route as parallel lon/lat arrays, observation station as index into stations
+public record ObservationsColumnar(
+        List<Station> stations,
+        double[] routeLon,
+        double[] routeLat,
+        ObservationColumns observations,
+        ForecastColumns forecasts,
+        Map<String, List<CapAlert>> alerts,
+        List<String> advice,
+        List<StationRisk> hazards,
+        List<StationStatus> stationHealth
+) {
+    public record ObservationColumns(
+            int[] station, // index into stations, -1 if not a corridor station
+            long[] time,
+            Double[] tempC,
+            Double[] windMs,
+            Double[] gustMs,
+            Double[] visibilityM,
+            String[] precipType
+    ) {
+    }
+
+    public record ForecastColumns(
+            long[] time, // ETA
+            double[] latitude,
+            double[] longitude,
+            Double[] tempC,
+            Double[] windMs,
+            Double[] precipMm
+    ) {
+    }
+
+    public static ObservationsColumnar of(ObservationsResponse r) {
+        List<Station> stations = r.stations() != null ? r.stations() : List.of();
+        List<List<Double>> route = r.route() != null ? r.route() : List.of();
+        double[] routeLon = new double[route.size()];
+        double[] routeLat = new double[route.size()];
+        for (int i = 0; i < route.size(); i++) {
+            routeLon[i] = route.get(i).get(0);
+            routeLat[i] = route.get(i).get(1);
+        }
+        return new ObservationsColumnar(stations, routeLon, routeLat,
+                observationColumns(r.observations() != null ? r.observations() : List.of(), stations),
+                forecastColumns(r.forecasts() != null ? r.forecasts() : List.of()),
+                r.alerts(), r.advice(), r.hazards(), r.stationHealth());
+    }
+
+    private static ObservationColumns observationColumns(List<StationObservation> obs, List<Station> stations) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < stations.size(); i++) {
+            index.put(stations.get(i).id(), i);
+        }
+        int n = obs.size();
+        ObservationColumns c = new ObservationColumns(new int[n], new long[n], new Double[n], new Double[n],
+                new Double[n], new Double[n], new String[n]);
+        for (int i = 0; i < n; i++) {
+            StationObservation o = obs.get(i);
+            c.station[i] = index.getOrDefault(o.stationId(), -1);
+            c.time[i] = o.timestamp().getEpochSecond();
+            c.tempC[i] = o.tempC();
+            c.windMs[i] = o.windMs();
+            c.gustMs[i] = o.gustMs();
+            c.visibilityM[i] = o.visibilityM();
+            c.precipType[i] = o.precipType();
+        }
+        return c;
+    }
+
+    private static ForecastColumns forecastColumns(List<ForecastPoint> forecasts) {
+        int n = forecasts.size();
+        ForecastColumns c = new ForecastColumns(new long[n], new double[n], new double[n], new Double[n],
+                new Double[n], new Double[n]);
+        for (int i = 0; i < n; i++) {
+            ForecastPoint f = forecasts.get(i);
+            c.time[i] = f.time().getEpochSecond();
+            c.latitude[i] = f.latitude();
+            c.longitude[i] = f.longitude();
+            c.tempC[i] = f.tempC();
+            c.windMs[i] = f.windMs();
+            c.precipMm[i] = f.precipMm();
+        }
+        return c;
+    }
+}
@@ -0,0 +1,27 @@
+package dk.ek.roadsai.dto;
+
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.model.StationObservation;
+import dk.ek.roadsai.model.StationRisk;
+
+import java.util.List;
+import java.util.Map;
+
+/// Changes since a snapshot version the client already has (POST /api/observations/delta?since=)
+// full=true: since unknown/too old (or route changed), snapshot holds the whole response
+public record ObservationsDelta(
+        long version,   // pass as ?since= on the next refresh
+        Long since,
+        boolean full,
+        ObservationsResponse snapshot,                    // full only
+        List<StationObservation> observations,            // new or updated (stationId + timestamp)
+        List<String> removedObservations,                 // "stationId@timestamp", out of the 15 min window
+        Map<String, List<CapAlert>> addedAlerts,          // per station
+        Map<String, List<CapAlert>> removedAlerts,        // per station
+        Map<Integer, String> advice,                      // changed entries by index
+        List<ForecastPoint> forecasts,                    // null = unchanged
+        List<StationRisk> hazards,                        // changed stations
+        List<StationStatus> stationHealth                 // changed stations
+) {
+}
@@ -5,7 +5,15 @@ package dk.ek.roadsai.dto;
 public record ObservationsRequest(
         String from, // "RVK" | "IFJ"
         String to,   // "IFJ" | "RVK"
-        String forecastTime // ISO-8601 UTC (optional, null = current time only)
+        String forecastTime, // ISO-8601 UTC departure (optional, null = current time only)
+        Double avgSpeedKmh   // average driving speed for ETA (optional, null = forecast.avg-speed-kmh)
 ) {
+
+    // Validation (error handling), shared by the observations and departures endpoints
+    public static boolean isValid(ObservationsRequest request) {
+        return request != null && request.from() != null && !request.from().isBlank() &&
+               request.to() != null && !request.to().isBlank() &&
+               !request.from().equals(request.to());
+    }
 }
 
@@ -4,6 +4,7 @@ import dk.ek.roadsai.dto.vedur.is.CapAlert;
 import dk.ek.roadsai.model.ForecastPoint;
 import dk.ek.roadsai.model.Station;
 import dk.ek.roadsai.model.StationObservation;
+import dk.ek.roadsai.model.StationRisk;
 
 import java.util.List;
 import java.util.Map;
@@ -15,8 +16,10 @@ public record ObservationsResponse(
         Map<String, List<CapAlert>> alerts,
         List<Station> stations,
         List<List<Double>> route,
-        List<String> advice,
-        List<ForecastPoint> forecasts
+        List<String> advice, // rule-based template advice (AI advice via /api/observations/advice)
+        List<ForecastPoint> forecasts,
+        List<StationRisk> hazards,
+        List<StationStatus> stationHealth // per corridor station: OK / STALE / FAILING (data may be missing or old)
 ) {
 }
 
@@ -0,0 +1,13 @@
+package dk.ek.roadsai.dto;
+
+/// Route line at one zoom level (GET /api/route/geometry)
+public record RouteGeometry(
+        String from,
+        String to,
+        int zoom,          // zoom the simplification was made for (requested zoom clamped)
+        String source,     // "geojson" (road geometry) | "waypoints" (no road file, straight segments)
+        int points,
+        double lengthKm,   // road length at full resolution
+        String polyline    // Google encoded polyline, lat/lon 1e-5
+) {
+}
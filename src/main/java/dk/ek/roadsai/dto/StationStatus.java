@@ -0,0 +1,19 @@
+package dk.ek.roadsai.dto;
+
+import dk.ek.roadsai.model.HealthStatus;
+import dk.ek.roadsai.model.StationHealth;
+
+import java.time.Instant;
+
+/// Client view of one station's upstream health (ObservationsResponse.stationHealth)
+// only what changes with the data: fetch time, failure count and backoff change on every refetch, and would make
+// an unchanged response look new to push dedupe and delta versions (full StationHealth: /api/admin/station-health)
+public record StationStatus(
+        String stationId,
+        HealthStatus status,     // OK / STALE / FAILING / UNKNOWN
+        Instant lastObservation  // newest observation seen (null = none / not an observation source)
+) {
+    public static StationStatus of(StationHealth health) {
+        return new StationStatus(health.stationId(), health.status(), health.lastObservation());
+    }
+}
@@ -14,6 +14,9 @@ public class OpenAiResponse {
     @JsonProperty("error")
     public Error error;
 
+    @JsonProperty("usage")
+    public Usage usage;
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class Choice {
         @JsonProperty("message")
@@ -34,5 +37,16 @@ public class OpenAiResponse {
         @JsonProperty("type")
         public String type;
     }
-}
 
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Usage {
+        @JsonProperty("prompt_tokens")
+        public Integer promptTokens;
+
+        @JsonProperty("completion_tokens")
+        public Integer completionTokens;
+
+        @JsonProperty("total_tokens")
+        public Integer totalTokens;
+    }
+}
@@ -3,8 +3,10 @@ package dk.ek.roadsai.dto.vedur.is;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Objects;
 
 /// Official CAP (Common Alerting Protocol) alert from Veður.is
+// value equality: providers compare refreshed alert lists with the cached ones (publish to the ingest pipeline on change)
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class CapAlert {
     @JsonProperty("severity")
@@ -18,5 +20,15 @@ public class CapAlert {
     
     @JsonProperty("headline")
     public String headline; // Alert headline
-}
 
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CapAlert a && Objects.equals(severity, a.severity) && Objects.equals(eventType, a.eventType)
+                && Objects.equals(description, a.description) && Objects.equals(headline, a.headline);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(severity, eventType, description, headline);
+    }
+}
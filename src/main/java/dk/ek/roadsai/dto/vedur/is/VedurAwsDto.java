@@ -2,16 +2,10 @@ package dk.ek.roadsai.dto.vedur.is;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import dk.ek.roadsai.model.StationObservation;
 
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Objects;
 
-///  Veðurstofa Íslands returns JSON in API
+///  Veðurstofa Íslands returns JSON in API (normalized to StationObservation by ObservationIngest)
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class VedurAwsDto {
 
@@ -36,36 +30,4 @@ public class VedurAwsDto {
         @JsonProperty("precip")
         public String precip; // precipitation code/text (nullable)
     }
-
-    // Converts bare array shape from IMO API to StationObservation objects (parses local timestamps to UTC)
-    public static List<StationObservation> map(String stationId, List<Aws10minBasic> list) {
-        if (list == null || list.isEmpty()) {
-            return List.of();
-        }
-
-        final ZoneId Z_REYK = ZoneId.of("Atlantic/Reykjavik");
-        final DateTimeFormatter FMT_LOCAL = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-
-        return list.stream() // stream IMO API observations
-                .map(it -> { // convert each DTO to StationObservation
-                    try {
-                        // API returns local Iceland time (no timezone) → parse as LocalDateTime → convert to UTC Instant
-                        LocalDateTime ldt = LocalDateTime.parse(it.time, FMT_LOCAL);
-                        Instant ts = ldt.atZone(Z_REYK).toInstant();
-                        return new StationObservation(
-                                stationId,
-                                ts,
-                                it.t,     // temp °C
-                                it.f,     // wind m/s
-                                it.fg,    // gust m/s
-                                it.vis,   // visibility m (nullable)
-                                it.precip // precip (nullable)
-                        );
-                    } catch (Exception e) {
-                        return null; // skip malformed observations
-                    }
-                })
-                .filter(Objects::nonNull) // remove nulls from failed conversions
-                .toList();
-    }
 }
@@ -0,0 +1,61 @@
+package dk.ek.roadsai.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/// One served /api/observations request (inputs, prompt hash, advice, stage timings) for incident reviews.
+// written in JDBC batches by AuditLog (write-behind), JPA owns the schema + admin reads
+@Entity
+@Table(name = "audit_record", indexes = @Index(name = "idx_audit_created_at", columnList = "created_at"))
+public class AuditRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "endpoint", nullable = false, length = 32)
+    private String endpoint; // "observations" | "advice"
+
+    @Lob
+    @Column(name = "request_json")
+    private String requestJson;
+
+    @Lob
+    @Column(name = "station_facts_json")
+    private String stationFactsJson;
+
+    @Lob
+    @Column(name = "alert_ids")
+    private String alertIds; // "stationId:severity:eventType", comma separated (CAP alerts carry no id)
+
+    @Column(name = "prompt_hash", length = 64)
+    private String promptHash; // SHA-256 of system + user prompt, null for rule-based advice
+
+    @Lob
+    @Column(name = "advice_json")
+    private String adviceJson;
+
+    @Lob
+    @Column(name = "timings_json")
+    private String timingsJson;
+
+    @Column(name = "total_ms")
+    private Long totalMs;
+
+    protected AuditRecord() {
+    }
+
+    public Long getId() { return id; }
+    public Instant getCreatedAt() { return createdAt; }
+    public String getEndpoint() { return endpoint; }
+    public String getRequestJson() { return requestJson; }
+    public String getStationFactsJson() { return stationFactsJson; }
+    public String getAlertIds() { return alertIds; }
+    public String getPromptHash() { return promptHash; }
+    public String getAdviceJson() { return adviceJson; }
+    public String getTimingsJson() { return timingsJson; }
+    public Long getTotalMs() { return totalMs; }
+}
@@ -0,0 +1,9 @@
+package dk.ek.roadsai.model;
+
+/// Upstream health of a station / data source
+public enum HealthStatus {
+    UNKNOWN, // not fetched yet
+    OK,
+    STALE,   // responds, but newest observation is old (station not reporting)
+    FAILING  // last fetch failed, retried after backoff
+}
@@ -0,0 +1,52 @@
+package dk.ek.roadsai.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/// One archived station observation (history for later analysis, the request path never reads it).
+// written in JDBC batches by ObservationArchive (ingest pipeline consumer), JPA owns the schema
+@Entity
+@Table(name = "observation_record", indexes = @Index(name = "idx_observation_station_time", columnList = "station_id, observed_at"))
+public class ObservationRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "station_id", nullable = false, length = 32)
+    private String stationId; // "imo:1475", "veg:31674"
+
+    @Column(name = "observed_at", nullable = false)
+    private Instant observedAt;
+
+    @Column(name = "source", nullable = false, length = 32)
+    private String source; // "vedur-aws" | "vegagerdin"
+
+    @Column(name = "temp_c")
+    private Double tempC;
+
+    @Column(name = "wind_ms")
+    private Double windMs;
+
+    @Column(name = "gust_ms")
+    private Double gustMs;
+
+    @Column(name = "visibility_m")
+    private Double visibilityM;
+
+    @Column(name = "precip_type", length = 16)
+    private String precipType;
+
+    protected ObservationRecord() {
+    }
+
+    public Long getId() { return id; }
+    public String getStationId() { return stationId; }
+    public Instant getObservedAt() { return observedAt; }
+    public String getSource() { return source; }
+    public Double getTempC() { return tempC; }
+    public Double getWindMs() { return windMs; }
+    public Double getGustMs() { return gustMs; }
+    public Double getVisibilityM() { return visibilityM; }
+    public String getPrecipType() { return precipType; }
+}
@@ -0,0 +1,9 @@
+package dk.ek.roadsai.model;
+
+/// Station risk level (ordered, lowest first)
+public enum RiskLevel {
+    LOW,
+    MODERATE,
+    HIGH,
+    SEVERE
+}
@@ -0,0 +1,14 @@
+package dk.ek.roadsai.model;
+
+import java.time.Instant;
+
+/// Health of one station / data source (from StationHealthRegistry)
+public record StationHealth(
+        String stationId,        // "imo:1475", "veg:32474", "yr:64.1000,-21.9000", "cap:64.1275,-21.902"
+        HealthStatus status,
+        int consecutiveFailures,
+        Instant lastSuccess,     // last successful fetch (null = never)
+        Instant lastObservation, // newest observation seen (null = none / not an observation source)
+        Instant retryAt          // upstream skipped until then (negative cache, null = not backing off)
+) {
+}
@@ -0,0 +1,13 @@
+package dk.ek.roadsai.model;
+
+import java.util.List;
+
+/// Rule-based hazard classification for one station (from HazardEngine)
+public record StationRisk(
+        String stationId,
+        String stationName,
+        RiskLevel level,
+        List<String> reasons, // "gusts 27 m/s", "ice risk", ...
+        String advice         // template advice, "Station: text"
+) {
+}
@@ -0,0 +1,231 @@
+package dk.ek.roadsai.service;
+
+import dk.ek.roadsai.dto.ObservationsRequest;
+import dk.ek.roadsai.dto.ObservationsResponse;
+import dk.ek.roadsai.dto.StationStatus;
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.model.StationObservation;
+import dk.ek.roadsai.model.StationRisk;
+import dk.ek.roadsai.service.ai.ObservationReducer;
+import dk.ek.roadsai.service.geo.RouteGeometryService;
+import dk.ek.roadsai.service.hazard.HazardEngine;
+import dk.ek.roadsai.service.health.StationHealthRegistry;
+import dk.ek.roadsai.service.provider.VedurCapProvider;
+import dk.ek.roadsai.service.timing.Deadline;
+import dk.ek.roadsai.service.timing.RequestTimer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/// Route conditions pipeline: route, stations, observations, alerts, forecasts and hazards for a request
+// shared by the request/response endpoints and push subscriptions
+// identical concurrent requests (normalized, departure rounded to forecast step) share one in-flight computation
+@Service
+public class ConditionsService {
+    private final RouteService routeService;
+    private final StationService stationService;
+    private final VedurCapProvider vedurCapProvider;
+    private final ObservationReducer observationReducer;
+    private final ForecastSampler forecastSampler;
+    private final HazardEngine hazardEngine;
+    private final StationHealthRegistry stationHealth;
+    private final RouteGeometryService routeGeometry;
+
+    // departure rounding for coalescing (ETA forecasts are interpolated, so the step bounds the time error)
+    @Value("${coalesce.forecast-step-minutes:15}")
+    private long forecastStepMinutes = 15;
+
+    // in-flight only (removed on completion), so coalescing never serves stale results
+    private final Map<ObservationsRequest, CompletableFuture<Conditions>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder computed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public ConditionsService(
+            RouteService routeService,
+            StationService stationService,
+            VedurCapProvider vedurCapProvider,
+            ObservationReducer observationReducer,
+            ForecastSampler forecastSampler,
+            HazardEngine hazardEngine,
+            StationHealthRegistry stationHealth,
+            RouteGeometryService routeGeometry) {
+        this.routeService = routeService;
+        this.stationService = stationService;
+        this.vedurCapProvider = vedurCapProvider;
+        this.observationReducer = observationReducer;
+        this.forecastSampler = forecastSampler;
+        this.hazardEngine = hazardEngine;
+        this.stationHealth = stationHealth;
+        this.routeGeometry = routeGeometry;
+    }
+
+    public Conditions gather(ObservationsRequest request) {
+        ObservationsRequest key = normalize(request);
+
+        while (true) {
+            CompletableFuture<Conditions> mine = new CompletableFuture<>();
+            CompletableFuture<Conditions> existing = inFlight.putIfAbsent(key, mine);
+            if (existing != null) {
+                coalesced.increment();
+                try (var t = RequestTimer.stage("coalesced")) {
+                    // waits within our own deadline, leader's failure is rethrown (CompletionException)
+                    return Deadline.await(existing);
+                } catch (CompletionException e) {
+                    if (!(e.getCause() instanceof Deadline.Exceeded)) {
+                        throw e;
+                    }
+                    Deadline.check(); // leader's request gave up (deadline/disconnect), compute it ourselves
+                    continue;
+                }
+            }
+            try {
+                Conditions c = compute(key);
+                mine.complete(c);
+                return c;
+            } catch (Throwable e) {
+                mine.completeExceptionally(e); // incl. Errors: followers must never wait forever
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+    }
+
+    public Map<String, Long> stats() {
+        return Map.of(
+                "computed", computed.sum(),
+                "coalesced", coalesced.sum(),
+                "inFlight", (long) inFlight.size()
+        );
+    }
+
+    // "rvk" == "RVK", departure rounded to the forecast step, unparseable departure == none (as in compute)
+    // also the snapshot key for delta sync (same key = same response)
+    public ObservationsRequest normalize(ObservationsRequest request) {
+        String forecastTime = null;
+        if (request.forecastTime() != null && !request.forecastTime().isBlank()) {
+            try {
+                long stepSeconds = forecastStepMinutes * 60;
+                long epoch = Instant.parse(request.forecastTime().trim()).getEpochSecond();
+                long rounded = Math.floorDiv(epoch + stepSeconds / 2, stepSeconds) * stepSeconds;
+                forecastTime = Instant.ofEpochSecond(rounded).toString();
+            } catch (DateTimeParseException e) {
+                // continue without forecasts
+            }
+        }
+        return new ObservationsRequest(
+                request.from().trim().toUpperCase(Locale.ROOT),
+                request.to().trim().toUpperCase(Locale.ROOT),
+                forecastTime,
+                request.avgSpeedKmh());
+    }
+
+    // each stage is timed for Server-Timing / slow request capture
+    // and checks the request deadline first (no point starting a stage for a request that gave up)
+    private Conditions compute(ObservationsRequest request) {
+        computed.increment();
+
+        // Get route coordinates
+        List<List<Double>> routeGeo;
+        try (var t = RequestTimer.stage("route")) {
+            routeGeo = routeService.getCoordinates(request.from(), request.to());
+        }
+
+        // Get stations for route
+        List<Station> corridor;
+        Deadline.check();
+        try (var t = RequestTimer.stage("corridor")) {
+            corridor = stationService.corridorStations(routeGeo);
+        }
+
+        // Fetch latest observations (last 15 min, cache capped for precision)
+        List<StationObservation> obs;
+        Deadline.check();
+        try (var t = RequestTimer.stage("observations")) {
+            Instant fifteenMinutesAgo = Instant.now().minusSeconds(900);
+            obs = stationService.fetchObsForStations(corridor, fifteenMinutesAgo, Instant.now());
+        }
+
+        // Fetch CAP alerts for each station (30min cache in VedurCapProvider)
+        Map<String, List<CapAlert>> stationAlerts = new HashMap<>();
+        Deadline.check();
+        try (var t = RequestTimer.stage("cap")) {
+            for (Station station : corridor) {
+                List<CapAlert> alerts = vedurCapProvider.fetchAlerts(
+                    station.latitude(), station.longitude());
+                stationAlerts.put(station.id(), alerts);
+            }
+        }
+
+        // Reduce observations to station-level facts
+        Map<String, ObservationReducer.StationFacts> stationFacts;
+        Deadline.check();
+        try (var t = RequestTimer.stage("reduce")) {
+            stationFacts = observationReducer.reduceToStations(obs, corridor, stationAlerts);
+        }
+
+        // Parse forecast (departure) time if provided - sample forecasts along route
+        Instant forecastTime = null;
+        List<ForecastPoint> forecasts = List.of();
+        if (request.forecastTime() != null && !request.forecastTime().isBlank()) {
+            Deadline.check();
+            try (var t = RequestTimer.stage("forecast")) {
+                forecastTime = Instant.parse(request.forecastTime());
+                // one forecast point per station, at its ETA (road distance) when departing at forecastTime
+                forecasts = forecastSampler.sampleAlongRoute(
+                        routeGeometry.polyline(request.from(), request.to()), corridor, forecastTime, request.avgSpeedKmh());
+            } catch (DateTimeParseException e) {
+                // Invalid forecastTime format - continue without forecasts
+            }
+        }
+
+        // Rule-based hazard classification (microseconds, no network)
+        List<StationRisk> hazards;
+        Deadline.check();
+        try (var t = RequestTimer.stage("hazards")) {
+            hazards = hazardEngine.evaluate(stationFacts, corridor, forecasts);
+        }
+
+        // Upstream health per station (after fetching, so this request's failures are included)
+        // status only, fetch times would make every refetch of unchanged data look new (push / delta dedupe)
+        List<StationStatus> health;
+        try (var t = RequestTimer.stage("health")) {
+            health = corridor.stream().map(s -> StationStatus.of(stationHealth.health(s.id()))).toList();
+        }
+
+        return new Conditions(routeGeo, corridor, obs, stationAlerts, stationFacts, forecastTime, forecasts, hazards, health);
+    }
+
+    public record Conditions(
+            List<List<Double>> routeGeo,
+            List<Station> corridor,
+            List<StationObservation> obs,
+            Map<String, List<CapAlert>> stationAlerts,
+            Map<String, ObservationReducer.StationFacts> stationFacts,
+            Instant forecastTime,
+            List<ForecastPoint> forecasts,
+            List<StationRisk> hazards,
+            List<StationStatus> health
+    ) {
+        // rule-based template advice, one per station
+        public List<String> ruleAdvice() {
+            return hazards.stream().map(StationRisk::advice).toList();
+        }
+
+        public ObservationsResponse toResponse() {
+            return new ObservationsResponse(obs, stationAlerts, corridor, routeGeo, ruleAdvice(), forecasts, hazards, health);
+        }
+    }
+}
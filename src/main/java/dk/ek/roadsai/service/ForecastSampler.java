@@ -0,0 +1,107 @@
+package dk.ek.roadsai.service;
+
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.service.geo.Polyline;
+import dk.ek.roadsai.service.provider.YrNoProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Samples yr.no forecasts along the route at each station's estimated time of arrival.
+// departure time + average speed -> ETA from road distance to the station -> one interpolated forecast point per station
+@Service
+public class ForecastSampler {
+    private final YrNoProvider yrNoProvider;
+
+    @Value("${forecast.avg-speed-kmh:70}")
+    private double defaultSpeedKmh = 70;
+
+    public ForecastSampler(YrNoProvider yrNoProvider) {
+        this.yrNoProvider = yrNoProvider;
+    }
+
+    // one forecast point per station (station coordinates, time = ETA), stations beyond forecast horizon are skipped
+    // along the road polyline (RouteGeometryService): ETA = road distance to the nearest vertex / speed
+    public List<ForecastPoint> sampleAlongRoute(Polyline road, List<Station> stations,
+                                                Instant departure, Double avgSpeedKmh) {
+        double speed = avgSpeedKmh != null && avgSpeedKmh > 0 ? avgSpeedKmh : defaultSpeedKmh;
+        Map<String, List<ForecastPoint>> seriesByCell = new HashMap<>(); // grid dedup within this request
+        List<ForecastPoint> out = new ArrayList<>();
+
+        for (Station station : stations) {
+            double km = road.distanceAlongKm(station.latitude(), station.longitude());
+            Instant eta = departure.plus(Duration.ofSeconds(Math.round(km / speed * 3600)));
+            String cell = yrNoProvider.gridKey(station.latitude(), station.longitude());
+            List<ForecastPoint> series = seriesByCell.computeIfAbsent(cell,
+                    k -> yrNoProvider.fetchSeries(station.latitude(), station.longitude()));
+
+            ForecastPoint sampled = interpolate(series, eta);
+            if (sampled != null) {
+                out.add(new ForecastPoint(eta, station.latitude(), station.longitude(),
+                        sampled.tempC(), sampled.windMs(), sampled.precipMm()));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Linear interpolation between the two forecast steps around a time
+     *
+     * @param series Forecast points sorted by time
+     * @param time   Time to sample
+     * @return Interpolated point, first point if time is before the series, null if beyond the horizon
+     */
+    public static ForecastPoint interpolate(List<ForecastPoint> series, Instant time) {
+        if (series == null || series.isEmpty()) {
+            return null;
+        }
+        if (!time.isAfter(series.getFirst().time())) {
+            return series.getFirst();
+        }
+        if (time.isAfter(series.getLast().time())) {
+            return null;
+        }
+
+        // binary search for first step at or after time
+        int lo = 0;
+        int hi = series.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (series.get(mid).time().isBefore(time)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        ForecastPoint after = series.get(lo);
+        if (after.time().equals(time)) {
+            return after;
+        }
+        ForecastPoint before = series.get(lo - 1);
+        double span = Duration.between(before.time(), after.time()).toMillis();
+        double w = Duration.between(before.time(), time).toMillis() / span;
+
+        return new ForecastPoint(
+                time,
+                before.latitude(),
+                before.longitude(),
+                lerp(before.tempC(), after.tempC(), w),
+                lerp(before.windMs(), after.windMs(), w),
+                before.precipMm() // next-hour precip of the step we are inside
+        );
+    }
+
+    // null-safe linear interpolation (falls back to whichever side has a value)
+    private static Double lerp(Double a, Double b, double w) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a + (b - a) * w;
+    }
+}
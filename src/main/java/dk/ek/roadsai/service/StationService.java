@@ -24,11 +24,15 @@ public class StationService {
     }
 
 
+    // Stations from both providers (unordered)
+    public List<Station> allStations() {
+        return Stream.concat(vegagerdin.listStations().stream(), vedur.listStations().stream()).toList();
+    }
+
     // Stations from both providers merged and sorted by latitude (reversed if route is IFJ → RVK)
     public List<Station> corridorStations(List<List<Double>> routeLonLat) {
         // Merge stations from both providers
-        var allStations = Stream.concat(vegagerdin.listStations().stream(), vedur.listStations().stream())
-                .toList();
+        var allStations = allStations();
         
         // Sort by latitude (south to north) - base order: RVK → IFJ
         List<Station> sorted = allStations.stream()
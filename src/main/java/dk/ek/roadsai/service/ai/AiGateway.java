@@ -0,0 +1,402 @@
+package dk.ek.roadsai.service.ai;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import dk.ek.roadsai.service.cache.TieredCache;
+import dk.ek.roadsai.service.snapshot.SnapshotParticipant;
+import dk.ek.roadsai.service.timing.Deadline;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static dk.ek.roadsai.service.snapshot.SnapshotIO.*;
+
+/// Admission control in front of ObservationAiService (OpenAI).
+// single-flight per prompt -> priority queue -> deadline check -> RPM/TPM token buckets -> bounded concurrency
+// overload returns the caller's fallback (rule-based advice) instead of piling up 30 s timeouts
+// jobs carry the caller's request deadline: shed / cancelled once the caller gave up (client disconnect)
+// successful advice is cached per prompt (ai.advice.ttl-ms), shared across replicas via TieredCache (L2)
+// and included in the warm-start snapshot
+@Service
+public class AiGateway implements SnapshotParticipant {
+
+    public enum Priority {
+        INTERACTIVE, // user is waiting
+        BACKGROUND   // push/precompute, shed first
+    }
+
+    private static final String CACHE = "ai-advice";
+    private static final TypeReference<List<String>> ADVICE_TYPE = new TypeReference<>() {
+    };
+
+    private final ObservationAiService aiService;
+    private final TieredCache tieredCache;
+
+    @Value("${ai.gateway.max-concurrent:4}")
+    private int maxConcurrent = 4;
+    @Value("${ai.gateway.requests-per-minute:500}")
+    private int requestsPerMinute = 500;
+    @Value("${ai.gateway.tokens-per-minute:200000}")
+    private int tokensPerMinute = 200000;
+    @Value("${ai.gateway.max-queue:50}")
+    private int maxQueue = 50;
+    @Value("${ai.gateway.max-wait-ms:8000}")
+    private long maxWaitMs = 8000;
+    @Value("${ai.gateway.min-remaining-ms:3000}")
+    private long minRemainingMs = 3000; // not worth starting an OpenAI call with less time left
+    @Value("${openai.api.timeout:30000}")
+    private long openAiTimeoutMs = 30000;
+    @Value("${ai.advice.ttl-ms:600000}")
+    private long adviceTtlMs = 600000;
+    @Value("${ai.advice.max-entries:1000}")
+    private int adviceMaxEntries = 1000;
+
+    private static final int COMPLETION_TOKENS = 800; // OpenAiRequest.maxTokens
+    private static final long DISPATCH_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, CompletableFuture<List<String>>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, CachedAdvice> adviceCache = new ConcurrentHashMap<>();
+    private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong seq = new AtomicLong();
+    private Semaphore permits;
+    private TokenBucket rpm;
+    private TokenBucket tpm;
+    private ExecutorService workers;
+    private Thread dispatcher;
+    private volatile boolean running = true;
+
+    // counters for /api/admin/ai-gateway
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+
+    public AiGateway(ObservationAiService aiService, TieredCache tieredCache) {
+        this.aiService = aiService;
+        this.tieredCache = tieredCache;
+    }
+
+    @PostConstruct
+    void start() {
+        permits = new Semaphore(maxConcurrent);
+        rpm = new TokenBucket(requestsPerMinute, requestsPerMinute / 60.0);
+        tpm = new TokenBucket(tokensPerMinute, tokensPerMinute / 60.0);
+        workers = Executors.newFixedThreadPool(maxConcurrent, r -> {
+            Thread t = new Thread(r, "ai-gateway-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        dispatcher = new Thread(this::dispatchLoop, "ai-gateway-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        workers.shutdownNow();
+    }
+
+    /**
+     * Ask OpenAI through admission control
+     *
+     * @param format       Prompt format the user prompt was built with (token accounting in AiUsageStats)
+     * @param systemPrompt System prompt
+     * @param userPrompt   User prompt
+     * @param fallback     Returned when shed, timed out or failed (also defines expected advice count)
+     * @param priority     Queue priority
+     * @return Advice points (shared with identical concurrent prompts)
+     */
+    public List<String> ask(String format, String systemPrompt, String userPrompt, List<String> fallback, Priority priority) {
+        submitted.increment();
+        String key = systemPrompt + '\u0000' + userPrompt;
+
+        // same prompt (= same conditions) answered recently
+        CachedAdvice cached = adviceCache.get(key);
+        if (cached != null && isFresh(cached.createdAt())) {
+            cacheHits.increment();
+            tieredCache.l1Hit(CACHE);
+            return cached.advice();
+        }
+
+        // shared cache: only one replica asks OpenAI for a prompt, fallbacks are not cached
+        TieredCache.Loaded<List<String>> shared = tieredCache.load(CACHE, sha256(key), Duration.ofMillis(adviceTtlMs),
+                ADVICE_TYPE, () -> {
+                    List<String> result = askLocal(key, format, systemPrompt, userPrompt, fallback, priority);
+                    return result != fallback ? result : null;
+                });
+        if (shared == null) {
+            return fallback;
+        }
+        cacheAdvice(key, shared.value(), shared.fetchedAt());
+        return shared.value();
+    }
+
+    private List<String> askLocal(String key, String format, String systemPrompt, String userPrompt, List<String> fallback, Priority priority) {
+        Deadline caller = Deadline.current();
+        while (caller == null || !caller.done()) {
+            // single-flight: identical prompt already queued or running -> wait for same result
+            CompletableFuture<List<String>> mine = new CompletableFuture<>();
+            CompletableFuture<List<String>> existing = inFlight.putIfAbsent(key, mine);
+            if (existing != null) {
+                coalesced.increment();
+            } else {
+                mine.whenComplete((r, e) -> inFlight.remove(key, mine));
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                if (caller != null) {
+                    deadline = Math.min(deadline, System.nanoTime() + caller.remainingNanos());
+                }
+                int tokens = TokenEstimator.estimate(systemPrompt) + TokenEstimator.estimate(userPrompt) + COMPLETION_TOKENS;
+                Job job = new Job(priority, deadline, seq.incrementAndGet(), format, systemPrompt, userPrompt, fallback, tokens, caller, mine);
+                if (!admit(job)) {
+                    shed.increment();
+                    mine.complete(fallback);
+                }
+            }
+            List<String> result = await(existing != null ? existing : mine, fallback, caller);
+            if (result != null) {
+                return result;
+            }
+            // null: the job ran for another request that gave up, ask again if we still have time
+        }
+        return fallback;
+    }
+
+    public Map<String, Long> stats() {
+        return Map.of(
+                "submitted", submitted.sum(),
+                "cacheHits", cacheHits.sum(),
+                "coalesced", coalesced.sum(),
+                "shed", shed.sum(),
+                "completed", completed.sum(),
+                "queued", (long) queue.size(),
+                "running", (long) (maxConcurrent - permits.availablePermits())
+        );
+    }
+
+    // L2 key (prompts are several KB)
+    private static String sha256(String s) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean isFresh(Instant createdAt) {
+        return Duration.between(createdAt, Instant.now()).toMillis() < adviceTtlMs;
+    }
+
+    // bounded: expired entries are dropped when full, new entries skipped if still full
+    private void cacheAdvice(String key, List<String> advice, Instant createdAt) {
+        if (adviceCache.size() >= adviceMaxEntries) {
+            adviceCache.values().removeIf(c -> !isFresh(c.createdAt()));
+            if (adviceCache.size() >= adviceMaxEntries) {
+                return;
+            }
+        }
+        adviceCache.put(key, new CachedAdvice(List.copyOf(advice), createdAt));
+    }
+
+    @Override
+    public String snapshotName() {
+        return "ai-advice";
+    }
+
+    @Override
+    public void writeSnapshot(DataOutputStream out) throws IOException {
+        Map<String, CachedAdvice> data = Map.copyOf(adviceCache);
+        out.writeInt(data.size());
+        for (var entry : data.entrySet()) {
+            writeString(out, entry.getKey());
+            writeInstant(out, entry.getValue().createdAt());
+            out.writeInt(entry.getValue().advice().size());
+            for (String line : entry.getValue().advice()) {
+                writeString(out, line);
+            }
+        }
+    }
+
+    @Override
+    public void readSnapshot(DataInputStream in) throws IOException {
+        int entries = in.readInt();
+        for (int i = 0; i < entries; i++) {
+            String key = readString(in);
+            Instant createdAt = readInstant(in);
+            int n = in.readInt();
+            List<String> advice = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                advice.add(readString(in));
+            }
+            if (isFresh(createdAt)) {
+                cacheAdvice(key, advice, createdAt);
+            }
+        }
+    }
+
+    // bounded queue: when full, a BACKGROUND job is evicted for an INTERACTIVE one, otherwise the new job is shed
+    private synchronized boolean admit(Job job) {
+        if (queue.size() >= maxQueue) {
+            if (job.priority == Priority.BACKGROUND) {
+                return false;
+            }
+            Job victim = queue.stream().filter(j -> j.priority == Priority.BACKGROUND).findAny().orElse(null);
+            if (victim == null || !queue.remove(victim)) {
+                return false;
+            }
+            shed.increment();
+            victim.result.complete(victim.fallback);
+        }
+        queue.add(job);
+        LockSupport.unpark(dispatcher);
+        return true;
+    }
+
+    // capacity first, then the best live job: the dispatcher never waits on behalf of one job, so an INTERACTIVE job
+    // that arrives while capacity is short still goes first, and expired jobs are shed while they wait
+    // woken by admit() and by finished calls, otherwise re-checks every DISPATCH_TICK_NANOS (rate limit, expiry)
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                shedExpired();
+                Job job = queue.peek();
+                if (job == null) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                long wait = Math.max(rpm.nanosUntil(1), tpm.nanosUntil(job.tokens));
+                if (wait > 0 || !permits.tryAcquire()) {
+                    LockSupport.parkNanos(wait > 0 ? Math.min(wait, DISPATCH_TICK_NANOS) : DISPATCH_TICK_NANOS);
+                    continue;
+                }
+                if (!queue.remove(job)) {
+                    permits.release(); // evicted by admit() meanwhile
+                    continue;
+                }
+                if (!rpm.tryAcquire(1) || !tpm.tryAcquire(job.tokens)) {
+                    permits.release();
+                    queue.add(job);
+                    continue;
+                }
+                dispatch(job);
+            } catch (Exception e) {
+                // keep dispatching, a failed job already got its fallback
+            }
+        }
+    }
+
+    private void dispatch(Job job) {
+        try {
+            workers.execute(() -> {
+                try {
+                    job.result.complete(aiService.ask(job.format, job.systemPrompt, job.userPrompt, job.fallback, job.caller));
+                    completed.increment();
+                } catch (Deadline.Exceeded e) {
+                    job.result.completeExceptionally(e);
+                } catch (Exception e) {
+                    job.result.complete(job.fallback);
+                } finally {
+                    permits.release();
+                    LockSupport.unpark(dispatcher);
+                }
+            });
+        } catch (Exception e) {
+            permits.release(); // workers shut down
+            job.result.complete(job.fallback);
+        }
+    }
+
+    // jobs that can no longer start in time: less than min-remaining-ms left (incl. rate limit wait) or caller gone
+    // a job whose caller gave up fails with Deadline.Exceeded (coalesced waiters retry instead of taking the fallback)
+    private void shedExpired() {
+        long minRemaining = TimeUnit.MILLISECONDS.toNanos(minRemainingMs);
+        long now = System.nanoTime();
+        for (Job job : queue) {
+            boolean callerGone = job.caller != null && job.caller.done();
+            long rateWait = Math.max(rpm.nanosUntil(1), tpm.nanosUntil(job.tokens));
+            if (!callerGone && !job.result.isDone() && job.deadline - now - rateWait >= minRemaining) {
+                continue;
+            }
+            if (!queue.remove(job)) {
+                continue; // dispatched or evicted meanwhile
+            }
+            shed.increment();
+            if (callerGone) {
+                String reason = job.caller.cancelReason();
+                job.result.completeExceptionally(new Deadline.Exceeded(reason != null ? reason : Deadline.EXPIRED));
+            } else {
+                job.result.complete(job.fallback);
+            }
+        }
+    }
+
+    // caller waits for queueing + one OpenAI call at most, and no longer than its own deadline
+    // null if the job was cancelled on behalf of another (coalesced) caller
+    private List<String> await(CompletableFuture<List<String>> future, List<String> fallback, Deadline caller) {
+        long waitMs = maxWaitMs + openAiTimeoutMs + 1000;
+        if (caller != null) {
+            waitMs = Math.min(waitMs, caller.remainingMillis());
+        }
+        try {
+            return future.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        } catch (ExecutionException e) {
+            return e.getCause() instanceof Deadline.Exceeded ? null : fallback;
+        } catch (Exception e) {
+            return fallback;
+        }
+    }
+
+    private record CachedAdvice(List<String> advice, Instant createdAt) {
+    }
+
+    private record Job(
+            Priority priority,
+            long deadline,
+            long seq,
+            String format,
+            String systemPrompt,
+            String userPrompt,
+            List<String> fallback,
+            int tokens,
+            Deadline caller, // null = no request deadline (push, precompute)
+            CompletableFuture<List<String>> result
+    ) implements Comparable<Job> {
+        @Override
+        public int compareTo(Job o) {
+            int c = priority.compareTo(o.priority);
+            if (c != 0) return c;
+            c = Long.compare(deadline, o.deadline);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+}
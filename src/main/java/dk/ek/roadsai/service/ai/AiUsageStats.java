@@ -0,0 +1,58 @@
+package dk.ek.roadsai.service.ai;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/// Per prompt format OpenAI token + latency accounting (compare verbose vs compact prompts).
+// fed by ObservationAiService from OpenAiResponse.usage, read by AdminController
+@Service
+public class AiUsageStats {
+
+    private final Map<String, Counters> byFormat = new ConcurrentHashMap<>();
+
+    public void record(String format, int estimatedPromptTokens, Integer promptTokens, Integer completionTokens, long latencyMs) {
+        Counters c = byFormat.computeIfAbsent(format, k -> new Counters());
+        c.requests.increment();
+        c.estimatedPromptTokens.add(estimatedPromptTokens);
+        if (promptTokens != null) c.promptTokens.add(promptTokens);
+        if (completionTokens != null) c.completionTokens.add(completionTokens);
+        c.latencyMs.add(latencyMs);
+    }
+
+    // averages per request, keyed by prompt format
+    public Map<String, Summary> snapshot() {
+        Map<String, Summary> out = new TreeMap<>();
+        byFormat.forEach((format, c) -> {
+            long n = Math.max(1, c.requests.sum());
+            out.put(format, new Summary(
+                    c.requests.sum(),
+                    c.estimatedPromptTokens.sum() / n,
+                    c.promptTokens.sum() / n,
+                    c.completionTokens.sum() / n,
+                    c.latencyMs.sum() / n
+            ));
+        });
+        return out;
+    }
+
+    public record Summary(
+            long requests,
+            long avgEstimatedPromptTokens,
+            long avgPromptTokens,
+            long avgCompletionTokens,
+            long avgLatencyMs
+    ) {
+    }
+
+    private static class Counters {
+        final LongAdder requests = new LongAdder();
+        final LongAdder estimatedPromptTokens = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAdder completionTokens = new LongAdder();
+        final LongAdder latencyMs = new LongAdder();
+    }
+}
@@ -0,0 +1,159 @@
+package dk.ek.roadsai.service.ai;
+
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.model.Station;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/// Dense tabular user prompt (one '|' row per station) with token budget enforcement.
+// used by ObservationPromptBuilder when prompt.format=compact
+@Service
+public class CompactPromptEncoder {
+
+    // trim order when over budget: lowest priority section first, last row first
+    private static final int PRIO_CONTEXT_OBS = 0; // observations when forecast is > 2h ahead
+    private static final int PRIO_FORECAST = 1;
+    private static final int PRIO_OBS = 2;
+    private static final int PRIO_ALERTS = 3;
+
+    @Value("${prompt.token-budget:1200}")
+    private int tokenBudget = 1200;
+
+    public String encode(
+            String routeName,
+            String from,
+            String to,
+            Map<String, ObservationReducer.StationFacts> stations,
+            List<Station> stationList,
+            List<ForecastPoint> forecasts,
+            Instant forecastTime) {
+
+        long hoursAhead = forecastTime != null ? Duration.between(Instant.now(), forecastTime).toHours() : 0;
+        boolean obsContextOnly = forecastTime != null && hoursAhead > 2;
+
+        /// head: route + time context (never trimmed)
+        StringBuilder head = new StringBuilder();
+        head.append("Route ").append(routeName).append(' ').append(from).append("->").append(to).append('.');
+        if (forecastTime != null) {
+            head.append(" Depart ").append(forecastTime).append(" (+").append(hoursAhead).append("h).");
+            if (obsContextOnly) {
+                head.append(" OBS are context only, base advice on FCST.");
+            }
+        } else {
+            head.append(" Current conditions only.");
+        }
+        head.append('\n');
+
+        List<Section> sections = new ArrayList<>();
+
+        /// alerts: station|severity|event|headline
+        Section alerts = new Section(PRIO_ALERTS, "ALERTS official, MUST mention: station|severity|event|headline");
+        for (var facts : stations.values()) {
+            if (facts.alerts == null) continue;
+            for (CapAlert alert : facts.alerts) {
+                alerts.rows.add(facts.stationName + '|' + orDash(alert.severity) + '|' + orDash(alert.eventType)
+                        + '|' + orDash(alert.headline));
+            }
+        }
+        sections.add(alerts);
+
+        /// observations: worst-case last 15 min
+        Section obs = new Section(obsContextOnly ? PRIO_CONTEXT_OBS : PRIO_OBS,
+                "OBS worst 15min: station|wind m/s|gust m/s|temp C|vis m|precip");
+        for (var facts : stations.values()) {
+            obs.rows.add(facts.stationName + '|' + num(facts.windMs) + '|' + num(facts.maxGustMs) + '|'
+                    + num(facts.minTempC) + '|' + (facts.minVisM != null ? Long.toString(Math.round(facts.minVisM)) : "-")
+                    + '|' + orDash(facts.precipType));
+        }
+        sections.add(obs);
+
+        /// forecast at ETA: station|eta|wind|temp|precip
+        if (forecastTime != null && forecasts != null && !forecasts.isEmpty()) {
+            Section fcst = new Section(PRIO_FORECAST, "FCST at ETA: station|eta UTC|wind m/s|temp C|precip mm/h");
+            for (Station station : stationList) {
+                for (ForecastPoint f : forecasts) {
+                    if (Math.abs(f.latitude() - station.latitude()) < 0.001 &&
+                            Math.abs(f.longitude() - station.longitude()) < 0.001) {
+                        String eta = f.time().toString();
+                        fcst.rows.add(station.name() + '|' + eta.substring(11, Math.min(16, eta.length())) + '|'
+                                + num(f.windMs()) + '|' + num(f.tempC()) + '|' + num(f.precipMm()));
+                        break;
+                    }
+                }
+            }
+            sections.add(fcst);
+        }
+
+        /// tail: response format (never trimmed)
+        StringBuilder order = new StringBuilder();
+        for (var facts : stations.values()) {
+            if (!order.isEmpty()) order.append("; ");
+            order.append(facts.stationName);
+        }
+        String tail = "Reply with exactly " + stations.size() + " lines, one per station in this order: " + order
+                + ". Format 'Station: advice' (20-25 words, specific, no generic phrases).";
+
+        trimToBudget(head.toString(), sections, tail);
+        return render(head.toString(), sections, tail);
+    }
+
+    // removes rows (lowest priority section first) until estimate fits the budget
+    private void trimToBudget(String head, List<Section> sections, String tail) {
+        int tokens = TokenEstimator.estimate(render(head, sections, tail));
+        while (tokens > tokenBudget) {
+            Section victim = null;
+            for (Section s : sections) {
+                if (!s.rows.isEmpty() && (victim == null || s.priority < victim.priority)) {
+                    victim = s;
+                }
+            }
+            if (victim == null) {
+                return; // nothing left to trim
+            }
+            tokens -= TokenEstimator.estimate(victim.rows.removeLast()) + 1;
+            if (victim.rows.isEmpty()) {
+                tokens -= TokenEstimator.estimate(victim.header) + 1;
+            }
+        }
+    }
+
+    private static String render(String head, List<Section> sections, String tail) {
+        StringBuilder sb = new StringBuilder(head);
+        for (Section s : sections) {
+            if (s.rows.isEmpty()) continue;
+            sb.append(s.header).append('\n');
+            for (String row : s.rows) {
+                sb.append(row).append('\n');
+            }
+        }
+        return sb.append(tail).toString();
+    }
+
+    // one decimal, no String.format
+    private static String num(Double v) {
+        if (v == null) return "-";
+        return Double.toString(Math.round(v * 10) / 10.0);
+    }
+
+    private static String orDash(String s) {
+        return s == null || s.isBlank() ? "-" : s;
+    }
+
+    private static class Section {
+        final int priority;
+        final String header;
+        final List<String> rows = new ArrayList<>();
+
+        Section(int priority, String header) {
+            this.priority = priority;
+            this.header = header;
+        }
+    }
+}
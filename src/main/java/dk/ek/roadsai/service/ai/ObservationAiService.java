@@ -2,11 +2,14 @@ package dk.ek.roadsai.service.ai;
 
 import dk.ek.roadsai.dto.openai.OpenAiRequest;
 import dk.ek.roadsai.dto.openai.OpenAiResponse;
+import dk.ek.roadsai.service.replay.UpstreamTape;
+import dk.ek.roadsai.service.timing.Deadline;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.ArrayList;
@@ -20,6 +23,7 @@ import java.util.Map;
 @Service
 public class ObservationAiService {
     private final WebClient webClient;
+    private final AiUsageStats usageStats;
 
     @Value("${openai.api.key}")
     private String apiKey;
@@ -30,16 +34,32 @@ public class ObservationAiService {
     @Value("${openai.api.timeout:30000}")
     private int timeout;
 
-    public ObservationAiService() {
+    public ObservationAiService(AiUsageStats usageStats,
+                                @Value("${openai.api.base-url:https://api.openai.com/v1}") String baseUrl,
+                                UpstreamTape upstreamTape) {
+        this.usageStats = usageStats;
         this.webClient = WebClient.builder()
-                .baseUrl("https://api.openai.com/v1")
+                .baseUrl(baseUrl)
+                .filter(upstreamTape.filter("openai"))
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .build();
     }
 
     // asks OpenAI for driving advice based on prompts
     // returns list of advice points, or fallback messages on error
-    public List<String> ask(String systemPrompt, String userPrompt, int expectedCount) {
+    // format: the prompt format the user prompt was built with ("verbose", "compact", "departure"), keys AiUsageStats
+    public List<String> ask(String format, String systemPrompt, String userPrompt, int expectedCount) {
+        return ask(format, systemPrompt, userPrompt, generateFallback(expectedCount));
+    }
+
+    // same as above, but falls back to given advice (e.g. rule-based HazardEngine advice) on error
+    public List<String> ask(String format, String systemPrompt, String userPrompt, List<String> fallback) {
+        return ask(format, systemPrompt, userPrompt, fallback, null);
+    }
+
+    // on behalf of a request with a deadline (null = none): the call is cut short / cancelled with it (Deadline.Exceeded)
+    public List<String> ask(String format, String systemPrompt, String userPrompt, List<String> fallback, Deadline caller) {
+        int expectedCount = fallback.size();
         try {
             OpenAiRequest request = new OpenAiRequest();
             request.model = model;
@@ -48,33 +68,50 @@ public class ObservationAiService {
                     Map.of("role", "user", "content", userPrompt)
             );
 
-            OpenAiResponse response = webClient.post()
+            long started = System.currentTimeMillis();
+            Mono<OpenAiResponse> call = webClient.post()
                     .uri("/chat/completions")
                     .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                    // replay matches completions by prompt, not by call order
+                    .header(UpstreamTape.BODY_KEY_HEADER, UpstreamTape.bodyKey(model, systemPrompt, userPrompt))
                     .bodyValue(request)
                     .retrieve()
-                    .bodyToMono(OpenAiResponse.class)
-                    .timeout(Duration.ofMillis(timeout))
+                    .bodyToMono(OpenAiResponse.class);
+            OpenAiResponse response = (caller != null
+                    ? caller.bound(call, Duration.ofMillis(timeout))
+                    : call.timeout(Duration.ofMillis(timeout)))
                     .block();
 
+            // token accounting per prompt format
+            if (response != null) {
+                usageStats.record(format,
+                        TokenEstimator.estimate(systemPrompt) + TokenEstimator.estimate(userPrompt),
+                        response.usage != null ? response.usage.promptTokens : null,
+                        response.usage != null ? response.usage.completionTokens : null,
+                        System.currentTimeMillis() - started);
+            }
+
             if (response == null || response.choices == null || response.choices.isEmpty()) {
-                return generateFallback(expectedCount);
+                return fallback;
             }
 
             String content = response.choices.getFirst().message.content;
             if (content == null || content.isBlank()) {
-                return generateFallback(expectedCount);
+                return fallback;
             }
 
-            return parseAdvicePoints(content, expectedCount);
+            return parseAdvicePoints(content, fallback);
 
+        } catch (Deadline.Exceeded e) {
+            throw e; // caller gave up, not an OpenAI failure
         } catch (Exception e) {
-            return generateFallback(expectedCount);
+            return fallback;
         }
     }
 
     // parses AI response into clean advice points
-    private List<String> parseAdvicePoints(String content, int expectedCount) {
+    private List<String> parseAdvicePoints(String content, List<String> fallback) {
+        int expectedCount = fallback.size();
         List<String> lines = Arrays.stream(content.split("\n")) // split AI response into lines
                 .map(String::trim) // trim whitespace
                 .filter(line -> !line.isBlank()) // remove empty lines
@@ -102,7 +139,7 @@ public class ObservationAiService {
         }
 
         if (cleaned.isEmpty()) {
-            return generateFallback(expectedCount);
+            return fallback;
         }
 
         // Trim to expected count
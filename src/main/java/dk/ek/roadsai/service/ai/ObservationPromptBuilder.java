@@ -1,11 +1,15 @@
 package dk.ek.roadsai.service.ai;
 
+import dk.ek.roadsai.dto.DepartureSchedule;
 import dk.ek.roadsai.model.ForecastPoint;
 import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.model.StationRisk;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 
@@ -14,6 +18,19 @@ import java.util.Objects;
 // takes ObservationReducer and writes into prompt - both system- + user-prompt -> sends to ObservationAiService
 @Service
 public class ObservationPromptBuilder {
+    private final CompactPromptEncoder compactEncoder;
+
+    // "verbose" (prose, default) or "compact" (tabular, token-budgeted)
+    @Value("${prompt.format:verbose}")
+    private String format = "verbose";
+
+    public ObservationPromptBuilder(CompactPromptEncoder compactEncoder) {
+        this.compactEncoder = compactEncoder;
+    }
+
+    public String format() {
+        return format;
+    }
 
     public String buildSystemPrompt() {
         return """
@@ -31,6 +48,7 @@ public class ObservationPromptBuilder {
     ///  3. Current station observations (vedur.is + vegagerdin.is)
     ///  4. Forecast data (yr.no API, if requested)
     ///  5. Final instructions for AI response format
+    /// (prompt.format=compact delegates to CompactPromptEncoder)
     public String buildUserPrompt(
             String routeName,
             String from,
@@ -40,6 +58,10 @@ public class ObservationPromptBuilder {
             List<ForecastPoint> forecasts,
             Instant forecastTime) {
 
+        if ("compact".equals(format)) {
+            return compactEncoder.encode(routeName, from, to, stations, stationList, forecasts, forecastTime);
+        }
+
         StringBuilder prompt = new StringBuilder();
 
         /// 1: Route Information & Forecast Context
@@ -115,16 +137,16 @@ public class ObservationPromptBuilder {
 
             List<String> parts = new java.util.ArrayList<>();
             if (facts.windMs != null) {
-                parts.add("Wind " + String.format("%.1f", facts.windMs) + " m/s");
+                parts.add("Wind " + String.format(Locale.ROOT, "%.1f", facts.windMs) + " m/s");
             }
             if (facts.maxGustMs != null) {
-                parts.add("Gusts " + String.format("%.1f", facts.maxGustMs) + " m/s");
+                parts.add("Gusts " + String.format(Locale.ROOT, "%.1f", facts.maxGustMs) + " m/s");
             }
             if (facts.minTempC != null) {
-                parts.add("Temp " + String.format("%.1f", facts.minTempC) + "°C");
+                parts.add("Temp " + String.format(Locale.ROOT, "%.1f", facts.minTempC) + "°C");
             }
             if (facts.minVisM != null) {
-                parts.add("Visibility " + String.format("%.0f", facts.minVisM) + "m");
+                parts.add("Visibility " + String.format(Locale.ROOT, "%.0f", facts.minVisM) + "m");
             }
             if (facts.precipType != null && !facts.precipType.isBlank()) {
                 parts.add("Precip: " + facts.precipType);
@@ -135,16 +157,15 @@ public class ObservationPromptBuilder {
         }
 
         /// 4: Forecast Data (if requested)
-        // Shows predicted weather from yr.no API up to the requested time
+        // Shows predicted weather from yr.no API at each station's estimated arrival time
         if (forecastTime != null && forecasts != null && !forecasts.isEmpty()) {
-            prompt.append("\n**FORECAST DATA** (up to requested time)\n");
+            prompt.append("\n**FORECAST DATA** (at estimated arrival time per station)\n");
 
             // Match forecasts to stations by coordinates
             for (Station station : stationList) {
                 List<ForecastPoint> stationForecasts = forecasts.stream() // stream all forecasts
                         .filter(f -> Math.abs(f.latitude() - station.latitude()) < 0.001 && // match by coordinates
-                                Math.abs(f.longitude() - station.longitude()) < 0.001 &&
-                                (f.time().isBefore(forecastTime) || f.time().equals(forecastTime))) // up to requested time
+                                Math.abs(f.longitude() - station.longitude()) < 0.001)
                         .toList();
 
                 if (!stationForecasts.isEmpty()) {
@@ -154,24 +175,25 @@ public class ObservationPromptBuilder {
                     Double maxPrecip = stationForecasts.stream().map(ForecastPoint::precipMm).filter(Objects::nonNull).max(Double::compare).orElse(null); // worst-case precip
 
                     // output summary for station
-                    prompt.append("- ").append(station.name()).append(" forecast: ");
+                    prompt.append("- ").append(station.name()).append(" forecast (ETA ")
+                            .append(stationForecasts.getFirst().time().toString()).append("): ");
                     boolean hasForecast = false;
                     if (maxWind != null) {
-                        prompt.append("Wind up to ").append(String.format("%.1f", maxWind)).append(" m/s");
+                        prompt.append("Wind up to ").append(String.format(Locale.ROOT, "%.1f", maxWind)).append(" m/s");
                         hasForecast = true;
                     }
                     if (minTemp != null) {
                         if (hasForecast) {
                             prompt.append(", ");
                         }
-                        prompt.append("Temp ").append(String.format("%.1f", minTemp)).append("°C");
+                        prompt.append("Temp ").append(String.format(Locale.ROOT, "%.1f", minTemp)).append("°C");
                         hasForecast = true;
                     }
                     if (maxPrecip != null && maxPrecip > 0) {
                         if (hasForecast) {
                             prompt.append(", ");
                         }
-                        prompt.append("Precip ").append(String.format("%.1f", maxPrecip)).append("mm");
+                        prompt.append("Precip ").append(String.format(Locale.ROOT, "%.1f", maxPrecip)).append("mm");
                     }
                     prompt.append("\n");
                 }
@@ -197,5 +219,35 @@ public class ObservationPromptBuilder {
 
         return prompt.toString();
     }
-}
 
+    /// Departure search: compares the top candidate departures (DepartureSearchService), one advice line per candidate
+    public String buildDepartureUserPrompt(String routeName, String from, String to, List<DepartureSchedule.Top> top) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("Compare departure times for route: ").append(routeName)
+                .append(" (").append(from).append(" → ").append(to).append(")\n");
+        prompt.append("These are the ").append(top.size())
+                .append(" safest departures of the search, ranked by yr.no forecasts at each station's ETA (times UTC).\n\n");
+
+        for (DepartureSchedule.Top candidate : top) {
+            DepartureSchedule.Option option = candidate.option();
+            prompt.append("Departure ").append(DepartureSchedule.dateTime(option.departure()))
+                    .append(" (arrival ").append(DepartureSchedule.dateTime(option.arrival()))
+                    .append("), risk ").append(option.level())
+                    .append(", peak wind ").append(option.peakWindMs() != null ? String.format(Locale.ROOT, "%.1f", option.peakWindMs()) : "-").append(" m/s")
+                    .append(", min temp ").append(option.minTempC() != null ? String.format(Locale.ROOT, "%.1f", option.minTempC()) : "-").append("°C:\n");
+            for (StationRisk risk : candidate.hazards()) {
+                prompt.append("- ").append(risk.stationName()).append(": ").append(risk.level());
+                if (!risk.reasons().isEmpty()) {
+                    prompt.append(" (").append(String.join(", ", risk.reasons())).append(")");
+                }
+                prompt.append("\n");
+            }
+            prompt.append("\n");
+        }
+
+        prompt.append("Provide exactly ").append(top.size())
+                .append(" lines, one per departure in the order above, formatted 'Depart <date time> UTC: commentary' ")
+                .append("(20-25 words each): why this time is safer or riskier than the others and what to watch for on the way.");
+        return prompt.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package dk.ek.roadsai.service.ai;
+
+/// Token bucket rate limiter (refills continuously up to capacity).
+// used by AiGateway for OpenAI requests-per-minute and tokens-per-minute limits
+public class TokenBucket {
+    private final double capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    // takes n tokens if available (n is capped at capacity, so oversized requests can still pass)
+    public synchronized boolean tryAcquire(double n) {
+        refill();
+        double take = Math.min(n, capacity);
+        if (tokens >= take) {
+            tokens -= take;
+            return true;
+        }
+        return false;
+    }
+
+    // nanos until n tokens are available (0 if available now)
+    public synchronized long nanosUntil(double n) {
+        refill();
+        double missing = Math.min(n, capacity) - tokens;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
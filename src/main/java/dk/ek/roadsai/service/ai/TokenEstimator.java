@@ -0,0 +1,29 @@
+package dk.ek.roadsai.service.ai;
+
+/// Cheap prompt token estimate (no tokenizer dependency).
+// ~4 ASCII chars per token (cl100k/o200k average for English + numbers), non-ASCII (Icelandic letters, emoji) ~1 token each
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLowSurrogate(c)) {
+                continue; // counted with high surrogate
+            }
+            if (c < 128) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return (ascii + 3) / 4 + other;
+    }
+}
@@ -0,0 +1,120 @@
+package dk.ek.roadsai.service.archive;
+
+import dk.ek.roadsai.model.StationObservation;
+import dk.ek.roadsai.service.events.IngestEvent;
+import dk.ek.roadsai.service.events.IngestPipeline;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/// Observation history: every new station observation from the ingest pipeline, batch-inserted on its own thread.
+// feeds re-send their recent rows on every fetch, only rows newer than the last archived one per station are kept
+// (seeded from the table on the first batch, so a restart does not duplicate history)
+// best effort like AuditLog: a failing database drops the batch, the ring is never held up for long
+@Service
+public class ObservationArchive {
+    private static final String INSERT = "INSERT INTO observation_record (station_id, observed_at, source, "
+            + "temp_c, wind_ms, gust_ms, visibility_m, precip_type) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String LAST_ARCHIVED = "SELECT station_id, MAX(observed_at) FROM observation_record GROUP BY station_id";
+
+    private final JdbcTemplate jdbc;
+    private final IngestPipeline pipeline;
+
+    @Value("${archive.enabled:true}")
+    private boolean enabled = true;
+    @Value("${archive.batch-size:500}")
+    private int batchSize = 500;
+
+    // consumer thread only
+    private final Map<String, Instant> lastArchived = new HashMap<>();
+    private final List<Object[]> rows = new ArrayList<>();
+    private boolean seeded;
+
+    // counters for /api/admin/archive
+    private final LongAdder written = new LongAdder();
+    private final LongAdder skipped = new LongAdder(); // already archived
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public ObservationArchive(JdbcTemplate jdbc, IngestPipeline pipeline) {
+        this.jdbc = jdbc;
+        this.pipeline = pipeline;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        if (enabled) {
+            pipeline.subscribe("archive", this::onEvent);
+        }
+    }
+
+    public Map<String, Long> stats() {
+        return Map.of(
+                "written", written.sum(),
+                "skipped", skipped.sum(),
+                "batches", batches.sum(),
+                "failed", failed.sum()
+        );
+    }
+
+    // collects new rows, writes at the end of each pipeline batch (or when archive.batch-size rows are pending)
+    void onEvent(IngestEvent event, long sequence, boolean endOfBatch) {
+        if (event.type() == IngestEvent.Type.OBSERVATIONS) {
+            if (!seeded) {
+                seed();
+            }
+            Instant last = lastArchived.get(event.key());
+            for (StationObservation o : event.observations()) {
+                if (o.timestamp() == null || (last != null && !o.timestamp().isAfter(last))) {
+                    skipped.increment();
+                    continue;
+                }
+                rows.add(new Object[]{event.key(), Timestamp.from(o.timestamp()), event.source(),
+                        o.tempC(), o.windMs(), o.gustMs(), o.visibilityM(), o.precipType()});
+                last = o.timestamp(); // time-sorted
+            }
+            if (last != null) {
+                lastArchived.put(event.key(), last);
+            }
+        }
+        if (rows.size() >= batchSize || (endOfBatch && !rows.isEmpty())) {
+            write();
+        }
+    }
+
+    private void write() {
+        try {
+            jdbc.batchUpdate(INSERT, rows);
+            batches.increment();
+            written.add(rows.size());
+        } catch (Exception e) {
+            failed.add(rows.size());
+        } finally {
+            rows.clear();
+        }
+    }
+
+    // newest archived observation per station (table may not exist yet on the very first batch: retried next time)
+    private void seed() {
+        try {
+            jdbc.query(LAST_ARCHIVED, rs -> {
+                Timestamp t = rs.getTimestamp(2);
+                if (t != null) {
+                    lastArchived.merge(rs.getString(1), t.toInstant(), (a, b) -> a.isAfter(b) ? a : b);
+                }
+            });
+            seeded = true;
+        } catch (Exception e) {
+            // keep seeded = false
+        }
+    }
+}
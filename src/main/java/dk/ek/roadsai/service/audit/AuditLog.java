@@ -0,0 +1,236 @@
+package dk.ek.roadsai.service.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dk.ek.roadsai.dto.ObservationsRequest;
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.service.ai.ObservationReducer;
+import dk.ek.roadsai.service.timing.RequestTimer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/// Write-behind audit log: request thread only enqueues references, one writer thread serializes + batch inserts.
+// bounded lock-free queue (ConcurrentLinkedQueue + size counter), full queue -> audit.overflow policy, never blocks
+// writer flushes every audit.flush-ms or as soon as a batch is full, remaining entries are flushed on shutdown
+@Service
+public class AuditLog {
+    private static final String INSERT = "INSERT INTO audit_record (created_at, endpoint, request_json, "
+            + "station_facts_json, alert_ids, prompt_hash, advice_json, timings_json, total_ms) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    public enum Overflow { DROP_NEWEST, DROP_OLDEST }
+
+    // captured on the request thread, serialized on the writer thread
+    record Entry(
+            Instant at,
+            String endpoint,
+            ObservationsRequest request,
+            Map<String, ObservationReducer.StationFacts> stationFacts,
+            Map<String, List<CapAlert>> alerts,
+            String systemPrompt,
+            String userPrompt,
+            List<String> advice,
+            Map<String, Double> stagesMs,
+            long totalMs
+    ) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper json;
+
+    @Value("${audit.enabled:true}")
+    private boolean enabled = true;
+    @Value("${audit.queue-capacity:10000}")
+    private int capacity = 10000;
+    @Value("${audit.batch-size:200}")
+    private int batchSize = 200;
+    @Value("${audit.flush-ms:1000}")
+    private long flushMs = 1000;
+    @Value("${audit.overflow:DROP_NEWEST}")
+    private Overflow overflow = Overflow.DROP_NEWEST;
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean running;
+    private volatile Thread writer;
+
+    public AuditLog(JdbcTemplate jdbc, ObjectMapper json) {
+        this.jdbc = jdbc;
+        this.json = json;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = Thread.ofPlatform().daemon().name("audit-writer").start(this::writeLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Enqueue one served request (request thread, O(1), no serialization or I/O)
+     *
+     * @param endpoint     "observations" (rule-based advice), "advice" or "departure-advice" (AI advice)
+     * @param request      Request as received
+     * @param stationFacts Reduced station facts the advice was based on (null if none)
+     * @param alerts       CAP alerts per station (null if none)
+     * @param systemPrompt Prompt sent to OpenAI (null for rule-based advice), hashed by the writer
+     * @param userPrompt   Prompt sent to OpenAI (null for rule-based advice)
+     * @param advice       Advice returned to the client
+     */
+    public void record(String endpoint, ObservationsRequest request,
+                       Map<String, ObservationReducer.StationFacts> stationFacts,
+                       Map<String, List<CapAlert>> alerts,
+                       String systemPrompt, String userPrompt, List<String> advice) {
+        if (!enabled) {
+            return;
+        }
+        RequestTimer timer = RequestTimer.current();
+        offer(new Entry(Instant.now(), endpoint, request, stationFacts, alerts, systemPrompt, userPrompt, advice,
+                timer != null ? timer.stagesMs() : Map.of(), timer != null ? timer.elapsedMillis() : 0));
+    }
+
+    void offer(Entry entry) {
+        enqueued.increment();
+        int queued = size.incrementAndGet();
+        if (queued > capacity) {
+            if (overflow == Overflow.DROP_OLDEST && queue.poll() != null) {
+                size.decrementAndGet(); // oldest out, new entry already counted
+                dropped.increment();
+                queue.offer(entry);
+                return;
+            }
+            size.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        queue.offer(entry);
+        if (queued == batchSize) {
+            // batch full: flush now instead of at the next audit.flush-ms tick
+            Thread w = writer;
+            if (w != null) {
+                LockSupport.unpark(w);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        long flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMs);
+        while (running) {
+            if (size.get() < batchSize) {
+                LockSupport.parkNanos(flushNanos);
+            }
+            flush();
+        }
+        flush(); // shutdown: drain what is left
+    }
+
+    // drains the queue in batches of audit.batch-size, returns rows written
+    public int flush() {
+        int total = 0;
+        List<Object[]> rows = new ArrayList<>(batchSize);
+        Entry e;
+        while ((e = queue.poll()) != null) {
+            size.decrementAndGet();
+            try {
+                rows.add(toRow(e));
+            } catch (Exception ex) {
+                failed.increment();
+            }
+            if (rows.size() >= batchSize) {
+                total += write(rows);
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            total += write(rows);
+        }
+        return total;
+    }
+
+    private int write(List<Object[]> rows) {
+        try {
+            jdbc.batchUpdate(INSERT, rows);
+            batches.increment();
+            written.add(rows.size());
+            return rows.size();
+        } catch (Exception ex) {
+            // audit is best effort: a failing database must not back up into the request path
+            failed.add(rows.size());
+            return 0;
+        }
+    }
+
+    private Object[] toRow(Entry e) throws Exception {
+        StringJoiner alertIds = new StringJoiner(",");
+        if (e.alerts() != null) {
+            e.alerts().forEach((stationId, list) -> {
+                for (CapAlert a : list) {
+                    alertIds.add(stationId + ':' + a.severity + ':' + a.eventType);
+                }
+            });
+        }
+        String promptHash = e.userPrompt() != null ? sha256(e.systemPrompt() + "\n" + e.userPrompt()) : null;
+        return new Object[]{
+                Timestamp.from(e.at()),
+                e.endpoint(),
+                json.writeValueAsString(e.request()),
+                json.writeValueAsString(e.stationFacts()),
+                alertIds.toString(),
+                promptHash,
+                json.writeValueAsString(e.advice()),
+                json.writeValueAsString(e.stagesMs()),
+                e.totalMs()
+        };
+    }
+
+    // enqueued, dropped (overflow), written, batches, failed, queued
+    public Map<String, Long> stats() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        out.put("enqueued", enqueued.sum());
+        out.put("dropped", dropped.sum());
+        out.put("written", written.sum());
+        out.put("batches", batches.sum());
+        out.put("failed", failed.sum());
+        out.put("queued", (long) size.get());
+        return out;
+    }
+
+    private static String sha256(String s) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package dk.ek.roadsai.service.audit;
+
+import dk.ek.roadsai.model.AuditRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+/// Read side of the audit log (writes go through AuditLog's JDBC batches)
+public interface AuditRepository extends JpaRepository<AuditRecord, Long> {
+
+    List<AuditRecord> findTop50ByOrderByIdDesc();
+}
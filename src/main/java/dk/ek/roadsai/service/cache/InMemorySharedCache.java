@@ -0,0 +1,65 @@
+package dk.ek.roadsai.service.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/// Embedded SharedCache stand-in (single node, tests): same semantics as Redis, process-local.
+public class InMemorySharedCache implements SharedCache {
+
+    private final Map<String, Item> values = new ConcurrentHashMap<>();
+    private final Map<String, Item> leases = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public byte[] get(String key) {
+        Item item = values.get(key);
+        if (item == null) {
+            return null;
+        }
+        if (item.expired()) {
+            values.remove(key, item);
+            return null;
+        }
+        return item.value;
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        values.put(key, new Item(value, System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    // atomic like SET NX PX: an expired lease can be taken over
+    @Override
+    public boolean tryLease(String key, String owner, Duration ttl) {
+        Item mine = new Item(owner.getBytes(), System.currentTimeMillis() + ttl.toMillis());
+        Item current = leases.compute(key, (k, old) -> old == null || old.expired() ? mine : old);
+        return current == mine;
+    }
+
+    @Override
+    public void releaseLease(String key, String owner) {
+        leases.computeIfPresent(key, (k, old) -> owner.equals(new String(old.value)) ? null : old);
+    }
+
+    @Override
+    public void publish(String message) {
+        for (Consumer<String> listener : listeners) {
+            listener.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    private record Item(byte[] value, long expiresAt) {
+        boolean expired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package dk.ek.roadsai.service.cache;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/// Redis-backed SharedCache (cache.l2.type=redis, connection via spring.data.redis.*).
+// values: SET PX, leases: SET NX PX + compare-and-delete script, invalidation: PUBLISH/SUBSCRIBE
+public class RedisSharedCache implements SharedCache {
+    private static final String VALUE_PREFIX = "roadsai:cache:";
+    private static final String LEASE_PREFIX = "roadsai:lease:";
+    private static final String CHANNEL = "roadsai:cache:events";
+
+    // delete only if the lease is still ours (it may have expired and been taken by another replica)
+    private static final RedisScript<Long> RELEASE = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final RedisTemplate<String, byte[]> values;
+    private final StringRedisTemplate strings;
+    private final RedisMessageListenerContainer listeners;
+    private final RedisConnectionFactory connectionFactory;
+
+    public RedisSharedCache(RedisConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+        this.values = new RedisTemplate<>();
+        values.setConnectionFactory(connectionFactory);
+        values.setKeySerializer(RedisSerializer.string());
+        values.setValueSerializer(RedisSerializer.byteArray());
+        values.afterPropertiesSet();
+        this.strings = new StringRedisTemplate(connectionFactory);
+
+        this.listeners = new RedisMessageListenerContainer();
+        listeners.setConnectionFactory(connectionFactory);
+        listeners.afterPropertiesSet();
+        listeners.start();
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return values.opsForValue().get(VALUE_PREFIX + key);
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        values.opsForValue().set(VALUE_PREFIX + key, value, ttl);
+    }
+
+    @Override
+    public boolean tryLease(String key, String owner, Duration ttl) {
+        return Boolean.TRUE.equals(strings.opsForValue().setIfAbsent(LEASE_PREFIX + key, owner, ttl));
+    }
+
+    @Override
+    public void releaseLease(String key, String owner) {
+        strings.execute(RELEASE, List.of(LEASE_PREFIX + key), owner);
+    }
+
+    @Override
+    public void publish(String message) {
+        strings.convertAndSend(CHANNEL, message);
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.addMessageListener(
+                (message, pattern) -> listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+    }
+
+    @Override
+    public void close() throws Exception {
+        listeners.destroy();
+        if (connectionFactory instanceof DisposableBean factory) {
+            factory.destroy();
+        }
+    }
+}
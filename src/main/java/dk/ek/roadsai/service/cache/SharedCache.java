@@ -0,0 +1,30 @@
+package dk.ek.roadsai.service.cache;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/// Shared (L2) cache backend, one instance per deployment shared by all replicas.
+// selected with cache.l2.type: memory (embedded, single node / tests) or redis (SharedCacheConfig)
+public interface SharedCache extends AutoCloseable {
+
+    // value bytes or null if missing / expired
+    byte[] get(String key);
+
+    void put(String key, byte[] value, Duration ttl);
+
+    // true if this owner now holds the lease (only one replica refreshes a key at a time)
+    boolean tryLease(String key, String owner, Duration ttl);
+
+    // releases the lease only if still held by owner
+    void releaseLease(String key, String owner);
+
+    // broadcast to all replicas (including the sender)
+    void publish(String message);
+
+    void subscribe(Consumer<String> listener);
+
+    // called on shutdown (listener threads, connections)
+    @Override
+    default void close() throws Exception {
+    }
+}
@@ -0,0 +1,280 @@
+package dk.ek.roadsai.service.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dk.ek.roadsai.service.timing.Deadline;
+import dk.ek.roadsai.service.timing.RequestTimer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/// L2 in front of upstream loaders, shared by all replicas (providers + AiGateway keep their own maps as L1).
+// L1 miss -> local single-flight -> L2 read -> lease (one replica loads, others poll L2) -> store + invalidate other L1s
+// entries keep the original fetch + expiry time, so L1 copies expire together with the L2 entry
+// a failing L2 (e.g. Redis down) degrades to local loading, never to errors
+@Service
+public class TieredCache {
+
+    public record Loaded<V>(V value, Instant fetchedAt, Instant expiresAt) {
+    }
+
+    private final SharedCache shared;
+    private final ObjectMapper json;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${cache.l2.lease-ms:45000}")
+    private long leaseMs = 45000; // longer than the slowest loader (OpenAI incl. queueing)
+    @Value("${cache.l2.lease-wait-ms:10000}")
+    private long leaseWaitMs = 10000; // then load locally (lease holder died or is stuck)
+    @Value("${cache.l2.poll-ms:100}")
+    private long pollMs = 100;
+
+    private final Map<String, CompletableFuture<Loaded<?>>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<String>>> invalidationListeners = new ConcurrentHashMap<>();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    public TieredCache(SharedCache shared, ObjectMapper json) {
+        this.shared = shared;
+        this.json = json;
+        shared.subscribe(this::onMessage);
+    }
+
+    // called with the key when another replica stored a newer value (drop the L1 copy)
+    public void onInvalidate(String namespace, Consumer<String> listener) {
+        invalidationListeners.computeIfAbsent(namespace, n -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    // L1 hit counter (L1 lives in the caller)
+    public void l1Hit(String namespace) {
+        stats(namespace).l1Hits.increment();
+        RequestTimer.cacheL1Hit(namespace);
+    }
+
+    // fixed TTL from fetch time
+    public <V> Loaded<V> load(String namespace, String key, Duration ttl, TypeReference<V> type, Supplier<V> loader) {
+        return load(namespace, key, type, loader, (value, fetchedAt) -> fetchedAt.plus(ttl));
+    }
+
+    /**
+     * Load through L2 with cross-replica single-flight
+     *
+     * @param namespace Cache namespace (provider name)
+     * @param key       Key within namespace
+     * @param type      Value type for (de)serialization
+     * @param loader    Upstream call, null result = failure (not cached)
+     * @param expiry    Expiry time for a freshly loaded (value, fetch time), only called on the loading replica
+     * @return Value with its original fetch + expiry time, or null if loading failed
+     */
+    @SuppressWarnings("unchecked")
+    public <V> Loaded<V> load(String namespace, String key, TypeReference<V> type, Supplier<V> loader,
+                              BiFunction<V, Instant, Instant> expiry) {
+        String fullKey = namespace + ':' + key;
+
+        // local single-flight: concurrent requests on this replica share one L2 round trip / load
+        while (true) {
+            CompletableFuture<Loaded<?>> mine = new CompletableFuture<>();
+            CompletableFuture<Loaded<?>> existing = inFlight.putIfAbsent(fullKey, mine);
+            if (existing != null) {
+                try {
+                    return (Loaded<V>) Deadline.await(existing); // within our own deadline, not the loader's
+                } catch (CompletionException e) {
+                    if (!(e.getCause() instanceof Deadline.Exceeded)) {
+                        throw e;
+                    }
+                    Deadline.check(); // the loading request gave up, load it ourselves if we still have time
+                    continue;
+                }
+            }
+            try {
+                Loaded<V> result = loadShared(namespace, fullKey, type, loader, expiry);
+                mine.complete(result);
+                return result;
+            } catch (Deadline.Exceeded e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } catch (Throwable e) {
+                mine.complete(null); // incl. Errors: followers must never wait forever
+                throw e;
+            } finally {
+                inFlight.remove(fullKey, mine);
+            }
+        }
+    }
+
+    private <V> Loaded<V> loadShared(String namespace, String fullKey, TypeReference<V> type, Supplier<V> loader,
+                                     BiFunction<V, Instant, Instant> expiry) {
+        Stats s = stats(namespace);
+        Loaded<V> hit = read(fullKey, type);
+        if (hit != null) {
+            s.l2Hits.increment();
+            RequestTimer.cacheL2Hit(namespace);
+            return hit;
+        }
+
+        long deadline = System.currentTimeMillis() + leaseWaitMs;
+        boolean waited = false;
+        while (true) {
+            if (lease(fullKey)) {
+                try {
+                    // another replica may have stored it between our read and the lease
+                    hit = waited ? read(fullKey, type) : null;
+                    if (hit != null) {
+                        s.l2Hits.increment();
+                        RequestTimer.cacheL2Hit(namespace);
+                        return hit;
+                    }
+                    return loadAndStore(namespace, s, fullKey, loader, expiry);
+                } finally {
+                    release(fullKey);
+                }
+            }
+
+            // another replica is loading: wait for its result in L2
+            if (!waited) {
+                s.leaseWaits.increment();
+                waited = true;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                return loadAndStore(namespace, s, fullKey, loader, expiry);
+            }
+            Deadline.check();
+            try {
+                Thread.sleep(pollMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            hit = read(fullKey, type);
+            if (hit != null) {
+                s.l2Hits.increment();
+                RequestTimer.cacheL2Hit(namespace);
+                return hit;
+            }
+        }
+    }
+
+    private <V> Loaded<V> loadAndStore(String namespace, Stats s, String fullKey, Supplier<V> loader,
+                                       BiFunction<V, Instant, Instant> expiry) {
+        s.loads.increment();
+        RequestTimer.cacheMiss(namespace);
+        V value = loader.get();
+        if (value == null) {
+            return null;
+        }
+        Instant fetchedAt = Instant.now();
+        Loaded<V> loaded = new Loaded<>(value, fetchedAt, expiry.apply(value, fetchedAt));
+        write(fullKey, loaded);
+        return loaded;
+    }
+
+    public Map<String, Map<String, Long>> stats() {
+        Map<String, Map<String, Long>> out = new TreeMap<>();
+        stats.forEach((namespace, s) -> out.put(namespace, Map.of(
+                "l1Hits", s.l1Hits.sum(),
+                "l2Hits", s.l2Hits.sum(),
+                "loads", s.loads.sum(),
+                "leaseWaits", s.leaseWaits.sum(),
+                "invalidations", s.invalidations.sum()
+        )));
+        return out;
+    }
+
+    // value layout: 8 byte fetch time + 8 byte expiry time (epoch millis) + JSON
+    private <V> Loaded<V> read(String fullKey, TypeReference<V> type) {
+        try {
+            byte[] bytes = shared.get(fullKey);
+            if (bytes == null || bytes.length < 2 * Long.BYTES) {
+                return null;
+            }
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            Instant fetchedAt = Instant.ofEpochMilli(buf.getLong());
+            Instant expiresAt = Instant.ofEpochMilli(buf.getLong());
+            if (!Instant.now().isBefore(expiresAt)) {
+                return null;
+            }
+            V value = json.readValue(bytes, 2 * Long.BYTES, bytes.length - 2 * Long.BYTES, type);
+            return new Loaded<>(value, fetchedAt, expiresAt);
+        } catch (Exception e) {
+            return null; // missing, unreadable or L2 down = miss
+        }
+    }
+
+    private void write(String fullKey, Loaded<?> loaded) {
+        Duration ttl = Duration.between(Instant.now(), loaded.expiresAt());
+        if (ttl.toMillis() <= 0) {
+            return;
+        }
+        try {
+            byte[] body = json.writeValueAsBytes(loaded.value());
+            byte[] bytes = ByteBuffer.allocate(2 * Long.BYTES + body.length)
+                    .putLong(loaded.fetchedAt().toEpochMilli())
+                    .putLong(loaded.expiresAt().toEpochMilli())
+                    .put(body)
+                    .array();
+            shared.put(fullKey, bytes, ttl);
+            shared.publish(nodeId + '|' + fullKey);
+        } catch (Exception e) {
+            // L2 is best effort, L1 still gets the value
+        }
+    }
+
+    // L2 unreachable = no coordination possible, load locally
+    private boolean lease(String fullKey) {
+        try {
+            return shared.tryLease(fullKey, nodeId, Duration.ofMillis(leaseMs));
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    private void release(String fullKey) {
+        try {
+            shared.releaseLease(fullKey, nodeId);
+        } catch (Exception e) {
+            // expires after lease-ms
+        }
+    }
+
+    // "<node>|<namespace>:<key>", own messages ignored
+    private void onMessage(String message) {
+        int bar = message.indexOf('|');
+        int colon = message.indexOf(':', bar + 1);
+        if (bar < 0 || colon < 0 || message.substring(0, bar).equals(nodeId)) {
+            return;
+        }
+        String namespace = message.substring(bar + 1, colon);
+        String key = message.substring(colon + 1);
+        List<Consumer<String>> listeners = invalidationListeners.get(namespace);
+        if (listeners != null) {
+            stats(namespace).invalidations.increment();
+            listeners.forEach(l -> l.accept(key));
+        }
+    }
+
+    private Stats stats(String namespace) {
+        return stats.computeIfAbsent(namespace, n -> new Stats());
+    }
+
+    private static class Stats {
+        final LongAdder l1Hits = new LongAdder();
+        final LongAdder l2Hits = new LongAdder();
+        final LongAdder loads = new LongAdder();
+        final LongAdder leaseWaits = new LongAdder();
+        final LongAdder invalidations = new LongAdder();
+    }
+}
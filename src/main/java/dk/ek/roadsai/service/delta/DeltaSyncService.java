@@ -0,0 +1,208 @@
+package dk.ek.roadsai.service.delta;
+
+import dk.ek.roadsai.dto.ObservationsDelta;
+import dk.ek.roadsai.dto.ObservationsRequest;
+import dk.ek.roadsai.dto.ObservationsResponse;
+import dk.ek.roadsai.dto.StationStatus;
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.model.StationObservation;
+import dk.ek.roadsai.model.StationRisk;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/// Versioned response snapshots per (normalized) request, so refreshing clients only receive what changed.
+// a new version is minted only when the content changed, the last delta.history versions are kept per request
+// unknown / evicted version (restart, other replica, too old) -> full response
+@Service
+public class DeltaSyncService {
+
+    @Value("${delta.history:10}")
+    private int historySize = 10;
+    @Value("${delta.max-keys:1000}")
+    private int maxKeys = 1000;
+    @Value("${delta.idle-ms:1800000}")
+    private long idleMs = 1800000;
+
+    private final AtomicLong versionSeq = new AtomicLong();
+    private final Map<ObservationsRequest, History> histories = new ConcurrentHashMap<>();
+
+    private final LongAdder deltas = new LongAdder();
+    private final LongAdder fulls = new LongAdder();
+
+    private record Versioned(long version, ObservationsResponse response) {
+    }
+
+    private static class History {
+        final Deque<Versioned> versions = new ArrayDeque<>();
+        volatile Instant lastAccess = Instant.now();
+    }
+
+    /**
+     * Version of the response (existing version if nothing changed since the latest one)
+     *
+     * @param key      Normalized request (ConditionsService.key)
+     * @param response Response just computed
+     * @return Snapshot version, 0 if not tracked (history full)
+     */
+    public long publish(ObservationsRequest key, ObservationsResponse response) {
+        History h = history(key);
+        if (h == null) {
+            return 0;
+        }
+        synchronized (h) {
+            h.lastAccess = Instant.now();
+            Versioned latest = h.versions.peekLast();
+            if (latest != null && isEmpty(diff(latest.response(), response, latest.version(), latest.version()))) {
+                return latest.version();
+            }
+            long version = versionSeq.incrementAndGet();
+            h.versions.addLast(new Versioned(version, response));
+            while (h.versions.size() > historySize) {
+                h.versions.removeFirst();
+            }
+            return version;
+        }
+    }
+
+    // changes between the client's version and this response, full response if the version is not in the history
+    public ObservationsDelta sync(ObservationsRequest key, ObservationsResponse response, Long since) {
+        long version = publish(key, response);
+        ObservationsResponse base = since != null ? find(key, since) : null;
+        ObservationsDelta delta = base != null ? diff(base, response, since, version) : null;
+        if (delta == null) {
+            fulls.increment();
+            return new ObservationsDelta(version, since, true, response,
+                    null, null, null, null, null, null, null, null);
+        }
+        deltas.increment();
+        return delta;
+    }
+
+    public Map<String, Long> stats() {
+        return Map.of(
+                "deltas", deltas.sum(),
+                "full", fulls.sum(),
+                "keys", (long) histories.size(),
+                "version", versionSeq.get()
+        );
+    }
+
+    // bounded: idle histories are dropped when full, new keys untracked if still full
+    private History history(ObservationsRequest key) {
+        History h = histories.get(key);
+        if (h != null) {
+            return h;
+        }
+        if (histories.size() >= maxKeys) {
+            Instant cutoff = Instant.now().minusMillis(idleMs);
+            histories.values().removeIf(x -> x.lastAccess.isBefore(cutoff));
+            if (histories.size() >= maxKeys) {
+                return null;
+            }
+        }
+        return histories.computeIfAbsent(key, k -> new History());
+    }
+
+    private ObservationsResponse find(ObservationsRequest key, long version) {
+        History h = histories.get(key);
+        if (h == null) {
+            return null;
+        }
+        synchronized (h) {
+            for (Versioned v : h.versions) {
+                if (v.version() == version) {
+                    return v.response();
+                }
+            }
+        }
+        return null;
+    }
+
+    // null = not expressible as a delta (different route / stations), client needs the full response
+    static ObservationsDelta diff(ObservationsResponse base, ObservationsResponse now, long since, long version) {
+        if (!Objects.equals(base.stations(), now.stations()) || !Objects.equals(base.route(), now.route())
+                || size(base.advice()) != size(now.advice())) {
+            return null;
+        }
+
+        // observations keyed by station + time (values may be corrected upstream)
+        Map<String, StationObservation> before = new HashMap<>();
+        for (StationObservation o : orEmpty(base.observations())) {
+            before.put(obsKey(o), o);
+        }
+        List<StationObservation> observations = new ArrayList<>();
+        for (StationObservation o : orEmpty(now.observations())) {
+            if (!o.equals(before.remove(obsKey(o)))) {
+                observations.add(o);
+            }
+        }
+        List<String> removedObservations = new ArrayList<>(before.keySet());
+        Collections.sort(removedObservations);
+
+        // alerts (no id on CAP alerts, identity = content)
+        Map<String, List<CapAlert>> addedAlerts = new LinkedHashMap<>();
+        Map<String, List<CapAlert>> removedAlerts = new LinkedHashMap<>();
+        Set<String> stationIds = new LinkedHashSet<>();
+        if (base.alerts() != null) stationIds.addAll(base.alerts().keySet());
+        if (now.alerts() != null) stationIds.addAll(now.alerts().keySet());
+        for (String id : stationIds) {
+            List<CapAlert> was = base.alerts() != null ? orEmpty(base.alerts().get(id)) : List.of();
+            List<CapAlert> is = now.alerts() != null ? orEmpty(now.alerts().get(id)) : List.of();
+            List<CapAlert> added = minus(is, was);
+            List<CapAlert> removed = minus(was, is);
+            if (!added.isEmpty()) addedAlerts.put(id, added);
+            if (!removed.isEmpty()) removedAlerts.put(id, removed);
+        }
+
+        Map<Integer, String> advice = new TreeMap<>();
+        for (int i = 0; i < size(now.advice()); i++) {
+            if (!Objects.equals(base.advice().get(i), now.advice().get(i))) {
+                advice.put(i, now.advice().get(i));
+            }
+        }
+
+        List<StationRisk> hazards = orEmpty(now.hazards()).stream()
+                .filter(r -> !orEmpty(base.hazards()).contains(r)).toList();
+        List<StationStatus> health = orEmpty(now.stationHealth()).stream()
+                .filter(s -> !orEmpty(base.stationHealth()).contains(s)).toList();
+
+        return new ObservationsDelta(version, since, false, null,
+                observations, removedObservations, addedAlerts, removedAlerts, advice,
+                Objects.equals(base.forecasts(), now.forecasts()) ? null : now.forecasts(),
+                hazards, health);
+    }
+
+    private static boolean isEmpty(ObservationsDelta d) {
+        return d != null && d.observations().isEmpty() && d.removedObservations().isEmpty()
+                && d.addedAlerts().isEmpty() && d.removedAlerts().isEmpty() && d.advice().isEmpty()
+                && d.forecasts() == null && d.hazards().isEmpty() && d.stationHealth().isEmpty();
+    }
+
+    private static String obsKey(StationObservation o) {
+        return o.stationId() + "@" + o.timestamp();
+    }
+
+    private static List<CapAlert> minus(List<CapAlert> a, List<CapAlert> b) {
+        Set<String> keys = new HashSet<>();
+        for (CapAlert x : b) keys.add(alertKey(x));
+        return a.stream().filter(x -> !keys.contains(alertKey(x))).toList();
+    }
+
+    private static String alertKey(CapAlert a) {
+        return a.severity + "|" + a.eventType + "|" + a.headline + "|" + a.description;
+    }
+
+    private static int size(List<?> list) {
+        return list != null ? list.size() : 0;
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list != null ? list : List.of();
+    }
+}
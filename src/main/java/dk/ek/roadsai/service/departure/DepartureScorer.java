@@ -0,0 +1,162 @@
+package dk.ek.roadsai.service.departure;
+
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.service.hazard.HazardEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/// Scores candidate departure times against the stations' forecast series, flat primitive arrays only.
+// same forecast rules as HazardEngine.classify (wind caution/danger, freezing, ice = freezing + precipitation)
+// levels are RiskLevel ordinals: LOW 0, MODERATE 1, HIGH 2
+// per station: one merge walk samples the series at every candidate's ETA (candidates are ascending),
+// then a branch-light loop over the sampled columns folds the station into the per-candidate scores
+public final class DepartureScorer {
+
+    private DepartureScorer() {
+    }
+
+    /// one station's forecast series, packed once per search (NaN = value missing)
+    public static final class Series {
+        final long[] time; // epoch seconds, ascending
+        final double[] tempC;
+        final double[] windMs;
+        final double[] precipMm;
+
+        private Series(int n) {
+            time = new long[n];
+            tempC = new double[n];
+            windMs = new double[n];
+            precipMm = new double[n];
+        }
+
+        public static Series of(List<ForecastPoint> points) {
+            int n = points == null ? 0 : points.size();
+            Series s = new Series(n);
+            for (int i = 0; i < n; i++) {
+                ForecastPoint p = points.get(i);
+                s.time[i] = p.time().getEpochSecond();
+                s.tempC[i] = orNaN(p.tempC());
+                s.windMs[i] = orNaN(p.windMs());
+                s.precipMm[i] = orNaN(p.precipMm());
+            }
+            return s;
+        }
+    }
+
+    /// per-candidate results (same index as the departures), covered = every station's ETA within its forecast
+    public record Scores(
+            long[] departures,
+            int[] worst,
+            int[] flagged, // stations at MODERATE or above
+            double[] peakWindMs, // NaN if no wind forecast
+            double[] minTempC,   // NaN if no temperature forecast
+            boolean[] covered
+    ) {
+        public int size() {
+            return departures.length;
+        }
+    }
+
+    /**
+     * Score every candidate departure
+     *
+     * @param departures Candidate departures, epoch seconds, ascending
+     * @param offsetSec  Per station: driving time from departure to the station (ETA = departure + offset)
+     * @param series     Per station: forecast series (same order as offsetSec)
+     * @param t          HazardEngine forecast thresholds
+     */
+    public static Scores score(long[] departures, long[] offsetSec, Series[] series, HazardEngine.ForecastThresholds t) {
+        int n = departures.length;
+        int[] worst = new int[n];
+        int[] flagged = new int[n];
+        double[] peakWind = new double[n];
+        double[] minTemp = new double[n];
+        boolean[] covered = new boolean[n];
+        Arrays.fill(peakWind, Double.NaN);
+        Arrays.fill(minTemp, Double.NaN);
+        Arrays.fill(covered, true);
+
+        // sampled columns, reused for every station
+        double[] temp = new double[n];
+        double[] wind = new double[n];
+        double[] precip = new double[n];
+
+        for (int s = 0; s < series.length; s++) {
+            sample(series[s], departures, offsetSec[s], temp, wind, precip, covered);
+
+            for (int c = 0; c < n; c++) {
+                double w = wind[c];
+                double tc = temp[c];
+                // NaN compares false: a missing value raises nothing
+                int windLevel = w >= t.windDangerMs() ? 2 : (w >= t.windCautionMs() ? 1 : 0);
+                int iceLevel = tc <= t.iceMaxTempC() ? (precip[c] >= t.iceMinPrecipMm() ? 2 : (tc <= 0 ? 1 : 0)) : 0;
+                int level = Math.max(windLevel, iceLevel);
+                worst[c] = Math.max(worst[c], level);
+                flagged[c] += level > 0 ? 1 : 0;
+                peakWind[c] = w > peakWind[c] || Double.isNaN(peakWind[c]) ? w : peakWind[c];
+                minTemp[c] = tc < minTemp[c] || Double.isNaN(minTemp[c]) ? tc : minTemp[c];
+            }
+        }
+        return new Scores(departures, worst, flagged, peakWind, minTemp, covered);
+    }
+
+    /// covered candidates, best first: lowest worst level, fewest flagged stations, lowest peak wind, earliest
+    public static List<Integer> rank(Scores s) {
+        List<Integer> order = new ArrayList<>(s.size());
+        for (int c = 0; c < s.size(); c++) {
+            if (s.covered()[c]) {
+                order.add(c);
+            }
+        }
+        order.sort(Comparator.<Integer>comparingInt(c -> s.worst()[c])
+                .thenComparingInt(c -> s.flagged()[c])
+                .thenComparingDouble(c -> Double.isNaN(s.peakWindMs()[c]) ? 0 : s.peakWindMs()[c])
+                .thenComparingLong(c -> s.departures()[c]));
+        return order;
+    }
+
+    // values at departure + offset for every candidate, interpolated as ForecastSampler.interpolate
+    // (before the series = first step, beyond the horizon = not covered, precip of the step we are inside)
+    private static void sample(Series s, long[] departures, long offset,
+                               double[] temp, double[] wind, double[] precip, boolean[] covered) {
+        int n = departures.length;
+        int last = s.time.length - 1;
+        int j = 0; // first step at or after eta, only moves forward
+        for (int c = 0; c < n; c++) {
+            long eta = departures[c] + offset;
+            if (last < 0 || eta > s.time[last]) {
+                covered[c] = false;
+                temp[c] = wind[c] = precip[c] = Double.NaN;
+                continue;
+            }
+            while (s.time[j] < eta) {
+                j++;
+            }
+            if (j == 0 || s.time[j] == eta) {
+                temp[c] = s.tempC[j];
+                wind[c] = s.windMs[j];
+                precip[c] = s.precipMm[j];
+                continue;
+            }
+            int b = j - 1;
+            double w = (double) (eta - s.time[b]) / (s.time[j] - s.time[b]);
+            temp[c] = lerp(s.tempC[b], s.tempC[j], w);
+            wind[c] = lerp(s.windMs[b], s.windMs[j], w);
+            precip[c] = s.precipMm[b];
+        }
+    }
+
+    // NaN-safe linear interpolation (falls back to whichever side has a value)
+    private static double lerp(double a, double b, double w) {
+        if (Double.isNaN(a)) return b;
+        if (Double.isNaN(b)) return a;
+        return a + (b - a) * w;
+    }
+
+    private static double orNaN(Double v) {
+        return v != null ? v : Double.NaN;
+    }
+}
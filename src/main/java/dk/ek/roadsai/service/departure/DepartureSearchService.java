@@ -0,0 +1,255 @@
+package dk.ek.roadsai.service.departure;
+
+import dk.ek.roadsai.dto.DepartureSchedule;
+import dk.ek.roadsai.dto.ObservationsRequest;
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.model.RiskLevel;
+import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.model.StationRisk;
+import dk.ek.roadsai.service.ForecastSampler;
+import dk.ek.roadsai.service.RouteService;
+import dk.ek.roadsai.service.StationService;
+import dk.ek.roadsai.service.geo.Polyline;
+import dk.ek.roadsai.service.geo.RouteGeometryService;
+import dk.ek.roadsai.service.hazard.HazardEngine;
+import dk.ek.roadsai.service.provider.YrNoProvider;
+import dk.ek.roadsai.service.timing.Deadline;
+import dk.ek.roadsai.service.timing.RequestTimer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/// "When in the next 48 hours is it safest to leave?"
+// candidate departures every departure.step-minutes over departure.horizon-hours, each scored with the forecast at
+// every corridor station's ETA (DepartureScorer, primitive arrays over the cached yr.no series)
+// only the top candidates get the full ForecastSampler + HazardEngine treatment (forecasts, reasons, advice)
+// current observations and CAP alerts are not used: they say little about a departure hours ahead
+@Service
+public class DepartureSearchService {
+    private final RouteService routeService;
+    private final StationService stationService;
+    private final RouteGeometryService routeGeometry;
+    private final YrNoProvider yrNoProvider;
+    private final ForecastSampler forecastSampler;
+    private final HazardEngine hazardEngine;
+
+    @Value("${departure.horizon-hours:48}")
+    private int horizonHours = 48;
+    @Value("${departure.step-minutes:30}")
+    private int stepMinutes = 30;
+    @Value("${departure.min-step-minutes:10}")
+    private int minStepMinutes = 10;
+    @Value("${departure.top:3}")
+    private int top = 3;
+    @Value("${forecast.avg-speed-kmh:70}")
+    private double defaultSpeedKmh = 70;
+
+    // counters for /api/admin/departures
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder scoreNanos = new LongAdder();
+
+    public DepartureSearchService(
+            RouteService routeService,
+            StationService stationService,
+            RouteGeometryService routeGeometry,
+            YrNoProvider yrNoProvider,
+            ForecastSampler forecastSampler,
+            HazardEngine hazardEngine) {
+        this.routeService = routeService;
+        this.stationService = stationService;
+        this.routeGeometry = routeGeometry;
+        this.yrNoProvider = yrNoProvider;
+        this.forecastSampler = forecastSampler;
+        this.hazardEngine = hazardEngine;
+    }
+
+    /**
+     * Rank candidate departures by forecast hazards along the route
+     *
+     * @param request     Route (from/to), earliest departure (forecastTime, null = now) and avgSpeedKmh
+     * @param hours       Search horizon (null = departure.horizon-hours, capped to it)
+     * @param stepMinutes Candidate spacing (null = departure.step-minutes, at least departure.min-step-minutes)
+     */
+    public DepartureSchedule search(ObservationsRequest request, Integer hours, Integer stepMinutes) {
+        searches.increment();
+        String from = request.from().trim().toUpperCase(Locale.ROOT);
+        String to = request.to().trim().toUpperCase(Locale.ROOT);
+        double speed = request.avgSpeedKmh() != null && request.avgSpeedKmh() > 0 ? request.avgSpeedKmh() : defaultSpeedKmh;
+        int step = Math.max(minStepMinutes, stepMinutes != null ? stepMinutes : this.stepMinutes);
+        int horizon = Math.min(horizonHours, hours != null && hours > 0 ? hours : horizonHours);
+
+        // route, stations and driving time to each station (same ETA model as ForecastSampler)
+        List<Station> corridor;
+        Polyline road;
+        long[] offsetSec;
+        try (var t = RequestTimer.stage("corridor")) {
+            corridor = stationService.corridorStations(routeService.getCoordinates(from, to));
+            road = routeGeometry.polyline(from, to);
+            offsetSec = new long[corridor.size()];
+            for (int i = 0; i < corridor.size(); i++) {
+                Station s = corridor.get(i);
+                offsetSec[i] = Math.round(road.distanceAlongKm(s.latitude(), s.longitude()) / speed * 3600);
+            }
+        }
+
+        // forecast series per station (one fetch per yr.no grid cell, cells in parallel)
+        DepartureScorer.Series[] series;
+        Deadline.check();
+        try (var t = RequestTimer.stage("forecast")) {
+            series = fetchSeries(corridor);
+        }
+
+        // candidates: earliest departure rounded up to the step, then every step until the horizon
+        long stepSec = step * 60L;
+        long first = Math.floorDiv(earliest(request).getEpochSecond() + stepSec - 1, stepSec) * stepSec;
+        int n = (int) (horizon * 3600L / stepSec) + 1;
+        long[] departures = new long[n];
+        for (int c = 0; c < n; c++) {
+            departures[c] = first + c * stepSec;
+        }
+
+        DepartureScorer.Scores scores;
+        List<Integer> order;
+        Deadline.check();
+        try (var t = RequestTimer.stage("score")) {
+            long started = System.nanoTime();
+            scores = DepartureScorer.score(departures, offsetSec, series, hazardEngine.forecastThresholds());
+            order = DepartureScorer.rank(scores);
+            scoreNanos.add(System.nanoTime() - started);
+        }
+        candidates.add(n);
+
+        long tripSec = Math.round(road.lengthKm() / speed * 3600);
+        List<DepartureSchedule.Option> ranked = new ArrayList<>(order.size());
+        for (int c : order) {
+            ranked.add(option(scores, c, tripSec));
+        }
+
+        // full evaluation of the top candidates only
+        List<DepartureSchedule.Top> best = new ArrayList<>();
+        List<String> advice = new ArrayList<>();
+        Deadline.check();
+        try (var t = RequestTimer.stage("top")) {
+            for (DepartureSchedule.Option option : ranked.subList(0, Math.min(top, ranked.size()))) {
+                List<ForecastPoint> forecasts = forecastSampler.sampleAlongRoute(road, corridor, option.departure(), speed);
+                List<StationRisk> hazards = hazardEngine.evaluate(Map.of(), corridor, forecasts);
+                best.add(new DepartureSchedule.Top(option, forecasts, hazards));
+                advice.add(advice(option, hazards));
+            }
+        }
+        return new DepartureSchedule(from, to, step, n, ranked, best, advice);
+    }
+
+    public Map<String, Long> stats() {
+        long count = searches.sum();
+        return Map.of(
+                "searches", count,
+                "candidates", candidates.sum(),
+                "avgScoreMicros", count == 0 ? 0 : scoreNanos.sum() / count / 1000
+        );
+    }
+
+    // forecastTime if given and parseable, otherwise now
+    private static Instant earliest(ObservationsRequest request) {
+        Instant now = Instant.now();
+        if (request.forecastTime() != null && !request.forecastTime().isBlank()) {
+            try {
+                Instant requested = Instant.parse(request.forecastTime().trim());
+                return requested.isAfter(now) ? requested : now;
+            } catch (DateTimeParseException e) {
+                // search from now
+            }
+        }
+        return now;
+    }
+
+    // stations in the same yr.no grid cell share one series, cells are fetched concurrently (cold cache)
+    // the fetches run under the request's deadline (re-bound on each thread), a request that gives up stops them
+    private DepartureScorer.Series[] fetchSeries(List<Station> corridor) {
+        Map<String, Station> cells = new LinkedHashMap<>();
+        for (Station s : corridor) {
+            cells.putIfAbsent(yrNoProvider.gridKey(s.latitude(), s.longitude()), s);
+        }
+        Map<String, DepartureScorer.Series> byCell = new LinkedHashMap<>();
+        Deadline deadline = Deadline.current();
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        Map<String, CompletableFuture<List<ForecastPoint>>> pending = new LinkedHashMap<>();
+        try {
+            for (var cell : cells.entrySet()) {
+                Station s = cell.getValue();
+                pending.put(cell.getKey(), CompletableFuture.supplyAsync(
+                        () -> Deadline.with(deadline, () -> yrNoProvider.fetchSeries(s.latitude(), s.longitude())), pool));
+            }
+            for (var cell : pending.entrySet()) {
+                List<ForecastPoint> points;
+                try {
+                    points = Deadline.await(cell.getValue());
+                } catch (CompletionException | CancellationException e) {
+                    Deadline.check(); // failed because the request gave up, not the cell
+                    points = List.of(); // no forecast = candidates not covered
+                }
+                byCell.put(cell.getKey(), DepartureScorer.Series.of(points));
+            }
+        } catch (Deadline.Exceeded e) {
+            pending.values().forEach(f -> f.cancel(true));
+            throw e;
+        } finally {
+            pool.shutdownNow(); // all done unless the deadline ran out: interrupt what is left
+        }
+        DepartureScorer.Series[] out = new DepartureScorer.Series[corridor.size()];
+        for (int i = 0; i < corridor.size(); i++) {
+            Station s = corridor.get(i);
+            out[i] = byCell.get(yrNoProvider.gridKey(s.latitude(), s.longitude()));
+        }
+        return out;
+    }
+
+    private static DepartureSchedule.Option option(DepartureScorer.Scores s, int c, long tripSec) {
+        Instant departure = Instant.ofEpochSecond(s.departures()[c]);
+        return new DepartureSchedule.Option(
+                departure,
+                departure.plusSeconds(tripSec),
+                RiskLevel.values()[s.worst()[c]],
+                s.flagged()[c],
+                orNull(s.peakWindMs()[c]),
+                orNull(s.minTempC()[c]));
+    }
+
+    // "Depart 2025-11-05 06:30 UTC (LOW): no forecast hazards along the route" (Iceland is on UTC all year)
+    private static String advice(DepartureSchedule.Option option, List<StationRisk> hazards) {
+        StringBuilder sb = new StringBuilder("Depart ").append(DepartureSchedule.dateTime(option.departure()))
+                .append(" UTC (").append(option.level()).append("): ");
+        int listed = 0;
+        for (StationRisk risk : hazards) {
+            if (risk.level() == RiskLevel.LOW || listed == 3) {
+                continue;
+            }
+            if (listed++ > 0) {
+                sb.append("; ");
+            }
+            sb.append(risk.stationName()).append(' ').append(String.join(", ", risk.reasons()));
+        }
+        if (listed == 0) {
+            sb.append("no forecast hazards along the route");
+        }
+        return sb.toString();
+    }
+
+    private static Double orNull(double v) {
+        return Double.isNaN(v) ? null : Math.round(v * 10) / 10.0;
+    }
+}
@@ -0,0 +1,69 @@
+package dk.ek.roadsai.service.events;
+
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.model.StationObservation;
+
+import java.time.Instant;
+import java.util.List;
+
+/// One normalized upstream fetch as published by a provider (a RingBuffer slot, overwritten in place).
+// consumers may keep items() (immutable lists) but not the event itself
+public final class IngestEvent {
+
+    public enum Type {
+        OBSERVATIONS, // key = station id ("imo:1475", "veg:31674")
+        ALERTS,       // key = "lat,lon" of the queried station location
+        FORECAST      // key = yr.no grid cell "lat,lon"
+    }
+
+    private Type type;
+    private String source;
+    private String key;
+    private List<?> items = List.of();
+    private Instant publishedAt;
+
+    void set(Type type, String source, String key, List<?> items) {
+        this.type = type;
+        this.source = source;
+        this.key = key;
+        this.items = items;
+        this.publishedAt = Instant.now();
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public List<?> items() {
+        return items;
+    }
+
+    public Instant publishedAt() {
+        return publishedAt;
+    }
+
+    // time-sorted observations of one station (empty for other types)
+    @SuppressWarnings("unchecked")
+    public List<StationObservation> observations() {
+        return type == Type.OBSERVATIONS ? (List<StationObservation>) items : List.of();
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<CapAlert> alerts() {
+        return type == Type.ALERTS ? (List<CapAlert>) items : List.of();
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<ForecastPoint> forecasts() {
+        return type == Type.FORECAST ? (List<ForecastPoint>) items : List.of();
+    }
+}
@@ -0,0 +1,60 @@
+package dk.ek.roadsai.service.events;
+
+import dk.ek.roadsai.model.StationObservation;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/// Ingest aggregator: events, items and data freshness per upstream source (ingest pipeline consumer).
+// state is only touched on the consumer thread, stats() reads the snapshot published at the end of each batch
+@Service
+public class IngestMetrics {
+    private final IngestPipeline pipeline;
+
+    // consumer thread only
+    private final Map<String, long[]> counts = new HashMap<>(); // source -> {events, items}
+    private final Map<String, Instant> newest = new HashMap<>(); // source -> newest observation
+    private volatile Map<String, Long> snapshot = Map.of();
+    private volatile Map<String, Long> newestSnapshot = Map.of(); // source -> epoch seconds
+
+    public IngestMetrics(IngestPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        pipeline.subscribe("metrics", this::onEvent);
+    }
+
+    // "<source>.events", "<source>.items", "<source>.newestAgeSeconds" (age of the newest observation seen)
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new HashMap<>(snapshot);
+        long now = Instant.now().getEpochSecond();
+        newestSnapshot.forEach((source, epoch) -> stats.put(source + ".newestAgeSeconds", now - epoch));
+        return stats;
+    }
+
+    private void onEvent(IngestEvent event, long sequence, boolean endOfBatch) {
+        long[] c = counts.computeIfAbsent(event.source(), k -> new long[2]);
+        c[0]++;
+        c[1] += event.items().size();
+        if (event.type() == IngestEvent.Type.OBSERVATIONS && !event.observations().isEmpty()) {
+            StationObservation last = event.observations().getLast(); // time-sorted
+            newest.merge(event.source(), last.timestamp(), (a, b) -> a.isAfter(b) ? a : b);
+        }
+        if (endOfBatch) {
+            Map<String, Long> s = new HashMap<>();
+            counts.forEach((source, v) -> {
+                s.put(source + ".events", v[0]);
+                s.put(source + ".items", v[1]);
+            });
+            Map<String, Long> n = new HashMap<>();
+            newest.forEach((source, t) -> n.put(source, t.getEpochSecond()));
+            snapshot = s;
+            newestSnapshot = n;
+        }
+    }
+}
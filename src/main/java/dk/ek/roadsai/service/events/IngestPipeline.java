@@ -0,0 +1,94 @@
+package dk.ek.roadsai.service.events;
+
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.model.StationObservation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/// In-process event pipeline for upstream data: providers publish each newly fetched, normalized result once,
+/// consumers (aggregation, archive, push) process it on their own threads instead of on the request path.
+// one preallocated RingBuffer of IngestEvent slots, every consumer sees every event, in batches
+// backpressure: a full ring holds the publishing provider for at most ingest.events.publish-wait-ms, then drops
+// (the request that fetched the data never waits on a slow consumer for longer than that)
+@Service
+public class IngestPipeline {
+
+    @Value("${ingest.events.enabled:true}")
+    private boolean enabled = true;
+    @Value("${ingest.events.capacity:4096}")
+    private int capacity = 4096;
+    @Value("${ingest.events.publish-wait-ms:2}")
+    private long publishWaitMs = 2;
+    @Value("${ingest.events.batch-size:256}")
+    private int batchSize = 256;
+    @Value("${ingest.events.idle-ms:5}")
+    private long idleMs = 5;
+
+    private RingBuffer<IngestEvent> ring;
+
+    @PostConstruct
+    void start() {
+        ring = new RingBuffer<>(capacity, IngestEvent::new);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        ring.close();
+    }
+
+    // time-sorted observations of one station, as cached by the provider
+    public void publishObservations(String source, String stationId, List<StationObservation> observations) {
+        publish(IngestEvent.Type.OBSERVATIONS, source, stationId, observations);
+    }
+
+    public void publishAlerts(String source, String location, List<CapAlert> alerts) {
+        publish(IngestEvent.Type.ALERTS, source, location, alerts);
+    }
+
+    public void publishForecast(String source, String gridCell, List<ForecastPoint> series) {
+        publish(IngestEvent.Type.FORECAST, source, gridCell, series);
+    }
+
+    /**
+     * Register a consumer (own thread, sees events published from now on)
+     *
+     * @param name    Consumer name (thread "ingest-<name>", stats)
+     * @param handler Called per event, endOfBatch on the last event of a batch (flush point)
+     */
+    public void subscribe(String name, RingBuffer.Handler<IngestEvent> handler) {
+        if (enabled) {
+            ring.subscribe(name, batchSize, TimeUnit.MILLISECONDS.toNanos(idleMs), handler);
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new HashMap<>();
+        stats.put("capacity", (long) ring.capacity());
+        stats.put("published", ring.published());
+        stats.put("waited", ring.waited()); // publishes that found the ring full
+        stats.put("dropped", ring.dropped());
+        for (var s : ring.subscriptions()) {
+            stats.put(s.name() + ".processed", s.processed());
+            stats.put(s.name() + ".batches", s.batches());
+            stats.put(s.name() + ".failed", s.failed());
+            stats.put(s.name() + ".lag", s.lag());
+        }
+        return stats;
+    }
+
+    private void publish(IngestEvent.Type type, String source, String key, List<?> items) {
+        if (!enabled || items == null) {
+            return;
+        }
+        List<?> immutable = List.copyOf(items); // consumers keep the list after the slot is reused
+        ring.publish(e -> e.set(type, source, key, immutable), TimeUnit.MILLISECONDS.toNanos(publishWaitMs));
+    }
+}
@@ -0,0 +1,232 @@
+package dk.ek.roadsai.service.events;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/// Preallocated multi-producer ring with independent batching consumers (no locks, slots allocated once).
+// slots are created once and overwritten in place, a publisher fills the slot it claimed
+// producers claim the next sequence with a CAS on the cursor, then mark the slot published (its sequence number)
+// a slot is reused only after every consumer has passed it: a full ring makes producers wait (bounded), then drop
+// each consumer runs on its own thread, sees every published event in order and gets runs of up to batchSize
+// events (endOfBatch on the last one), the slots are released when the handler returns
+public final class RingBuffer<E> {
+
+    /// consumer callback, runs on the consumer's thread (must not keep the slot, only what it copied out of it)
+    @FunctionalInterface
+    public interface Handler<E> {
+        void onEvent(E event, long sequence, boolean endOfBatch) throws Exception;
+    }
+
+    private static final long WAIT_PARK_NANOS = 20_000; // producer re-checks a full ring every ~20 µs
+
+    private final Object[] slots;
+    private final AtomicLongArray published; // sequence last published into each slot
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong(-1); // last claimed sequence
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile long gatingCache = -1; // slowest consumer, last time we looked
+
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+
+    /**
+     * @param capacity Slots (rounded up to a power of two)
+     * @param factory  Creates the slot objects once
+     */
+    public RingBuffer(int capacity, Supplier<E> factory) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Object[size];
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = factory.get();
+            published.set(i, -1);
+        }
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Claim the next slot, fill it and publish it
+     *
+     * @param translator   Writes the event into the claimed slot (keep it short, the slot is not visible until it returns)
+     * @param maxWaitNanos How long to wait for the slowest consumer when the ring is full
+     * @return false if the ring stayed full (event dropped)
+     */
+    @SuppressWarnings("unchecked")
+    public boolean publish(Consumer<E> translator, long maxWaitNanos) {
+        long next;
+        long waitUntil = 0;
+        while (true) {
+            long current = cursor.get();
+            next = current + 1;
+            long wrapPoint = next - slots.length;
+            if (wrapPoint > gatingCache) {
+                long slowest = slowest(current);
+                gatingCache = slowest;
+                if (wrapPoint > slowest) {
+                    // full: backpressure, bounded so the publishing request never stalls for long
+                    long now = System.nanoTime();
+                    if (waitUntil == 0) {
+                        waitUntil = now + maxWaitNanos;
+                        waited.increment();
+                    }
+                    if (now - waitUntil >= 0) {
+                        dropped.increment();
+                        return false;
+                    }
+                    LockSupport.parkNanos(WAIT_PARK_NANOS);
+                    continue;
+                }
+            }
+            if (cursor.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        int index = (int) (next & mask);
+        try {
+            translator.accept((E) slots[index]);
+        } finally {
+            published.lazySet(index, next); // consumers must never wait on a claimed slot
+        }
+        publishedCount.increment();
+        return true;
+    }
+
+    /**
+     * Start a consumer thread that sees every event published from now on
+     *
+     * @param name      Thread name suffix + stats key
+     * @param batchSize Max events per batch (slots are released per batch)
+     * @param idleNanos Park time when there is nothing to consume
+     */
+    public Subscription subscribe(String name, int batchSize, long idleNanos, Handler<E> handler) {
+        Subscription s = new Subscription(name, Math.max(1, batchSize), idleNanos, handler);
+        s.sequence.set(cursor.get());
+        subscriptions.add(s);
+        s.thread = Thread.ofPlatform().daemon().name("ingest-" + name).start(s::run);
+        return s;
+    }
+
+    /// stop all consumers, what is already published is still handed to them
+    public void close() throws InterruptedException {
+        for (Subscription s : subscriptions) {
+            s.running = false;
+        }
+        for (Subscription s : subscriptions) {
+            s.thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    public long published() {
+        return publishedCount.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long waited() {
+        return waited.sum();
+    }
+
+    public List<Subscription> subscriptions() {
+        return List.copyOf(subscriptions);
+    }
+
+    // slowest consumer's sequence (no consumers = nothing to wait for)
+    private long slowest(long current) {
+        long min = current;
+        for (Subscription s : subscriptions) {
+            min = Math.min(min, s.sequence.get());
+        }
+        return min;
+    }
+
+    public final class Subscription {
+        private final String name;
+        private final int batchSize;
+        private final long idleNanos;
+        private final Handler<E> handler;
+        private final AtomicLong sequence = new AtomicLong(-1); // last consumed
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private volatile boolean running = true;
+        private Thread thread;
+
+        private Subscription(String name, int batchSize, long idleNanos, Handler<E> handler) {
+            this.name = name;
+            this.batchSize = batchSize;
+            this.idleNanos = idleNanos;
+            this.handler = handler;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        // published but not yet consumed
+        public long lag() {
+            return Math.max(0, cursor.get() - sequence.get());
+        }
+
+        public long processed() {
+            return processed.sum();
+        }
+
+        public long batches() {
+            return batches.sum();
+        }
+
+        public long failed() {
+            return failed.sum();
+        }
+
+        private void run() {
+            while (running) {
+                if (!consumeBatch()) {
+                    LockSupport.parkNanos(idleNanos);
+                }
+            }
+            while (consumeBatch()) {
+                // shutdown: drain what is published
+            }
+        }
+
+        // one run of consecutive published events, false if there was none
+        @SuppressWarnings("unchecked")
+        private boolean consumeBatch() {
+            long next = sequence.get() + 1;
+            long limit = Math.min(cursor.get(), next + batchSize - 1);
+            long last = next - 1;
+            while (last < limit && published.get((int) ((last + 1) & mask)) == last + 1) {
+                last++;
+            }
+            if (last < next) {
+                return false;
+            }
+            for (long seq = next; seq <= last; seq++) {
+                try {
+                    handler.onEvent((E) slots[(int) (seq & mask)], seq, seq == last);
+                } catch (Exception e) {
+                    failed.increment(); // a failing consumer must not stall the ring
+                }
+            }
+            processed.add(last - next + 1);
+            batches.increment();
+            sequence.set(last); // release the slots to producers
+            return true;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package dk.ek.roadsai.service.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/// Immutable route polyline as packed primitive arrays (no boxing) + cumulative road distance per vertex.
+// distance-along-route, Douglas–Peucker simplification and Google encoded polyline output
+public final class Polyline {
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    // local equirectangular projection for simplification (metres per degree latitude)
+    private static final double M_PER_DEG = 111_320.0;
+
+    private final double[] lat;
+    private final double[] lon;
+    private final double[] cumKm; // road distance from the first vertex
+
+    private Polyline(double[] lat, double[] lon) {
+        this.lat = lat;
+        this.lon = lon;
+        this.cumKm = new double[lat.length];
+        for (int i = 1; i < lat.length; i++) {
+            cumKm[i] = cumKm[i - 1] + haversineKm(lat[i - 1], lon[i - 1], lat[i], lon[i]);
+        }
+    }
+
+    public static Polyline of(double[] lat, double[] lon) {
+        if (lat.length != lon.length) {
+            throw new IllegalArgumentException("lat/lon length mismatch");
+        }
+        return new Polyline(lat.clone(), lon.clone());
+    }
+
+    // from the [lon, lat] lists used in API responses
+    public static Polyline ofLonLat(List<List<Double>> lonLat) {
+        double[] lat = new double[lonLat.size()];
+        double[] lon = new double[lonLat.size()];
+        for (int i = 0; i < lat.length; i++) {
+            lon[i] = lonLat.get(i).get(0);
+            lat[i] = lonLat.get(i).get(1);
+        }
+        return new Polyline(lat, lon);
+    }
+
+    public int size() {
+        return lat.length;
+    }
+
+    public double lat(int i) {
+        return lat[i];
+    }
+
+    public double lon(int i) {
+        return lon[i];
+    }
+
+    public double lengthKm() {
+        return cumKm.length == 0 ? 0 : cumKm[cumKm.length - 1];
+    }
+
+    public double distanceAlongKm(int i) {
+        return cumKm[i];
+    }
+
+    // road distance from the start to the vertex nearest to a point (e.g. a station)
+    public double distanceAlongKm(double pointLat, double pointLon) {
+        return cumKm[nearestIndex(pointLat, pointLon)];
+    }
+
+    public int nearestIndex(double pointLat, double pointLon) {
+        double cos = Math.cos(Math.toRadians(pointLat));
+        int nearest = 0;
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < lat.length; i++) {
+            double dy = lat[i] - pointLat;
+            double dx = (lon[i] - pointLon) * cos;
+            double d = dx * dx + dy * dy; // ranking only, no trig per vertex
+            if (d < best) {
+                best = d;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    public Polyline reversed() {
+        int n = lat.length;
+        double[] rLat = new double[n];
+        double[] rLon = new double[n];
+        for (int i = 0; i < n; i++) {
+            rLat[i] = lat[n - 1 - i];
+            rLon[i] = lon[n - 1 - i];
+        }
+        return new Polyline(rLat, rLon);
+    }
+
+    /**
+     * Douglas–Peucker simplification (iterative, explicit index stack)
+     *
+     * @param toleranceM Max perpendicular deviation in metres
+     * @return Simplified polyline (first and last vertex always kept)
+     */
+    public Polyline simplify(double toleranceM) {
+        int n = lat.length;
+        if (n < 3 || toleranceM <= 0) {
+            return this;
+        }
+        double cos = Math.cos(Math.toRadians(lat[n / 2]));
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = lon[i] * cos * M_PER_DEG;
+            y[i] = lat[i] * M_PER_DEG;
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int[] stack = new int[2 * n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        double tol2 = toleranceM * toleranceM;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            int index = -1;
+            double max = tol2;
+            for (int i = first + 1; i < last; i++) {
+                double d = segmentDistance2(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (d > max) {
+                    max = d;
+                    index = i;
+                }
+            }
+            if (index >= 0) {
+                keep[index] = true;
+                stack[top++] = first;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = last;
+            }
+        }
+
+        int count = 0;
+        for (boolean k : keep) if (k) count++;
+        double[] sLat = new double[count];
+        double[] sLon = new double[count];
+        for (int i = 0, j = 0; i < n; i++) {
+            if (keep[i]) {
+                sLat[j] = lat[i];
+                sLon[j++] = lon[i];
+            }
+        }
+        return new Polyline(sLat, sLon);
+    }
+
+    // Google encoded polyline (lat, lon order, 1e-5 precision)
+    public String encode() {
+        StringBuilder sb = new StringBuilder(lat.length * 8);
+        long prevLat = 0;
+        long prevLon = 0;
+        for (int i = 0; i < lat.length; i++) {
+            long eLat = Math.round(lat[i] * 1e5);
+            long eLon = Math.round(lon[i] * 1e5);
+            encodeValue(eLat - prevLat, sb);
+            encodeValue(eLon - prevLon, sb);
+            prevLat = eLat;
+            prevLon = eLon;
+        }
+        return sb.toString();
+    }
+
+    public static Polyline decode(String encoded) {
+        List<double[]> points = new ArrayList<>();
+        int index = 0;
+        long latE5 = 0;
+        long lonE5 = 0;
+        while (index < encoded.length()) {
+            long[] v = new long[2];
+            for (int k = 0; k < 2; k++) {
+                long result = 0;
+                int shift = 0;
+                int b;
+                do {
+                    b = encoded.charAt(index++) - 63;
+                    result |= (long) (b & 0x1f) << shift;
+                    shift += 5;
+                } while (b >= 0x20);
+                v[k] = (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+            }
+            latE5 += v[0];
+            lonE5 += v[1];
+            points.add(new double[]{latE5 / 1e5, lonE5 / 1e5});
+        }
+        double[] lat = new double[points.size()];
+        double[] lon = new double[points.size()];
+        for (int i = 0; i < lat.length; i++) {
+            lat[i] = points.get(i)[0];
+            lon[i] = points.get(i)[1];
+        }
+        return new Polyline(lat, lon);
+    }
+
+    // [lon, lat] lists (API response format)
+    public List<List<Double>> toLonLat() {
+        List<List<Double>> out = new ArrayList<>(lat.length);
+        for (int i = 0; i < lat.length; i++) {
+            out.add(List.of(lon[i], lat[i]));
+        }
+        return out;
+    }
+
+    private static void encodeValue(long v, StringBuilder sb) {
+        v = v < 0 ? ~(v << 1) : v << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+
+    // squared distance from p to segment a-b (projected metres)
+    private static double segmentDistance2(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double len2 = dx * dx + dy * dy;
+        double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / len2));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+
+    private static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double p1 = Math.toRadians(lat1);
+        double p2 = Math.toRadians(lat2);
+        double dLat = p2 - p1;
+        double dLon = Math.toRadians(lon2 - lon1);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(p1) * Math.cos(p2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(h));
+    }
+}
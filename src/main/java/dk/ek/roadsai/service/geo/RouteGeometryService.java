@@ -0,0 +1,159 @@
+package dk.ek.roadsai.service.geo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dk.ek.roadsai.dto.RouteGeometry;
+import dk.ek.roadsai.service.RouteService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/// Road geometry RVK ↔ IFJ from a GeoJSON file, simplified once per zoom level at startup.
+// LineString / MultiLineString features (lon, lat) joined in file order, oriented south -> north (RVK -> IFJ)
+// route.geometry.path on disk (mounted / replaced without a rebuild), else route.geometry.resource bundled in the jar
+// neither -> RouteService waypoints (source "waypoints"), the frontend then routes them itself
+// no road file ships with the repo, so that is the default until one is provided (README "Road geometry")
+@Service
+public class RouteGeometryService {
+    // Web Mercator ground resolution at zoom 0 (m/px at the equator)
+    private static final double M_PER_PX_Z0 = 156_543.03;
+
+    private final RouteService routeService;
+    private final ObjectMapper json = new ObjectMapper();
+
+    @Value("${route.geometry.path:data/roads/rvk-ifj.geojson}")
+    private String path = "data/roads/rvk-ifj.geojson";
+    @Value("${route.geometry.resource:roads/rvk-ifj.geojson}")
+    private String resource = "roads/rvk-ifj.geojson";
+    @Value("${route.geometry.min-zoom:5}")
+    private int minZoom = 5;
+    @Value("${route.geometry.max-zoom:14}")
+    private int maxZoom = 14;
+    // max deviation of the simplified line, in screen pixels at the target zoom
+    @Value("${route.geometry.tolerance-px:0.5}")
+    private double tolerancePx = 0.5;
+
+    private Polyline full;      // RVK -> IFJ, full resolution
+    private Polyline fullReversed;
+    private String source;
+    private RouteGeometry[] forward; // index = zoom - minZoom
+    private RouteGeometry[] reverse;
+
+    public RouteGeometryService(RouteService routeService) {
+        this.routeService = routeService;
+    }
+
+    @PostConstruct
+    public void init() {
+        Polyline road = null;
+        try {
+            Path file = Path.of(path);
+            if (Files.isRegularFile(file)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    road = load(in);
+                }
+            } else {
+                ClassPathResource bundled = new ClassPathResource(resource);
+                if (bundled.exists()) {
+                    try (InputStream in = bundled.getInputStream()) {
+                        road = load(in);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            road = null; // unreadable file = waypoint fallback
+        }
+        source = road != null && road.size() >= 2 ? "geojson" : "waypoints";
+        full = "geojson".equals(source) ? road : Polyline.ofLonLat(routeService.getCoordinates("RVK", "IFJ"));
+        fullReversed = full.reversed();
+
+        forward = new RouteGeometry[maxZoom - minZoom + 1];
+        reverse = new RouteGeometry[maxZoom - minZoom + 1];
+        double midLat = full.lat(full.size() / 2);
+        for (int z = minZoom; z <= maxZoom; z++) {
+            double toleranceM = tolerancePx * M_PER_PX_Z0 * Math.cos(Math.toRadians(midLat)) / (1 << z);
+            Polyline simplified = full.simplify(toleranceM);
+            // reversing a simplified line keeps the same vertices, so both directions are identical on the map
+            forward[z - minZoom] = geometry("RVK", "IFJ", z, simplified);
+            reverse[z - minZoom] = geometry("IFJ", "RVK", z, simplified.reversed());
+        }
+    }
+
+    /**
+     * Precomputed line for a route at a zoom level
+     *
+     * @param from RVK | IFJ
+     * @param to   RVK | IFJ
+     * @param zoom Map zoom (clamped to route.geometry.min-zoom..max-zoom)
+     * @return Encoded geometry (no computation per request)
+     */
+    public RouteGeometry geometry(String from, String to, int zoom) {
+        int z = Math.max(minZoom, Math.min(maxZoom, zoom));
+        return isReverse(from, to) ? reverse[z - minZoom] : forward[z - minZoom];
+    }
+
+    // full-resolution road polyline in driving direction, for distance-along-route math
+    public Polyline polyline(String from, String to) {
+        return isReverse(from, to) ? fullReversed : full;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    private static boolean isReverse(String from, String to) {
+        return "IFJ".equalsIgnoreCase(from) && "RVK".equalsIgnoreCase(to);
+    }
+
+    private RouteGeometry geometry(String from, String to, int zoom, Polyline line) {
+        return new RouteGeometry(from, to, zoom, source, line.size(), Math.round(full.lengthKm() * 10) / 10.0, line.encode());
+    }
+
+    // FeatureCollection / Feature / bare geometry, LineString + MultiLineString parts joined in order
+    private Polyline load(InputStream in) throws IOException {
+        List<JsonNode> lines = new ArrayList<>();
+        collectLines(json.readTree(in), lines);
+        int n = 0;
+        for (JsonNode line : lines) n += line.size();
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        int count = 0;
+        for (JsonNode line : lines) {
+            for (JsonNode c : line) {
+                double x = c.get(0).asDouble();
+                double y = c.get(1).asDouble();
+                if (count > 0 && lat[count - 1] == y && lon[count - 1] == x) {
+                    continue; // shared vertex where two parts join
+                }
+                lon[count] = x;
+                lat[count++] = y;
+            }
+        }
+        Polyline line = Polyline.of(Arrays.copyOf(lat, count), Arrays.copyOf(lon, count));
+        return count >= 2 && line.lat(0) > line.lat(count - 1) ? line.reversed() : line;
+    }
+
+    private static void collectLines(JsonNode node, List<JsonNode> out) {
+        if (node == null) {
+            return;
+        }
+        switch (node.path("type").asText()) {
+            case "FeatureCollection" -> node.path("features").forEach(f -> collectLines(f, out));
+            case "Feature" -> collectLines(node.get("geometry"), out);
+            case "GeometryCollection" -> node.path("geometries").forEach(g -> collectLines(g, out));
+            case "LineString" -> out.add(node.get("coordinates"));
+            case "MultiLineString" -> node.path("coordinates").forEach(out::add);
+            default -> {
+            }
+        }
+    }
+}
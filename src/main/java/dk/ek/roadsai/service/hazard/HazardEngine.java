@@ -0,0 +1,186 @@
+package dk.ek.roadsai.service.hazard;
+
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.model.RiskLevel;
+import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.model.StationRisk;
+import dk.ek.roadsai.service.ai.ObservationReducer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/// Deterministic rule-based hazard classification (fast path, no network calls).
+// takes ObservationReducer facts + CAP alerts + ETA forecasts, classifies each station and writes template advice
+@Service
+public class HazardEngine {
+
+    // wind thresholds (m/s)
+    @Value("${hazard.wind.caution-ms:15}")
+    private double windCautionMs = 15;
+    @Value("${hazard.wind.danger-ms:20}")
+    private double windDangerMs = 20;
+    @Value("${hazard.gust.caution-ms:20}")
+    private double gustCautionMs = 20;
+    @Value("${hazard.gust.danger-ms:25}")
+    private double gustDangerMs = 25;
+
+    // ice risk: freezing temperature (°C) + any precipitation (mm/h)
+    @Value("${hazard.ice.max-temp-c:1}")
+    private double iceMaxTempC = 1;
+    @Value("${hazard.ice.min-precip-mm:0.1}")
+    private double iceMinPrecipMm = 0.1;
+
+    // visibility thresholds (m)
+    @Value("${hazard.visibility.caution-m:1000}")
+    private double visCautionM = 1000;
+    @Value("${hazard.visibility.danger-m:200}")
+    private double visDangerM = 200;
+
+    // classifies all stations (in route order)
+    public List<StationRisk> evaluate(
+            Map<String, ObservationReducer.StationFacts> stationFacts,
+            List<Station> stations,
+            List<ForecastPoint> forecasts) {
+
+        List<StationRisk> out = new ArrayList<>(stations.size());
+        for (Station station : stations) {
+            ObservationReducer.StationFacts facts = stationFacts.get(station.id());
+            out.add(classify(station, facts, forecastFor(station, forecasts)));
+        }
+        return out;
+    }
+
+    // thresholds of the forecast rules (wind + ice), for scoring many departures without classify() (DepartureScorer)
+    public ForecastThresholds forecastThresholds() {
+        return new ForecastThresholds(windCautionMs, windDangerMs, iceMaxTempC, iceMinPrecipMm);
+    }
+
+    public record ForecastThresholds(double windCautionMs, double windDangerMs, double iceMaxTempC, double iceMinPrecipMm) {
+    }
+
+    private StationRisk classify(Station station, ObservationReducer.StationFacts facts, ForecastPoint forecast) {
+        Assessment a = new Assessment();
+
+        // 1: official CAP alerts
+        if (facts != null && facts.alerts != null) {
+            for (CapAlert alert : facts.alerts) {
+                RiskLevel level = capLevel(alert.severity);
+                a.raise(level, "official " + (alert.severity != null ? alert.severity.toLowerCase() : "") + " warning"
+                                + (alert.eventType != null ? " (" + alert.eventType + ")" : ""),
+                        alert.headline != null ? alert.headline : "follow official warnings");
+            }
+        }
+
+        // 2: observed conditions (worst-case, last 15 min)
+        if (facts != null) {
+            checkWind(a, facts.windMs, facts.maxGustMs, "");
+            checkIce(a, facts.minTempC, facts.precipType != null && !facts.precipType.isBlank(), "");
+            if (facts.minVisM != null) {
+                if (facts.minVisM < visDangerM) {
+                    a.raise(RiskLevel.HIGH, "visibility " + Math.round(facts.minVisM) + " m",
+                            "very poor visibility, use headlights and consider waiting");
+                } else if (facts.minVisM < visCautionM) {
+                    a.raise(RiskLevel.MODERATE, "visibility " + Math.round(facts.minVisM) + " m",
+                            "reduced visibility, use headlights and increase following distance");
+                }
+            }
+        }
+
+        // 3: forecast at ETA (yr.no has no gusts or visibility)
+        if (forecast != null) {
+            checkWind(a, forecast.windMs(), null, "forecast ");
+            checkIce(a, forecast.tempC(), forecast.precipMm() != null && forecast.precipMm() >= iceMinPrecipMm, "forecast ");
+        }
+
+        return new StationRisk(station.id(), station.name(), a.level, List.copyOf(a.reasons), a.advice(station.name()));
+    }
+
+    private void checkWind(Assessment a, Double windMs, Double gustMs, String prefix) {
+        if (gustMs != null && gustMs >= gustDangerMs) {
+            a.raise(RiskLevel.SEVERE, prefix + "gusts " + Math.round(gustMs) + " m/s",
+                    "high-sided vehicles and trailers should avoid this section");
+        } else if (gustMs != null && gustMs >= gustCautionMs) {
+            a.raise(RiskLevel.HIGH, prefix + "gusts " + Math.round(gustMs) + " m/s",
+                    "strong crosswind gusts, reduce speed and hold the wheel firmly");
+        }
+        if (windMs != null && windMs >= windDangerMs) {
+            a.raise(RiskLevel.HIGH, prefix + "wind " + Math.round(windMs) + " m/s",
+                    "dangerous wind, avoid exposed passes if possible");
+        } else if (windMs != null && windMs >= windCautionMs) {
+            a.raise(RiskLevel.MODERATE, prefix + "wind " + Math.round(windMs) + " m/s",
+                    "strong wind, reduce speed on exposed stretches");
+        }
+    }
+
+    private void checkIce(Assessment a, Double tempC, boolean precip, String prefix) {
+        if (tempC == null || tempC > iceMaxTempC) {
+            return;
+        }
+        if (precip) {
+            a.raise(RiskLevel.HIGH, prefix + "ice risk (" + Math.round(tempC) + "°C + precipitation)",
+                    "slippery roads likely, keep long braking distance");
+        } else if (tempC <= 0) {
+            a.raise(RiskLevel.MODERATE, prefix + "freezing " + Math.round(tempC) + "°C",
+                    "watch for black ice on bridges and shaded sections");
+        }
+    }
+
+    // CAP severity → risk level (Moderate = yellow, Severe = orange, Extreme = red)
+    private static RiskLevel capLevel(String severity) {
+        if (severity == null) return RiskLevel.MODERATE;
+        return switch (severity.toLowerCase()) {
+            case "extreme", "severe" -> RiskLevel.SEVERE;
+            case "moderate" -> RiskLevel.HIGH;
+            default -> RiskLevel.MODERATE;
+        };
+    }
+
+    // forecast point matched by station coordinates (ForecastSampler uses station coordinates)
+    private static ForecastPoint forecastFor(Station station, List<ForecastPoint> forecasts) {
+        if (forecasts == null) return null;
+        for (ForecastPoint f : forecasts) {
+            if (Math.abs(f.latitude() - station.latitude()) < 0.001 &&
+                    Math.abs(f.longitude() - station.longitude()) < 0.001) {
+                return f;
+            }
+        }
+        return null;
+    }
+
+    // collects reasons + actions, keeps highest level
+    private static class Assessment {
+        RiskLevel level = RiskLevel.LOW;
+        final List<String> reasons = new ArrayList<>();
+        final List<String> actions = new ArrayList<>();
+
+        void raise(RiskLevel l, String reason, String action) {
+            if (l.compareTo(level) > 0) {
+                level = l;
+            }
+            reasons.add(reason);
+            if (!actions.contains(action)) {
+                actions.add(action);
+            }
+        }
+
+        String advice(String stationName) {
+            if (reasons.isEmpty()) {
+                return stationName + ": No significant hazards in current data, normal winter driving conditions";
+            }
+            StringBuilder sb = new StringBuilder(stationName).append(": ");
+            if (level == RiskLevel.SEVERE) {
+                sb.append("Dangerous conditions - ");
+            }
+            sb.append(String.join(", ", reasons)).append(". ");
+            sb.append(Character.toUpperCase(actions.getFirst().charAt(0))).append(actions.getFirst().substring(1));
+            for (int i = 1; i < actions.size() && i < 3; i++) {
+                sb.append("; ").append(actions.get(i));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package dk.ek.roadsai.service.health;
+
+import dk.ek.roadsai.model.HealthStatus;
+import dk.ek.roadsai.model.StationHealth;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/// Per-station upstream health + negative cache for failing stations / sources.
+// failure -> upstream skipped for base * 2^(failures-1) (capped), success resets
+// providers check inBackoff() before calling upstream, so a dead station costs one timeout per backoff, not per request
+@Service
+public class StationHealthRegistry {
+
+    @Value("${health.backoff.base-ms:30000}")
+    private long backoffBaseMs = 30000;
+    @Value("${health.backoff.max-ms:900000}")
+    private long backoffMaxMs = 900000;
+    @Value("${health.stale-after-ms:3600000}")
+    private long staleAfterMs = 3600000;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder skipped = new LongAdder();
+
+    // true = negative cache hit, caller returns empty data without calling upstream
+    public boolean inBackoff(String stationId) {
+        Entry e = entries.get(stationId);
+        if (e != null && e.retryAt != null && Instant.now().isBefore(e.retryAt)) {
+            skipped.increment();
+            return true;
+        }
+        return false;
+    }
+
+    // successful fetch from a non-observation source (forecast grid cell, CAP location)
+    public void success(String stationId) {
+        record(stationId, false, null);
+    }
+
+    /**
+     * Successful fetch for an observation station
+     *
+     * @param stationId Station id
+     * @param newestObs Newest observation in the data (null = station silent, STALE unless seen recently)
+     */
+    public void observed(String stationId, Instant newestObs) {
+        record(stationId, true, newestObs);
+    }
+
+    private void record(String stationId, boolean observationStation, Instant newestObs) {
+        Entry e = entries.computeIfAbsent(stationId, k -> new Entry());
+        synchronized (e) {
+            e.failures = 0;
+            e.retryAt = null;
+            e.lastSuccess = Instant.now();
+            e.observationStation = observationStation;
+            if (newestObs != null && (e.lastObservation == null || newestObs.isAfter(e.lastObservation))) {
+                e.lastObservation = newestObs;
+            }
+        }
+    }
+
+    public void failure(String stationId) {
+        Entry e = entries.computeIfAbsent(stationId, k -> new Entry());
+        synchronized (e) {
+            e.failures++;
+            long backoff = backoffBaseMs << Math.min(e.failures - 1, 20);
+            e.retryAt = Instant.now().plusMillis(Math.min(backoff, backoffMaxMs));
+        }
+    }
+
+    public StationHealth health(String stationId) {
+        Entry e = entries.get(stationId);
+        if (e == null) {
+            return new StationHealth(stationId, HealthStatus.UNKNOWN, 0, null, null, null);
+        }
+        synchronized (e) {
+            HealthStatus status;
+            if (e.failures > 0) {
+                status = HealthStatus.FAILING;
+            } else if (e.observationStation && (e.lastObservation == null
+                    || Duration.between(e.lastObservation, Instant.now()).toMillis() > staleAfterMs)) {
+                status = HealthStatus.STALE;
+            } else {
+                status = HealthStatus.OK;
+            }
+            return new StationHealth(stationId, status, e.failures, e.lastSuccess, e.lastObservation, e.retryAt);
+        }
+    }
+
+    public List<StationHealth> all() {
+        List<StationHealth> out = new ArrayList<>();
+        for (String id : entries.keySet()) {
+            out.add(health(id));
+        }
+        out.sort(Comparator.comparing(StationHealth::stationId));
+        return out;
+    }
+
+    // upstream calls avoided by the negative cache
+    public long skipped() {
+        return skipped.sum();
+    }
+
+    private static class Entry {
+        int failures;
+        boolean observationStation;
+        Instant lastSuccess;
+        Instant lastObservation;
+        Instant retryAt;
+    }
+}
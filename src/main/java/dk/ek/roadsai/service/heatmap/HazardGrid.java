@@ -0,0 +1,146 @@
+package dk.ek.roadsai.service.heatmap;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/// Hazard score interpolated over a regular lat/lon grid (inverse-distance weighting of station scores).
+// value: IDW of samples within the radius (0 where none), coverage: 1 at a station fading to 0 at the radius
+// rows are filled in parallel (fork-join, split until ROWS_PER_TASK), each task reuses its own scratch arrays
+public final class HazardGrid {
+    private static final int ROWS_PER_TASK = 8;
+    private static final double MIN_DIST_KM = 0.05; // closer than this = the station's own value
+
+    public record Sample(double lat, double lon, double value) {
+    }
+
+    private final double south;
+    private final double west;
+    private final double step;
+    private final int rows;
+    private final int cols;
+    private final float[] value;
+    private final float[] coverage;
+
+    private HazardGrid(double south, double west, double step, int rows, int cols) {
+        this.south = south;
+        this.west = west;
+        this.step = step;
+        this.rows = rows;
+        this.cols = cols;
+        this.value = new float[rows * cols];
+        this.coverage = new float[rows * cols];
+    }
+
+    /**
+     * Interpolate samples over the bounding box
+     *
+     * @param stepDeg  Grid spacing in degrees (both axes)
+     * @param radiusKm Samples further away than this are ignored (coverage 0 beyond the last station)
+     * @param power    IDW power (2 = classic)
+     */
+    public static HazardGrid interpolate(List<Sample> samples, double south, double west, double north, double east,
+                                         double stepDeg, double radiusKm, double power, ForkJoinPool pool) {
+        int rows = (int) Math.ceil((north - south) / stepDeg) + 1;
+        int cols = (int) Math.ceil((east - west) / stepDeg) + 1;
+        HazardGrid grid = new HazardGrid(south, west, stepDeg, rows, cols);
+        if (!samples.isEmpty()) {
+            PointIndex index = new PointIndex(samples, radiusKm);
+            double[] values = samples.stream().mapToDouble(Sample::value).toArray();
+            pool.invoke(grid.new Rows(0, rows, index, values, radiusKm, power));
+        }
+        return grid;
+    }
+
+    public double south() {
+        return south;
+    }
+
+    public double west() {
+        return west;
+    }
+
+    public double north() {
+        return south + (rows - 1) * step;
+    }
+
+    public double east() {
+        return west + (cols - 1) * step;
+    }
+
+    /// bilinear value at (lat, lon), 0 outside the grid
+    public double value(double lat, double lon) {
+        return bilinear(value, lat, lon);
+    }
+
+    /// bilinear coverage at (lat, lon), 0 outside the grid
+    public double coverage(double lat, double lon) {
+        return bilinear(coverage, lat, lon);
+    }
+
+    private double bilinear(float[] field, double lat, double lon) {
+        double fr = (lat - south) / step;
+        double fc = (lon - west) / step;
+        if (fr < 0 || fc < 0 || fr > rows - 1 || fc > cols - 1) {
+            return 0;
+        }
+        int r = Math.min((int) fr, rows - 2);
+        int c = Math.min((int) fc, cols - 2);
+        if (r < 0 || c < 0) { // single row/column grid
+            return field[Math.max(r, 0) * cols + Math.max(c, 0)];
+        }
+        double tr = fr - r;
+        double tc = fc - c;
+        int i = r * cols + c;
+        double bottom = field[i] + (field[i + 1] - field[i]) * tc;
+        double top = field[i + cols] + (field[i + cols + 1] - field[i + cols]) * tc;
+        return bottom + (top - bottom) * tr;
+    }
+
+    private final class Rows extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final PointIndex index;
+        private final double[] values;
+        private final double radiusKm;
+        private final double power;
+
+        Rows(int from, int to, PointIndex index, double[] values, double radiusKm, double power) {
+            this.from = from;
+            this.to = to;
+            this.index = index;
+            this.values = values;
+            this.radiusKm = radiusKm;
+            this.power = power;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Rows(from, mid, index, values, radiusKm, power),
+                        new Rows(mid, to, index, values, radiusKm, power));
+                return;
+            }
+            int[] near = new int[index.size()];
+            double[] dist = new double[index.size()];
+            for (int r = from; r < to; r++) {
+                double lat = south + r * step;
+                for (int c = 0; c < cols; c++) {
+                    int n = index.near(lat, west + c * step, radiusKm, near, dist);
+                    if (n == 0) continue;
+                    double wSum = 0, vSum = 0, nearest = Double.MAX_VALUE;
+                    for (int k = 0; k < n; k++) {
+                        double d = Math.max(dist[k], MIN_DIST_KM);
+                        double w = power == 2 ? 1 / (d * d) : Math.pow(d, -power);
+                        wSum += w;
+                        vSum += w * values[near[k]];
+                        nearest = Math.min(nearest, dist[k]);
+                    }
+                    value[r * cols + c] = (float) (vSum / wSum);
+                    coverage[r * cols + c] = (float) (1 - nearest / radiusKm);
+                }
+            }
+        }
+    }
+}
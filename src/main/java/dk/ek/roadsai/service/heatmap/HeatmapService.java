@@ -0,0 +1,243 @@
+package dk.ek.roadsai.service.heatmap;
+
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.model.StationObservation;
+import dk.ek.roadsai.model.StationRisk;
+import dk.ek.roadsai.service.StationService;
+import dk.ek.roadsai.service.ai.ObservationReducer;
+import dk.ek.roadsai.service.hazard.HazardEngine;
+import dk.ek.roadsai.service.ingest.ObservationIngest;
+import dk.ek.roadsai.service.provider.VedurCapProvider;
+import dk.ek.roadsai.service.provider.VegagerdinProvider;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/// Nationwide "where is it dangerous right now" map layer, precomputed on each data refresh.
+// refresh: latest observations of every station -> HazardEngine level per station (0..3)
+// -> IDW grid over Iceland (fork-join) -> every PNG tile for heatmap.min-zoom..max-zoom rendered in the same pool
+// stations: every road weather station in Vegagerðin's national feed + our corridor stations (IMO included)
+// tile requests only read the current immutable tile set, tiles without data share one transparent PNG
+// CAP alerts are queried per corridor station location only (no area polygons upstream, one call per location),
+// so they weigh in as that station's level, national stations are scored from their observations
+@Service
+public class HeatmapService {
+    // Iceland bounding box (grid extent)
+    private static final double SOUTH = 63.2;
+    private static final double NORTH = 66.6;
+    private static final double WEST = -24.6;
+    private static final double EAST = -13.4;
+    private static final byte[] EMPTY_TILE = TileRenderer.empty();
+
+    private final StationService stationService;
+    private final VegagerdinProvider vegagerdinProvider;
+    private final VedurCapProvider vedurCapProvider;
+    private final ObservationReducer observationReducer;
+    private final HazardEngine hazardEngine;
+
+    @Value("${heatmap.enabled:true}")
+    private boolean enabled = true;
+    @Value("${heatmap.step-deg:0.02}")
+    private double stepDeg = 0.02;
+    @Value("${heatmap.radius-km:80}")
+    private double radiusKm = 80;
+    @Value("${heatmap.idw-power:2}")
+    private double power = 2;
+    @Value("${heatmap.min-zoom:5}")
+    private int minZoom = 5;
+    @Value("${heatmap.max-zoom:9}")
+    private int maxZoom = 9;
+    @Value("${heatmap.opacity:0.6}")
+    private double opacity = 0.6;
+    @Value("${heatmap.parallelism:0}")
+    private int parallelism = 0; // 0 = available processors
+
+    private ForkJoinPool pool;
+    private volatile TileSet current = new TileSet(0, null, List.of(), Map.of());
+
+    // counters for /api/admin/heatmap
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder tileRequests = new LongAdder();
+    private final LongAdder emptyTiles = new LongAdder();
+    private volatile long lastRenderMs = 0;
+
+    /// immutable tile set of one refresh, key = tileKey(z, x, y)
+    private record TileSet(long version, Instant computedAt, List<HazardGrid.Sample> samples, Map<Long, byte[]> tiles) {
+    }
+
+    public record Tile(byte[] png, long version) {
+    }
+
+    public HeatmapService(
+            StationService stationService,
+            VegagerdinProvider vegagerdinProvider,
+            VedurCapProvider vedurCapProvider,
+            ObservationReducer observationReducer,
+            HazardEngine hazardEngine) {
+        this.stationService = stationService;
+        this.vegagerdinProvider = vegagerdinProvider;
+        this.vedurCapProvider = vedurCapProvider;
+        this.observationReducer = observationReducer;
+        this.hazardEngine = hazardEngine;
+    }
+
+    @PostConstruct
+    public void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    // observations are cached until the next 10-min observation is due, so most refreshes reuse provider caches
+    @Scheduled(fixedDelayString = "${heatmap.refresh-ms:300000}", initialDelayString = "${heatmap.initial-delay-ms:15000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            update(samples());
+        } catch (Exception e) {
+            failures.increment(); // keep serving the previous tile set
+        }
+    }
+
+    /**
+     * Interpolate + render a new tile set (skipped if the station scores did not change)
+     *
+     * @param samples Station scores (RiskLevel ordinal)
+     */
+    public void update(List<HazardGrid.Sample> samples) throws Exception {
+        refreshes.increment();
+        TileSet previous = current;
+        if (previous.computedAt() != null && previous.samples().equals(samples)) {
+            unchanged.increment();
+            return;
+        }
+
+        long start = System.nanoTime();
+        HazardGrid grid = HazardGrid.interpolate(samples, SOUTH, WEST, NORTH, EAST, stepDeg, radiusKm, power, pool);
+
+        // one task per tile covering the grid, rendered in the fork-join pool
+        List<Long> keys = new ArrayList<>();
+        List<Callable<byte[]>> tasks = new ArrayList<>();
+        for (int z = minZoom; z <= maxZoom; z++) {
+            int x0 = TileRenderer.tileX(z, WEST), x1 = TileRenderer.tileX(z, EAST);
+            int y0 = TileRenderer.tileY(z, NORTH), y1 = TileRenderer.tileY(z, SOUTH);
+            for (int x = x0; x <= x1; x++) {
+                for (int y = y0; y <= y1; y++) {
+                    int tz = z, tx = x, ty = y;
+                    keys.add(tileKey(z, x, y));
+                    tasks.add(() -> TileRenderer.render(grid, tz, tx, ty, opacity));
+                }
+            }
+        }
+        List<Future<byte[]>> rendered = pool.invokeAll(tasks);
+        Map<Long, byte[]> tiles = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] png = rendered.get(i).get();
+            if (png != null) {
+                tiles.put(keys.get(i), png);
+            }
+        }
+
+        current = new TileSet(previous.version() + 1, Instant.now(), List.copyOf(samples), Map.copyOf(tiles));
+        lastRenderMs = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /// Current tile (pure cache read), transparent tile if no data there or outside the precomputed zoom range
+    public Tile tile(int z, int x, int y) {
+        tileRequests.increment();
+        TileSet set = current;
+        byte[] png = set.tiles().get(tileKey(z, x, y));
+        if (png == null) {
+            emptyTiles.increment();
+            png = EMPTY_TILE;
+        }
+        return new Tile(png, set.version());
+    }
+
+    public int minZoom() {
+        return minZoom;
+    }
+
+    public int maxZoom() {
+        return maxZoom;
+    }
+
+    public Map<String, Long> stats() {
+        TileSet set = current;
+        return Map.of(
+                "version", set.version(),
+                "stations", (long) set.samples().size(),
+                "tiles", (long) set.tiles().size(),
+                "refreshes", refreshes.sum(),
+                "unchanged", unchanged.sum(),
+                "failures", failures.sum(),
+                "lastRenderMs", lastRenderMs,
+                "tileRequests", tileRequests.sum(),
+                "emptyTiles", emptyTiles.sum());
+    }
+
+    // latest conditions of every station -> (lat, lon, level), stations without observations or alerts are left out
+    private List<HazardGrid.Sample> samples() {
+        List<Station> corridor = stationService.allStations();
+        Instant now = Instant.now();
+        Instant from = now.minusSeconds(900);
+        List<Station> stations = new ArrayList<>(corridor);
+        List<StationObservation> obs = new ArrayList<>(stationService.fetchObsForStations(corridor, from, now));
+
+        Map<String, List<CapAlert>> alerts = new HashMap<>();
+        for (Station station : corridor) {
+            alerts.put(station.id(), vedurCapProvider.fetchAlerts(station.latitude(), station.longitude()));
+        }
+
+        // rest of the country: newest row of every other road weather station (same 15 min window)
+        Set<String> known = new HashSet<>();
+        corridor.forEach(s -> known.add(s.id()));
+        for (ObservationIngest.Latest latest : vegagerdinProvider.nationalObservations()) {
+            if (known.add(latest.station().id()) && !latest.observation().timestamp().isBefore(from)) {
+                stations.add(latest.station());
+                obs.add(latest.observation());
+            }
+        }
+
+        Map<String, ObservationReducer.StationFacts> facts = observationReducer.reduceToStations(obs, stations, alerts);
+        List<StationRisk> risks = hazardEngine.evaluate(facts, stations, List.of());
+
+        Set<String> observed = new HashSet<>();
+        obs.forEach(o -> observed.add(o.stationId()));
+        List<HazardGrid.Sample> samples = new ArrayList<>();
+        for (int i = 0; i < stations.size(); i++) {
+            Station station = stations.get(i);
+            String id = station.id();
+            if (observed.contains(id) || !alerts.getOrDefault(id, List.of()).isEmpty()) {
+                samples.add(new HazardGrid.Sample(station.latitude(), station.longitude(), risks.get(i).level().ordinal()));
+            }
+        }
+        return samples;
+    }
+
+    private static long tileKey(int z, int x, int y) {
+        return ((long) z << 48) | ((long) x << 24) | y;
+    }
+}
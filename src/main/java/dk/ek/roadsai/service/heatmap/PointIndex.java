@@ -0,0 +1,110 @@
+package dk.ek.roadsai.service.heatmap;
+
+import java.util.Arrays;
+import java.util.List;
+
+/// Uniform bucket grid over sample points for radius queries (bucket size = query radius, so a query reads ~3x3 buckets).
+// buckets stored CSR-style: start[b]..start[b+1] in order[], no per-query allocation
+// queries scan the radius' longitude span at their own latitude (wider than a bucket north of the samples)
+final class PointIndex {
+    static final double KM_PER_DEG = 111.195;
+
+    private final double[] lat;
+    private final double[] lon;
+    private final double south;
+    private final double west;
+    private final double bucketLat;
+    private final double bucketLon;
+    private final int rows;
+    private final int cols;
+    private final int[] start;
+    private final int[] order;
+
+    PointIndex(List<HazardGrid.Sample> samples, double radiusKm) {
+        int n = samples.size();
+        lat = new double[n];
+        lon = new double[n];
+        double s = 90, w = 180, north = -90, east = -180;
+        for (int i = 0; i < n; i++) {
+            lat[i] = samples.get(i).lat();
+            lon[i] = samples.get(i).lon();
+            s = Math.min(s, lat[i]);
+            north = Math.max(north, lat[i]);
+            w = Math.min(w, lon[i]);
+            east = Math.max(east, lon[i]);
+        }
+        south = n == 0 ? 0 : s;
+        west = n == 0 ? 0 : w;
+        bucketLat = radiusKm / KM_PER_DEG;
+        // longitude degrees shrink towards the pole, size buckets for the northernmost point (near() widens as needed)
+        bucketLon = bucketLat / Math.cos(Math.toRadians(n == 0 ? 0 : Math.max(Math.abs(north), Math.abs(s))));
+        rows = n == 0 ? 1 : (int) ((north - south) / bucketLat) + 1;
+        cols = n == 0 ? 1 : (int) ((east - west) / bucketLon) + 1;
+
+        // counting sort of points into buckets
+        int[] bucketOf = new int[n];
+        start = new int[rows * cols + 1];
+        for (int i = 0; i < n; i++) {
+            bucketOf[i] = bucket(row(lat[i]), col(lon[i]));
+            start[bucketOf[i] + 1]++;
+        }
+        for (int b = 0; b < rows * cols; b++) {
+            start[b + 1] += start[b];
+        }
+        order = new int[n];
+        int[] fill = Arrays.copyOf(start, start.length);
+        for (int i = 0; i < n; i++) {
+            order[fill[bucketOf[i]]++] = i;
+        }
+    }
+
+    int size() {
+        return lat.length;
+    }
+
+    /**
+     * Points within radius of (lat, lon)
+     *
+     * @param out    Receives point indices (length >= size())
+     * @param distKm Receives distance of each returned point (same positions as out)
+     * @return Number of points written
+     */
+    int near(double qLat, double qLon, double radiusKm, int[] out, double[] distKm) {
+        double kmPerDegLon = KM_PER_DEG * Math.cos(Math.toRadians(qLat));
+        double spanLat = radiusKm / KM_PER_DEG;
+        double spanLon = radiusKm / kmPerDegLon;
+        int r0 = Math.max(0, row(qLat - spanLat));
+        int r1 = Math.min(rows - 1, row(qLat + spanLat));
+        int c0 = Math.max(0, col(qLon - spanLon));
+        int c1 = Math.min(cols - 1, col(qLon + spanLon));
+        int count = 0;
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int b = bucket(r, c);
+                for (int k = start[b]; k < start[b + 1]; k++) {
+                    int i = order[k];
+                    double dy = (lat[i] - qLat) * KM_PER_DEG;
+                    double dx = (lon[i] - qLon) * kmPerDegLon;
+                    double d = Math.sqrt(dx * dx + dy * dy);
+                    if (d <= radiusKm) {
+                        out[count] = i;
+                        distKm[count++] = d;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private int row(double la) {
+        return (int) Math.floor((la - south) / bucketLat);
+    }
+
+    private int col(double lo) {
+        return (int) Math.floor((lo - west) / bucketLon);
+    }
+
+    private int bucket(int r, int c) {
+        return r * cols + c;
+    }
+}
@@ -0,0 +1,163 @@
+package dk.ek.roadsai.service.heatmap;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/// Rasterizes a HazardGrid into 256px Web Mercator (XYZ, same scheme as Leaflet/OSM) PNG tiles.
+// color by score (RiskLevel ordinal 0..3, same colors as the hazard badges), alpha by coverage
+// PNG written directly (RGBA, deflate), no AWT/ImageIO at runtime (headless + native image friendly)
+public final class TileRenderer {
+    public static final int SIZE = 256;
+
+    // LOW, MODERATE, HIGH, SEVERE
+    private static final int[][] RAMP = {
+            {0x10, 0xb9, 0x81},
+            {0xfb, 0xbf, 0x24},
+            {0xf9, 0x73, 0x16},
+            {0xef, 0x44, 0x44}};
+
+    private TileRenderer() {
+    }
+
+    /**
+     * Render one tile
+     *
+     * @param maxAlpha Opacity (0..1) at full coverage for the highest score
+     * @return PNG bytes, or null if the tile has no visible pixel (client gets the shared empty tile)
+     */
+    public static byte[] render(HazardGrid grid, int z, int x, int y, double maxAlpha) {
+        if (!intersects(grid, z, x, y)) {
+            return null;
+        }
+        // one lat per pixel row, one lon per pixel column (mercator is separable)
+        double[] lat = new double[SIZE];
+        double[] lon = new double[SIZE];
+        for (int p = 0; p < SIZE; p++) {
+            lat[p] = tileLat(z, y + (p + 0.5) / SIZE);
+            lon[p] = tileLon(z, x + (p + 0.5) / SIZE);
+        }
+
+        int[] argb = new int[SIZE * SIZE];
+        boolean visible = false;
+        for (int py = 0; py < SIZE; py++) {
+            for (int px = 0; px < SIZE; px++) {
+                double coverage = grid.coverage(lat[py], lon[px]);
+                if (coverage <= 0) continue;
+                double v = Math.clamp(grid.value(lat[py], lon[px]), 0, RAMP.length - 1);
+                int alpha = (int) Math.round(255 * maxAlpha * Math.min(1, coverage * 2) * (0.35 + 0.65 * v / (RAMP.length - 1)));
+                if (alpha == 0) continue;
+                argb[py * SIZE + px] = (alpha << 24) | color(v);
+                visible = true;
+            }
+        }
+        if (!visible) {
+            return null;
+        }
+        return png(argb);
+    }
+
+    /// fully transparent tile (served for every tile without data)
+    public static byte[] empty() {
+        return png(new int[SIZE * SIZE]);
+    }
+
+    /// tile overlaps the grid's bounding box
+    public static boolean intersects(HazardGrid grid, int z, int x, int y) {
+        double west = tileLon(z, x);
+        double east = tileLon(z, x + 1);
+        double north = tileLat(z, y);
+        double south = tileLat(z, y + 1);
+        return east >= grid.west() && west <= grid.east() && north >= grid.south() && south <= grid.north();
+    }
+
+    /// tile x (fractional) -> longitude of its west edge
+    public static double tileLon(int z, double x) {
+        return x / (1 << z) * 360.0 - 180.0;
+    }
+
+    /// tile y (fractional) -> latitude of its north edge
+    public static double tileLat(int z, double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / (1 << z)))));
+    }
+
+    /// tile column containing the longitude
+    public static int tileX(int z, double lon) {
+        return (int) Math.floor((lon + 180.0) / 360.0 * (1 << z));
+    }
+
+    /// tile row containing the latitude
+    public static int tileY(int z, double lat) {
+        double r = Math.toRadians(lat);
+        return (int) Math.floor((1 - Math.log(Math.tan(r) + 1 / Math.cos(r)) / Math.PI) / 2 * (1 << z));
+    }
+
+    // linear blend between neighbouring ramp colors
+    private static int color(double v) {
+        int i = Math.min((int) v, RAMP.length - 2);
+        double t = v - i;
+        int r = (int) Math.round(RAMP[i][0] + (RAMP[i + 1][0] - RAMP[i][0]) * t);
+        int g = (int) Math.round(RAMP[i][1] + (RAMP[i + 1][1] - RAMP[i][1]) * t);
+        int b = (int) Math.round(RAMP[i][2] + (RAMP[i + 1][2] - RAMP[i][2]) * t);
+        return (r << 16) | (g << 8) | b;
+    }
+
+    // 8-bit RGBA, filter "none" per scanline (mostly transparent tiles deflate well without filtering)
+    private static byte[] png(int[] argb) {
+        byte[] raw = new byte[SIZE * (1 + SIZE * 4)];
+        int o = 0;
+        for (int py = 0; py < SIZE; py++) {
+            raw[o++] = 0;
+            for (int px = 0; px < SIZE; px++) {
+                int p = argb[py * SIZE + px];
+                raw[o++] = (byte) (p >>> 16);
+                raw[o++] = (byte) (p >>> 8);
+                raw[o++] = (byte) p;
+                raw[o++] = (byte) (p >>> 24);
+            }
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream idat = new ByteArrayOutputStream(4096);
+        byte[] buf = new byte[8192];
+        while (!deflater.finished()) {
+            idat.write(buf, 0, deflater.deflate(buf));
+        }
+        deflater.end();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(idat.size() + 64);
+        out.writeBytes(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'});
+        byte[] ihdr = new byte[13];
+        putInt(ihdr, 0, SIZE);
+        putInt(ihdr, 4, SIZE);
+        ihdr[8] = 8; // bit depth
+        ihdr[9] = 6; // color type RGBA
+        chunk(out, "IHDR", ihdr);
+        chunk(out, "IDAT", idat.toByteArray());
+        chunk(out, "IEND", new byte[0]);
+        return out.toByteArray();
+    }
+
+    private static void chunk(ByteArrayOutputStream out, String type, byte[] data) {
+        byte[] header = new byte[8];
+        putInt(header, 0, data.length);
+        System.arraycopy(type.getBytes(StandardCharsets.US_ASCII), 0, header, 4, 4);
+        CRC32 crc = new CRC32();
+        crc.update(header, 4, 4);
+        crc.update(data);
+        byte[] trailer = new byte[4];
+        putInt(trailer, 0, (int) crc.getValue());
+        out.writeBytes(header);
+        out.writeBytes(data);
+        out.writeBytes(trailer);
+    }
+
+    private static void putInt(byte[] b, int at, int v) {
+        b[at] = (byte) (v >>> 24);
+        b[at + 1] = (byte) (v >>> 16);
+        b[at + 2] = (byte) (v >>> 8);
+        b[at + 3] = (byte) v;
+    }
+}
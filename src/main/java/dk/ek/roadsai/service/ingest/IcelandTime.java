@@ -0,0 +1,161 @@
+package dk.ek.roadsai.service.ingest;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/// Hand-rolled parsers (no DateTimeFormatter, no exceptions) for the two local (Atlantic/Reykjavik, no zone) timestamp layouts upstream sends:
+///  - IMO AWS:    "2025-11-05T21:40:00" (also "2025-11-05 21:40", optional seconds/fraction ignored)
+///  - Vegagerðin: "4.11.2025 21:50:00"  (1-2 digit day/month/hour, optional seconds)
+/// Returns epoch seconds, or INVALID for malformed input.
+// offset is resolved once for the current rules period (Iceland has been UTC+0 without DST since 1968),
+// local times outside that period fall back to ZoneRules (same gap/overlap result as LocalDateTime.atZone)
+public final class IcelandTime {
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final ZoneRules RULES = ZoneId.of("Atlantic/Reykjavik").getRules();
+    private static final int OFFSET;      // offset of the current rules period (seconds)
+    private static final long LOCAL_FROM; // period bounds in local epoch seconds [from, until)
+    private static final long LOCAL_UNTIL;
+
+    static {
+        Instant now = Instant.now();
+        OFFSET = RULES.getOffset(now).getTotalSeconds();
+        ZoneOffsetTransition prev = RULES.previousTransition(now);
+        ZoneOffsetTransition next = RULES.nextTransition(now);
+        // local times between the two transitions (excluding gap/overlap) map to OFFSET unambiguously
+        LOCAL_FROM = prev == null ? Long.MIN_VALUE
+                : prev.getInstant().getEpochSecond() + Math.max(OFFSET, prev.getOffsetBefore().getTotalSeconds());
+        LOCAL_UNTIL = next == null ? Long.MAX_VALUE
+                : next.getInstant().getEpochSecond() + Math.min(OFFSET, next.getOffsetAfter().getTotalSeconds());
+    }
+
+    private IcelandTime() {
+    }
+
+    /// "yyyy-MM-dd'T'HH:mm[:ss[.fff]]" ('T' or ' ' separator)
+    public static long parseIso(String s) {
+        if (s == null || s.length() < 16) return INVALID;
+        if (s.charAt(4) != '-' || s.charAt(7) != '-' || (s.charAt(10) != 'T' && s.charAt(10) != ' ') || s.charAt(13) != ':') {
+            return INVALID;
+        }
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+        int hour = digits(s, 11, 2);
+        int minute = digits(s, 14, 2);
+        int second = 0;
+        int end = 16;
+        if (s.length() > 16) {
+            if (s.length() < 19 || s.charAt(16) != ':') return INVALID;
+            second = digits(s, 17, 2);
+            end = 19;
+            if (s.length() > 19) {
+                if (s.charAt(19) != '.') return INVALID;
+                for (int i = 20; i < s.length(); i++) {
+                    if (!isDigit(s.charAt(i))) return INVALID;
+                }
+                end = s.length(); // fraction dropped (10-min observations)
+            }
+        }
+        return end == s.length() ? toEpochSecond(year, month, day, hour, minute, second) : INVALID;
+    }
+
+    /// "d.M.yyyy H:mm[:ss]"
+    public static long parseDotted(String s) {
+        if (s == null) return INVALID;
+        int len = s.length();
+        int[] pos = {0};
+        int day = number(s, pos, 1, 2);
+        if (!expect(s, pos, '.')) return INVALID;
+        int month = number(s, pos, 1, 2);
+        if (!expect(s, pos, '.')) return INVALID;
+        int year = number(s, pos, 4, 4);
+        if (!expect(s, pos, ' ')) return INVALID;
+        int hour = number(s, pos, 1, 2);
+        if (!expect(s, pos, ':')) return INVALID;
+        int minute = number(s, pos, 2, 2);
+        int second = 0;
+        if (pos[0] < len) {
+            if (!expect(s, pos, ':')) return INVALID;
+            second = number(s, pos, 2, 2);
+        }
+        if (pos[0] != len || day < 0 || month < 0 || year < 0 || hour < 0 || minute < 0 || second < 0) {
+            return INVALID;
+        }
+        return toEpochSecond(year, month, day, hour, minute, second);
+    }
+
+    /// local Iceland wall-clock time -> epoch seconds (INVALID for out-of-range fields)
+    public static long toEpochSecond(int year, int month, int day, int hour, int minute, int second) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+        long local = epochDay(year, month, day) * 86_400L + hour * 3600L + minute * 60L + second;
+        if (local >= LOCAL_FROM && local < LOCAL_UNTIL) {
+            return local - OFFSET;
+        }
+        ZoneOffset offset = RULES.getOffset(LocalDateTime.ofEpochSecond(local, 0, ZoneOffset.UTC));
+        return local - offset.getTotalSeconds();
+    }
+
+    // days since 1970-01-01 (proleptic Gregorian, civil-from-days inverse)
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097L + doe - 719_468;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    // fixed-width digits, -1 if any is not a digit
+    private static int digits(String s, int from, int count) {
+        int v = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    // variable-width digits at pos[0] (advances it), -1 if fewer than min or more than max
+    private static int number(String s, int[] pos, int min, int max) {
+        int i = pos[0];
+        int v = 0;
+        while (i < s.length() && i - pos[0] < max && isDigit(s.charAt(i))) {
+            v = v * 10 + (s.charAt(i++) - '0');
+        }
+        if (i - pos[0] < min || (i < s.length() && isDigit(s.charAt(i)))) {
+            pos[0] = i;
+            return -1;
+        }
+        pos[0] = i;
+        return v;
+    }
+
+    private static boolean expect(String s, int[] pos, char c) {
+        if (pos[0] < s.length() && s.charAt(pos[0]) == c) {
+            pos[0]++;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,126 @@
+package dk.ek.roadsai.service.ingest;
+
+import dk.ek.roadsai.dto.vedur.is.VedurAwsDto;
+import dk.ek.roadsai.dto.vegagerdin.VegagerdinItemDto;
+import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.model.StationObservation;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/// Converts upstream payloads to canonical StationObservations, once per fetch.
+// results are immutable + sorted by time, so providers cache them as-is and serve cache hits without re-parsing
+public final class ObservationIngest {
+    private static final Comparator<StationObservation> BY_TIME = Comparator.comparing(StationObservation::timestamp);
+
+    private ObservationIngest() {
+    }
+
+    /// newest observation of one station with its metadata (national feeds, not only our corridor)
+    public record Latest(Station station, StationObservation observation) {
+    }
+
+    /// IMO AWS 10-min rows of one station (malformed timestamps skipped)
+    public static List<StationObservation> imo(String stationId, List<VedurAwsDto.Aws10minBasic> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return List.of();
+        }
+        List<StationObservation> out = new ArrayList<>(rows.size());
+        for (VedurAwsDto.Aws10minBasic it : rows) {
+            if (it == null) continue;
+            long ts = IcelandTime.parseIso(it.time);
+            if (ts == IcelandTime.INVALID) continue;
+            out.add(new StationObservation(stationId, Instant.ofEpochSecond(ts), it.t, it.f, it.fg, it.vis, it.precip));
+        }
+        return sorted(out);
+    }
+
+    /// Vegagerðin bulk feed, grouped by "veg:<Nr_Vedurstofa>" for the wanted stations only
+    public static Map<String, List<StationObservation>> vegagerdin(List<VegagerdinItemDto> rows, Set<Integer> wanted) {
+        if (rows == null || rows.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, List<StationObservation>> byStation = new HashMap<>();
+        for (VegagerdinItemDto v : rows) {
+            if (v == null || v.nrVedurstofa == null || !wanted.contains(v.nrVedurstofa)) continue;
+            long ts = IcelandTime.parseDotted(v.dags);
+            if (ts == IcelandTime.INVALID) continue;
+            String stationId = "veg:" + v.nrVedurstofa;
+            byStation.computeIfAbsent(stationId, k -> new ArrayList<>()).add(new StationObservation(
+                    stationId, Instant.ofEpochSecond(ts), v.hiti, v.vindhradi, v.vindhvida,
+                    null,  // visibility not provided in this feed
+                    null   // precip not provided
+            ));
+        }
+        Map<String, List<StationObservation>> out = new HashMap<>(byStation.size());
+        byStation.forEach((id, list) -> out.put(id, sorted(list)));
+        return Map.copyOf(out);
+    }
+
+    /// Vegagerðin bulk feed, newest observation of every station nationwide (rows without coordinates skipped)
+    public static List<Latest> vegagerdinLatest(List<VegagerdinItemDto> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Latest> byNr = new HashMap<>();
+        for (VegagerdinItemDto v : rows) {
+            if (v == null || v.nrVedurstofa == null || v.breidd == null || v.lengd == null) continue;
+            long ts = IcelandTime.parseDotted(v.dags);
+            if (ts == IcelandTime.INVALID) continue;
+            Latest previous = byNr.get(v.nrVedurstofa);
+            Instant time = Instant.ofEpochSecond(ts);
+            if (previous != null && !time.isAfter(previous.observation().timestamp())) continue;
+            String stationId = "veg:" + v.nrVedurstofa;
+            byNr.put(v.nrVedurstofa, new Latest(
+                    new Station(stationId, v.nafn != null ? v.nafn : stationId, v.breidd, v.lengd, "VEGAGERDIN"),
+                    new StationObservation(stationId, time, v.hiti, v.vindhradi, v.vindhvida, null, null)));
+        }
+        return List.copyOf(byNr.values());
+    }
+
+    /// observations in [from, to] of a time-sorted list (sub-list view, no copy)
+    public static List<StationObservation> window(List<StationObservation> sorted, Instant from, Instant to) {
+        int lo = lowerBound(sorted, from);
+        int hi = sorted.size();
+        while (hi > lo && sorted.get(hi - 1).timestamp().isAfter(to)) {
+            hi--;
+        }
+        return lo == 0 && hi == sorted.size() ? sorted : sorted.subList(lo, hi);
+    }
+
+    /// newest timestamp of a time-sorted list (null if empty)
+    public static Instant newest(List<StationObservation> sorted) {
+        return sorted == null || sorted.isEmpty() ? null : sorted.getLast().timestamp();
+    }
+
+    // first index with timestamp >= from
+    private static int lowerBound(List<StationObservation> sorted, Instant from) {
+        int lo = 0;
+        int hi = sorted.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted.get(mid).timestamp().isBefore(from)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // upstream is usually already ordered, only sort when it is not
+    private static List<StationObservation> sorted(List<StationObservation> list) {
+        for (int i = 1; i < list.size(); i++) {
+            if (list.get(i).timestamp().isBefore(list.get(i - 1).timestamp())) {
+                list.sort(BY_TIME);
+                break;
+            }
+        }
+        return List.copyOf(list);
+    }
+}
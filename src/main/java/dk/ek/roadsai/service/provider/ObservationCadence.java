@@ -0,0 +1,98 @@
+package dk.ek.roadsai.service.provider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/// Data-driven cache expiry for feeds that publish observations on a fixed cadence (10 min AWS).
+// refresh at: newest observation + cadence + publish lag (+ margin), i.e. right after the next one should appear
+// nothing new after a refresh -> exponential backoff (1, 2, 4 ... min) until the next observation shows up
+// publish lag is measured per provider: raised when an expected observation was missing, lowered slowly
+// (probing earlier) while observations keep appearing on the first refresh
+public class ObservationCadence {
+    private static final Duration MARGIN = Duration.ofSeconds(20);
+    private static final Duration MIN_INTERVAL = Duration.ofSeconds(30);
+    private static final Duration MIN_BACKOFF = Duration.ofMinutes(1);
+    private static final long LAG_PROBE_SECONDS = 10;
+
+    private final Duration cadence;
+    private final Duration maxTtl;
+    private volatile long lagSeconds;
+
+    // per key: newest observation seen + refreshes in a row without a newer one
+    private final Map<String, Instant> newest = new ConcurrentHashMap<>();
+    private final Map<String, Integer> unchanged = new ConcurrentHashMap<>();
+
+    /**
+     * @param cadence    Publish interval of the feed
+     * @param initialLag Publish lag until measured
+     * @param maxTtl     Upper bound for an expiry (stale/silent stations)
+     */
+    public ObservationCadence(Duration cadence, Duration initialLag, Duration maxTtl) {
+        this.cadence = cadence;
+        this.lagSeconds = initialLag.toSeconds();
+        this.maxTtl = maxTtl;
+    }
+
+    /**
+     * Expiry for freshly fetched data
+     *
+     * @param key          Cache key (station or feed)
+     * @param newestObs    Newest observation timestamp in the fetched data (null = none)
+     * @param fetchedAt    Fetch time
+     * @return When to refresh
+     */
+    public Instant expiresAt(String key, Instant newestObs, Instant fetchedAt) {
+        if (newestObs == null) {
+            return fetchedAt.plus(backoff(unchanged.merge(key, 1, Integer::sum)));
+        }
+
+        Instant previous = newest.put(key, newestObs);
+        boolean isNew = previous == null || newestObs.isAfter(previous);
+        if (isNew) {
+            Integer misses = unchanged.remove(key);
+            if (previous != null && misses == null) {
+                // appeared on the first refresh: we may be waiting too long, probe a little earlier next time
+                lagSeconds = Math.max(0, lagSeconds - LAG_PROBE_SECONDS);
+            }
+            Instant expected = nextExpected(newestObs);
+            if (expected.isAfter(fetchedAt)) {
+                return clamp(expected, fetchedAt);
+            }
+            // already overdue (feed behind or publish lag underestimated)
+            return clamp(fetchedAt.plus(MIN_BACKOFF), fetchedAt);
+        }
+
+        // refreshed after the expected time but nothing new: publish lag is at least this long
+        int misses = unchanged.merge(key, 1, Integer::sum);
+        long overdue = Duration.between(newestObs.plus(cadence), fetchedAt).toSeconds();
+        if (misses == 1 && overdue > lagSeconds && overdue < cadence.toSeconds()) {
+            lagSeconds = overdue + LAG_PROBE_SECONDS;
+        }
+        return clamp(fetchedAt.plus(backoff(misses)), fetchedAt);
+    }
+
+    public long lagSeconds() {
+        return lagSeconds;
+    }
+
+    private Instant nextExpected(Instant newestObs) {
+        return newestObs.plus(cadence).plusSeconds(lagSeconds).plus(MARGIN);
+    }
+
+    // 1, 2, 4 ... min, capped at one cadence
+    private Duration backoff(int misses) {
+        long minutes = 1L << Math.min(misses - 1, 10);
+        Duration d = MIN_BACKOFF.multipliedBy(minutes);
+        return d.compareTo(cadence) > 0 ? cadence : d;
+    }
+
+    private Instant clamp(Instant expiresAt, Instant fetchedAt) {
+        Instant min = fetchedAt.plus(MIN_INTERVAL);
+        Instant max = fetchedAt.plus(maxTtl);
+        if (expiresAt.isBefore(min)) return min;
+        if (expiresAt.isAfter(max)) return max;
+        return expiresAt;
+    }
+}
@@ -3,30 +3,53 @@ package dk.ek.roadsai.service.provider;
 import dk.ek.roadsai.dto.vedur.is.VedurAwsDto;
 import dk.ek.roadsai.model.Station;
 import dk.ek.roadsai.model.StationObservation;
+import dk.ek.roadsai.service.cache.TieredCache;
+import dk.ek.roadsai.service.events.IngestPipeline;
+import dk.ek.roadsai.service.health.StationHealthRegistry;
+import dk.ek.roadsai.service.ingest.ObservationIngest;
+import dk.ek.roadsai.service.replay.UpstreamTape;
+import dk.ek.roadsai.service.snapshot.SnapshotParticipant;
+import dk.ek.roadsai.service.timing.Deadline;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static dk.ek.roadsai.service.snapshot.SnapshotIO.*;
 
 
 /// Vedur.is (IMO) AWS station provider
-// 15 min caching to reduce load on API
+// cached until right after the next 10-min observation is due (ObservationCadence, local L1 + shared L2 across replicas)
+// failing / empty stations are skipped during backoff (StationHealthRegistry)
+// rows are normalized once per fetch (ObservationIngest), L1/L2 hold the immutable StationObservation list
 @Service
-public class VedurAwsProvider implements StationProvider {
-    private final WebClient http = WebClient.builder()
-            .baseUrl("https://api.vedur.is")
-            .defaultHeader("User-Agent", "roadsai/1.0")
-            .build();
+public class VedurAwsProvider implements StationProvider, SnapshotParticipant {
+    private static final String CACHE = "vedur-aws-obs"; // L2 entries are normalized observations, not raw rows
+    private static final TypeReference<List<StationObservation>> TYPE = new TypeReference<>() {
+    };
+
+    private final WebClient http;
+    private final TieredCache tieredCache;
+    private final StationHealthRegistry stationHealth;
+    private final IngestPipeline ingest;
 
-    //caching
-    private static final Duration TTL = Duration.ofMinutes(15); // 15 min
-    private final Map<String, List<VedurAwsDto.Aws10minBasic>> cacheData = new HashMap<>();
-    private final Map<String, Instant> cacheTime = new HashMap<>();
+    //caching (concurrent: requests run on virtual threads)
+    private static final Duration MAX_TTL = Duration.ofMinutes(15); // silent station upper bound
+    private final Map<String, List<StationObservation>> cacheData = new ConcurrentHashMap<>();
+    private final Map<String, Instant> cacheExpires = new ConcurrentHashMap<>();
+    private final ObservationCadence cadence =
+            new ObservationCadence(Duration.ofMinutes(10), Duration.ofMinutes(2), MAX_TTL);
 
     //fixed for RVK↔IFJ
     private final List<Station> registry = List.of(
@@ -35,6 +58,22 @@ public class VedurAwsProvider implements StationProvider {
             new Station("imo:2642", "vedur.is Ísafjörður", 66.0596, -23.1699, "IMO")
     );
 
+    public VedurAwsProvider(@Value("${vedur.api.base-url:https://api.vedur.is}") String baseUrl,
+                            TieredCache tieredCache,
+                            StationHealthRegistry stationHealth,
+                            UpstreamTape upstreamTape,
+                            IngestPipeline ingest) {
+        this.tieredCache = tieredCache;
+        this.stationHealth = stationHealth;
+        this.ingest = ingest;
+        tieredCache.onInvalidate(CACHE, this::evict);
+        this.http = WebClient.builder()
+                .baseUrl(baseUrl)
+                .filter(upstreamTape.filter("vedur-aws"))
+                .defaultHeader("User-Agent", "roadsai/1.0")
+                .build();
+    }
+
     @Override
     public List<Station> listStations() {
         return registry;
@@ -47,18 +86,45 @@ public class VedurAwsProvider implements StationProvider {
                 ? stationId.substring("imo:".length())
                 : stationId;
 
-        // return cached data if less than 15 minutes old
-        List<VedurAwsDto.Aws10minBasic> cached = cacheData.get(id);
-        Instant cachedTime = cacheTime.get(id);
-        if (cached != null && cachedTime != null && Duration.between(cachedTime, Instant.now()).compareTo(TTL) < 0) {
-            return VedurAwsDto.map(stationId, cached).stream() // stream cached observations
-                    .filter(o -> !o.timestamp().isBefore(from) && !o.timestamp().isAfter(to)) // filter by requested time window
-                    .toList();
+        // return cached data until the next observation is expected
+        List<StationObservation> cached = cacheData.get(id);
+        Instant expires = cacheExpires.get(id);
+        if (cached != null && expires != null && Instant.now().isBefore(expires)) {
+            tieredCache.l1Hit(CACHE);
+            return ObservationIngest.window(cached, from, to); // pre-built, filter by requested time window
+        }
+
+        // negative cache: station failed recently, don't pay another upstream timeout
+        String healthKey = "imo:" + id;
+        if (stationHealth.inBackoff(healthKey)) {
+            return List.of();
+        }
+
+        // shared cache or fresh fetch (one replica fetches, others reuse)
+        TieredCache.Loaded<List<StationObservation>> loaded = tieredCache.load(CACHE, id, TYPE, () -> fetchLatest(id, stationId),
+                (data, fetchedAt) -> cadence.expiresAt(id, ObservationIngest.newest(data), fetchedAt));
+        if (loaded == null) {
+            stationHealth.failure(healthKey);
+            return List.of();
+        }
+        // L2 copy is a fresh mutable list after deserialization
+        List<StationObservation> observations = List.copyOf(loaded.value());
+        stationHealth.observed(healthKey, ObservationIngest.newest(observations));
+
+        // Update cache (same expiry as L2), new data goes to the ingest pipeline once
+        List<StationObservation> previous = cacheData.put(id, observations);
+        cacheExpires.put(id, loaded.expiresAt());
+        if (!observations.equals(previous)) {
+            ingest.publishObservations("vedur-aws", healthKey, observations);
         }
 
-        // Fetch fresh observations for requested station
+        return ObservationIngest.window(observations, from, to); // filter by requested time window
+    }
+
+    // Fetch + normalize fresh observations for requested station (null on error or empty response)
+    private List<StationObservation> fetchLatest(String id, String stationId) {
         try {
-            List<VedurAwsDto.Aws10minBasic> response = http.get()
+            List<VedurAwsDto.Aws10minBasic> response = Deadline.bind(http.get()
                     .uri(uriBuilder -> uriBuilder
                             .path("/weather/observations/aws/10min/latest")
                             .queryParam("station_id", id)
@@ -68,22 +134,65 @@ public class VedurAwsProvider implements StationProvider {
                             resp -> resp.bodyToMono(String.class).map(body ->
                                     new RuntimeException("IMO latest failed " + resp.statusCode() + " body=" + body)))
                     .bodyToMono(new ParameterizedTypeReference<List<VedurAwsDto.Aws10minBasic>>() {
-                    })
+                    }), null)
                     .block();
 
-            if (response == null || response.isEmpty()) {
-                return List.of();
-            }
+            List<StationObservation> observations = ObservationIngest.imo(stationId, response);
+            return observations.isEmpty() ? null : observations;
+        } catch (Deadline.Exceeded e) {
+            throw e; // request gave up, not an upstream failure
+        } catch (Exception e) {
+            return null;
+        }
+    }
 
-            // Update cache
-            cacheData.put(id, response);
-            cacheTime.put(id, Instant.now());
+    // another replica stored a newer value
+    private void evict(String id) {
+        cacheData.remove(id);
+        cacheExpires.remove(id);
+    }
 
-            return VedurAwsDto.map(stationId, response).stream() // stream fresh observations
-                    .filter(o -> !o.timestamp().isBefore(from) && !o.timestamp().isAfter(to)) // filter by requested time window
-                    .toList();
-        } catch (Exception e) {
-            return List.of();
+    @Override
+    public String snapshotName() {
+        return "vedur-aws";
+    }
+
+    @Override
+    public void writeSnapshot(DataOutputStream out) throws IOException {
+        Map<String, List<StationObservation>> data = Map.copyOf(cacheData);
+        out.writeInt(data.size());
+        for (var entry : data.entrySet()) {
+            writeString(out, entry.getKey());
+            writeInstant(out, cacheExpires.getOrDefault(entry.getKey(), Instant.EPOCH));
+            out.writeInt(entry.getValue().size());
+            for (StationObservation o : entry.getValue()) {
+                writeString(out, o.stationId());
+                writeInstant(out, o.timestamp());
+                writeDouble(out, o.tempC());
+                writeDouble(out, o.windMs());
+                writeDouble(out, o.gustMs());
+                writeDouble(out, o.visibilityM());
+                writeString(out, o.precipType());
+            }
+        }
+    }
+
+    @Override
+    public void readSnapshot(DataInputStream in) throws IOException {
+        int entries = in.readInt();
+        for (int i = 0; i < entries; i++) {
+            String id = readString(in);
+            Instant expiresAt = readInstant(in);
+            int n = in.readInt();
+            List<StationObservation> list = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                list.add(new StationObservation(readString(in), readInstant(in),
+                        readDouble(in), readDouble(in), readDouble(in), readDouble(in), readString(in)));
+            }
+            if (Instant.now().isBefore(expiresAt)) {
+                cacheData.put(id, List.copyOf(list));
+                cacheExpires.put(id, expiresAt);
+            }
         }
     }
 }
@@ -1,29 +1,67 @@
 package dk.ek.roadsai.service.provider;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.service.cache.TieredCache;
+import dk.ek.roadsai.service.events.IngestPipeline;
+import dk.ek.roadsai.service.health.StationHealthRegistry;
+import dk.ek.roadsai.service.replay.UpstreamTape;
+import dk.ek.roadsai.service.snapshot.SnapshotParticipant;
+import dk.ek.roadsai.service.timing.Deadline;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static dk.ek.roadsai.service.snapshot.SnapshotIO.*;
 
 /// Veður.is CAP (Common Alerting Protocol) alerts provider
-// 30 min caching to reduce load on API
+// 30 min caching to reduce load on API (local L1 + shared L2 across replicas)
+// failing locations are skipped during backoff (StationHealthRegistry)
 @Service
-public class VedurCapProvider {
-    private final WebClient http = WebClient.builder()
-            .baseUrl("https://api.vedur.is")
-            .defaultHeader("User-Agent", "roadsai/1.0")
-            .build();
+public class VedurCapProvider implements SnapshotParticipant {
+    private static final String CACHE = "vedur-cap";
+    private static final TypeReference<List<CapAlert>> TYPE = new TypeReference<>() {
+    };
+
+    private final WebClient http;
+    private final TieredCache tieredCache;
+    private final StationHealthRegistry stationHealth;
+    private final IngestPipeline ingest;
 
-    //caching
+    //caching (concurrent: requests run on virtual threads)
     private static final Duration TTL = Duration.ofMinutes(30);
-    private final Map<String, List<CapAlert>> cache = new HashMap<>();
-    private final Map<String, Instant> cacheTime = new HashMap<>();
+    private final Map<String, List<CapAlert>> cache = new ConcurrentHashMap<>();
+    private final Map<String, Instant> cacheTime = new ConcurrentHashMap<>();
+
+    public VedurCapProvider(@Value("${vedur.api.base-url:https://api.vedur.is}") String baseUrl,
+                            TieredCache tieredCache,
+                            StationHealthRegistry stationHealth,
+                            UpstreamTape upstreamTape,
+                            IngestPipeline ingest) {
+        this.tieredCache = tieredCache;
+        this.stationHealth = stationHealth;
+        this.ingest = ingest;
+        tieredCache.onInvalidate(CACHE, key -> {
+            cache.remove(key);
+            cacheTime.remove(key);
+        });
+        this.http = WebClient.builder()
+                .baseUrl(baseUrl)
+                .filter(upstreamTape.filter("vedur-cap"))
+                .defaultHeader("User-Agent", "roadsai/1.0")
+                .build();
+    }
 
     /**
      * Fetch CAP alerts for a station location
@@ -39,32 +77,97 @@ public class VedurCapProvider {
         if (cache.containsKey(cacheKey) &&
                 cacheTime.containsKey(cacheKey) &&
                 Duration.between(cacheTime.get(cacheKey), Instant.now()).compareTo(TTL) < 0) {
+            tieredCache.l1Hit(CACHE);
             return cache.get(cacheKey);
         }
 
+        // negative cache: recent failure for this location
+        String healthKey = "cap:" + cacheKey;
+        if (stationHealth.inBackoff(healthKey)) {
+            return List.of();
+        }
+
+        // shared cache or fresh fetch (one replica fetches, others reuse)
+        TieredCache.Loaded<List<CapAlert>> loaded = tieredCache.load(CACHE, cacheKey, TTL, TYPE,
+                () -> fetchFresh(latitude, longitude));
+        if (loaded == null) {
+            stationHealth.failure(healthKey);
+            return List.of();
+        }
+        stationHealth.success(healthKey);
+
+        // Update cache, new data goes to the ingest pipeline once
+        List<CapAlert> previous = cache.put(cacheKey, loaded.value());
+        cacheTime.put(cacheKey, loaded.fetchedAt());
+        if (!loaded.value().equals(previous)) {
+            ingest.publishAlerts("vedur-cap", cacheKey, loaded.value());
+        }
+        return loaded.value();
+    }
+
+    // null on error (not cached)
+    private List<CapAlert> fetchFresh(double latitude, double longitude) {
         try {
             // Fetch CAP alerts (30km radius)
-            List<CapAlert> alerts = http.get()
+            List<CapAlert> alerts = Deadline.bind(http.get()
                     .uri(uriBuilder -> uriBuilder
                             .path("/cap/v1/lat/{lat}/long/{lon}/srid/4326/distance/30/")
                             .build(latitude, longitude))
                     .retrieve()
                     .bodyToMono(new ParameterizedTypeReference<List<CapAlert>>() {
-                    })
+                    }), null)
                     .block();
 
-            if (alerts == null) {
-                alerts = List.of();
-            }
+            return alerts != null ? alerts : List.of();
+        } catch (Deadline.Exceeded e) {
+            throw e; // request gave up, not an upstream failure
+        } catch (Exception e) {
+            return null;
+        }
+    }
 
-            // Update cache
-            cache.put(cacheKey, alerts);
-            cacheTime.put(cacheKey, Instant.now());
+    @Override
+    public String snapshotName() {
+        return "vedur-cap";
+    }
 
-            return alerts;
-        } catch (Exception e) {
-            return List.of();
+    @Override
+    public void writeSnapshot(DataOutputStream out) throws IOException {
+        Map<String, List<CapAlert>> data = Map.copyOf(cache);
+        out.writeInt(data.size());
+        for (var entry : data.entrySet()) {
+            writeString(out, entry.getKey());
+            writeInstant(out, cacheTime.getOrDefault(entry.getKey(), Instant.EPOCH));
+            out.writeInt(entry.getValue().size());
+            for (CapAlert a : entry.getValue()) {
+                writeString(out, a.severity);
+                writeString(out, a.eventType);
+                writeString(out, a.description);
+                writeString(out, a.headline);
+            }
         }
     }
-}
 
+    @Override
+    public void readSnapshot(DataInputStream in) throws IOException {
+        int entries = in.readInt();
+        for (int i = 0; i < entries; i++) {
+            String key = readString(in);
+            Instant fetchedAt = readInstant(in);
+            int n = in.readInt();
+            List<CapAlert> alerts = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                CapAlert a = new CapAlert();
+                a.severity = readString(in);
+                a.eventType = readString(in);
+                a.description = readString(in);
+                a.headline = readString(in);
+                alerts.add(a);
+            }
+            if (Duration.between(fetchedAt, Instant.now()).compareTo(TTL) < 0) {
+                cache.put(key, alerts);
+                cacheTime.put(key, fetchedAt);
+            }
+        }
+    }
+}
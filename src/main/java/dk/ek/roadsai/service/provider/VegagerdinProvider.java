@@ -6,33 +6,58 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import dk.ek.roadsai.dto.vegagerdin.VegagerdinItemDto;
 import dk.ek.roadsai.model.Station;
 import dk.ek.roadsai.model.StationObservation;
+import dk.ek.roadsai.service.cache.TieredCache;
+import dk.ek.roadsai.service.events.IngestPipeline;
+import dk.ek.roadsai.service.health.StationHealthRegistry;
+import dk.ek.roadsai.service.ingest.ObservationIngest;
+import dk.ek.roadsai.service.replay.UpstreamTape;
+import dk.ek.roadsai.service.snapshot.SnapshotParticipant;
+import dk.ek.roadsai.service.timing.Deadline;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
-import java.time.*;
-import java.time.format.DateTimeFormatter;
-import java.util.*;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import static dk.ek.roadsai.service.snapshot.SnapshotIO.*;
+
 
 /// Vegagerðin road weather station data provider
-// 15 min caching to reduce load on API
+// cached until right after the next 10-min observation is due (ObservationCadence, local L1 + shared L2 across replicas)
+// failing feed is skipped during backoff, per-station health from the newest observation in the feed
+// the feed is parsed + normalized once per fetch (ObservationIngest), cache hits reuse the per-station lists
+// the feed covers every road weather station in Iceland: our corridor stations + the newest row of all (heatmap)
 @Service
-public class VegagerdinProvider implements StationProvider {
+public class VegagerdinProvider implements StationProvider, SnapshotParticipant {
+    private static final String CACHE = "vegagerdin";
+    private static final String BULK_KEY = "vedur2014_1";
+    private static final String FEED_HEALTH_KEY = "veg:feed";
+    private static final TypeReference<String> TYPE = new TypeReference<>() {
+    };
 
-    private static final String BASE = "https://gagnaveita.vegagerdin.is";
-    private final WebClient http = WebClient.builder().baseUrl(BASE).build();
+    private final WebClient http;
+    private final TieredCache tieredCache;
+    private final StationHealthRegistry stationHealth;
+    private final IngestPipeline ingest;
     private final ObjectMapper json = new ObjectMapper()
             .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
-    //caching (15 min TTL)
-    private static final Duration TTL = Duration.ofMinutes(15);
-    private Instant lastFetchAt = Instant.EPOCH;
-    private String lastJson = null;
+    //caching (bulk feed, expiry from newest observation of our stations)
+    private static final Duration MAX_TTL = Duration.ofMinutes(15); // silent feed upper bound
+    private volatile Instant lastExpiresAt = Instant.EPOCH;
+    private volatile String lastJson = null;
+    private volatile Normalized normalized = new Normalized(null, Map.of(), List.of()); // last ingested body
+    private final ObservationCadence cadence =
+            new ObservationCadence(Duration.ofMinutes(10), Duration.ofMinutes(2), MAX_TTL);
 
-    // Vegagerdin JSON timestamps ("4.11.2025 21:50:00")
-    private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("d.M.yyyy HH:mm:ss");
-    private static final ZoneId Z_REYK = ZoneId.of("Atlantic/Reykjavik");
     //fixed for RVK↔IFJ
     private final List<Station> registry = List.of(
             new Station("veg:31674", "HFNFJ (Hafnarfjall)", 64.4755, -21.9603, "VEGAGERDIN"),
@@ -41,6 +66,21 @@ public class VegagerdinProvider implements StationProvider {
             new Station("veg:32474", "STEHE (Steingrímsfjarðarheiði)", 65.7503, -22.1291, "VEGAGERDIN"),
             new Station("veg:32654", "OGURI (Ögur)", 66.0449, -22.6817, "VEGAGERDIN")
     );
+    private final Set<Integer> registryNr = registry.stream()
+            .map(s -> Integer.parseInt(s.id().substring("veg:".length())))
+            .collect(Collectors.toUnmodifiableSet());
+
+    public VegagerdinProvider(@Value("${vegagerdin.api.base-url:https://gagnaveita.vegagerdin.is}") String baseUrl,
+                              TieredCache tieredCache,
+                              StationHealthRegistry stationHealth,
+                              UpstreamTape upstreamTape,
+                              IngestPipeline ingest) {
+        this.http = WebClient.builder().baseUrl(baseUrl).filter(upstreamTape.filter("vegagerdin")).build();
+        this.tieredCache = tieredCache;
+        this.stationHealth = stationHealth;
+        this.ingest = ingest;
+        tieredCache.onInvalidate(CACHE, key -> lastExpiresAt = Instant.EPOCH);
+    }
 
     @Override
     public List<Station> listStations() {
@@ -49,66 +89,126 @@ public class VegagerdinProvider implements StationProvider {
 
     @Override
     public List<StationObservation> fetchObservations(String stationId, Instant from, Instant to) {
-        // Strip "veg:" prefix + parse numeric station ID
-        final String nrStr = stationId.startsWith("veg:") ? stationId.substring(4) : stationId;
-        final int nrWanted;
-        try {
-            nrWanted = Integer.parseInt(nrStr);
-        } catch (Exception e) {
-            return List.of(); // Invalid station ID format
+        Normalized feed = feed();
+        if (feed == null) {
+            return List.of();
         }
 
-        // 1) Fetch JSON array (bulk) (cache-check)
-        String jsonStr = null;
-        if (lastJson != null && Duration.between(lastFetchAt, Instant.now()).compareTo(TTL) < 0) {
-            jsonStr = lastJson;
-        } else {
-            // Fetch fresh JSON + update cache
-            jsonStr = http.get().uri("/api/vedur2014_1")
-                    .retrieve().bodyToMono(String.class).block();
-            lastJson = jsonStr;
-            lastFetchAt = Instant.now();
+        // Requested station (stationIds are "veg:<nr>"), filtered by time window
+        List<StationObservation> observations = feed.byStation().get(stationId);
+        return observations == null ? List.of() : ObservationIngest.window(observations, from, to);
+    }
+
+    /// Newest observation of every road weather station in the national feed (same cached fetch as our stations)
+    public List<ObservationIngest.Latest> nationalObservations() {
+        Normalized feed = feed();
+        return feed == null ? List.of() : feed.national();
+    }
+
+    // normalized bulk feed from L1, or shared cache / fresh fetch; null when unavailable (failing or in backoff)
+    private Normalized feed() {
+        if (lastJson != null && Instant.now().isBefore(lastExpiresAt)) {
+            tieredCache.l1Hit(CACHE);
+            return normalize(lastJson);
         }
-        
-        if (jsonStr == null || jsonStr.isBlank()) {
-            return List.of();
+        if (stationHealth.inBackoff(FEED_HEALTH_KEY)) { // negative cache: feed failed recently
+            return null;
+        }
+        // shared cache or fresh fetch (one replica fetches, others reuse) + update cache
+        TieredCache.Loaded<String> loaded = tieredCache.load(CACHE, BULK_KEY, TYPE, this::fetchFeed,
+                (body, fetchedAt) -> cadence.expiresAt(BULK_KEY, newest(normalize(body).byStation()), fetchedAt));
+        if (loaded == null) {
+            stationHealth.failure(FEED_HEALTH_KEY);
+            registry.forEach(s -> stationHealth.failure(s.id()));
+            return null;
         }
+        Normalized feed = normalize(loaded.value()); // already normalized for the expiry on the fetching replica
+        if (!loaded.value().equals(lastJson)) {
+            feed.byStation().forEach((id, list) -> ingest.publishObservations("vegagerdin", id, list));
+        }
+        lastJson = loaded.value();
+        lastExpiresAt = loaded.expiresAt();
+        recordHealth(feed.byStation());
+        return feed;
+    }
 
-        // 2) Parse JSON array directly into DTOs
-        List<VegagerdinItemDto> vedur;
+    // bulk feed (null on error or empty body, not cached)
+    private String fetchFeed() {
         try {
-            vedur = json.readValue(jsonStr, new TypeReference<List<VegagerdinItemDto>>() {});
+            String body = Deadline.bind(http.get().uri("/api/vedur2014_1").retrieve().bodyToMono(String.class), null).block();
+            return body == null || body.isBlank() ? null : body;
+        } catch (Deadline.Exceeded e) {
+            throw e; // request gave up, not an upstream failure
         } catch (Exception e) {
-            return List.of(); // JSON parsing failed
+            return null;
         }
+    }
+
+    // byStation: our stations' observations ("veg:<nr>" -> time-sorted, immutable), national: newest row per station
+    private record Normalized(String json, Map<String, List<StationObservation>> byStation,
+                              List<ObservationIngest.Latest> national) {
+    }
 
-        // 3) Filter for requested station and time window
-        return vedur.stream() // stream all vegagerdin observations
-                .filter(v -> v != null && v.nrVedurstofa != null && v.nrVedurstofa.equals(nrWanted)) // filter by station ID
-                .map(v -> toObs(stationId, v, Z_REYK)) // convert DTO to model
-                .filter(Objects::nonNull) // skip malformed observations
-                .filter(o -> !o.timestamp().isBefore(from) && !o.timestamp().isAfter(to)) // filter by requested time window
-                .collect(Collectors.toList());
+    // ingest once per distinct feed body (expiry callback, fresh load and L1 hits share the result)
+    private Normalized normalize(String jsonStr) {
+        Normalized n = normalized;
+        if (jsonStr.equals(n.json())) {
+            return n;
+        }
+        n = ingest(jsonStr);
+        normalized = n;
+        return n;
     }
 
-    // Converts a VegagerdinItemDto to StationObservation
-    private StationObservation toObs(String stationId, VegagerdinItemDto v, ZoneId zone) {
+    // bulk feed parsed once for both views, empty if unparseable
+    private Normalized ingest(String jsonStr) {
         try {
-            var local = LocalDateTime.parse(v.dags, FMT);
-            var ts = local.atZone(zone).toInstant(); // Parse local Iceland time → convert to UTC Instant
-            Double wind = v.vindhradi;
-            Double gust = v.vindhvida;
-            return new StationObservation(
-                    stationId,
-                    ts,
-                    v.hiti,
-                    wind,
-                    gust,
-                    null,  // visibility not provided in this feed
-                    null   // precip not provided
-            );
+            List<VegagerdinItemDto> rows = json.readValue(jsonStr, new TypeReference<List<VegagerdinItemDto>>() {});
+            return new Normalized(jsonStr, ObservationIngest.vegagerdin(rows, registryNr), ObservationIngest.vegagerdinLatest(rows));
         } catch (Exception e) {
-            return null;
+            return new Normalized(jsonStr, Map.of(), List.of()); // unparseable feed = no observations
+        }
+    }
+
+    // newest observation of any of our stations (null if none)
+    private static Instant newest(Map<String, List<StationObservation>> byStation) {
+        Instant newest = null;
+        for (List<StationObservation> list : byStation.values()) {
+            Instant t = ObservationIngest.newest(list);
+            if (t != null && (newest == null || t.isAfter(newest))) {
+                newest = t;
+            }
+        }
+        return newest;
+    }
+
+    // feed ok: each station is OK, or STALE if it has no recent observation in the feed
+    private void recordHealth(Map<String, List<StationObservation>> byStation) {
+        stationHealth.success(FEED_HEALTH_KEY);
+        for (Station s : registry) {
+            stationHealth.observed(s.id(), ObservationIngest.newest(byStation.get(s.id())));
+        }
+    }
+
+    @Override
+    public String snapshotName() {
+        return "vegagerdin";
+    }
+
+    @Override
+    public void writeSnapshot(DataOutputStream out) throws IOException {
+        writeInstant(out, lastExpiresAt);
+        writeString(out, lastJson);
+    }
+
+    @Override
+    public void readSnapshot(DataInputStream in) throws IOException {
+        Instant expiresAt = readInstant(in);
+        String jsonStr = readString(in);
+        if (jsonStr != null && Instant.now().isBefore(expiresAt)) {
+            normalize(jsonStr);
+            lastJson = jsonStr;
+            lastExpiresAt = expiresAt;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,88 +1,127 @@
 package dk.ek.roadsai.service.provider;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dk.ek.roadsai.dto.yr.YrNoForecastDto;
 import dk.ek.roadsai.model.ForecastPoint;
-import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.service.cache.TieredCache;
+import dk.ek.roadsai.service.events.IngestPipeline;
+import dk.ek.roadsai.service.health.StationHealthRegistry;
+import dk.ek.roadsai.service.replay.UpstreamTape;
+import dk.ek.roadsai.service.snapshot.SnapshotParticipant;
+import dk.ek.roadsai.service.timing.Deadline;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static dk.ek.roadsai.service.snapshot.SnapshotIO.*;
 
 /// YR.no weather forecast provider with 1 hour caching
+// coordinates are snapped to the model grid, so nearby stations share one fetch + cache entry
+// failing grid cells are skipped during backoff (StationHealthRegistry)
 @Service
-public class YrNoProvider {
-    private final WebClient http = WebClient.builder()
-            .baseUrl("https://api.met.no")
-            .defaultHeader("User-Agent", "roadsai/1.0")
-            .build();
+public class YrNoProvider implements SnapshotParticipant {
+    private static final String CACHE = "yr-no";
+    private static final TypeReference<List<ForecastPoint>> TYPE = new TypeReference<>() {
+    };
+
+    private final WebClient http;
+    private final TieredCache tieredCache;
+    private final StationHealthRegistry stationHealth;
+    private final IngestPipeline ingest;
 
-    // caching (1 hr)
+    // caching (1 hr, local L1 + shared L2 across replicas), parsed time series per grid cell (concurrent: requests run on virtual threads)
     private static final Duration TTL = Duration.ofHours(1);
-    private final Map<String, YrNoForecastDto> cache = new HashMap<>();
-    private final Map<String, Instant> cacheTime = new HashMap<>();
+    private final Map<String, List<ForecastPoint>> cache = new ConcurrentHashMap<>();
+    private final Map<String, Instant> cacheTime = new ConcurrentHashMap<>();
     private final ObjectMapper json = new ObjectMapper();
 
-    // fetch forecasts for stations (get coordinates from (corridor) in controller)
-    public List<ForecastPoint> fetchForecastForStations(List<Station> stations) {
-        List<ForecastPoint> forecasts = new ArrayList<>();
-        Instant now = Instant.now(); // set current time now (to skip past forecasts)
-
-        // build corridor-list for yr.no API calls
-        for (Station station : stations) {
-            double lat = station.latitude();
-            double lon = station.longitude();
-            String cacheKey = lat + "," + lon;
-
-            // Fetch forecast (from cache or API)
-            YrNoForecastDto dto = fetchForecast(lat, lon, cacheKey);
-            if (dto != null && dto.properties != null && dto.properties.timeseries != null) { // parse forecast points
-                for (YrNoForecastDto.TimeStep step : dto.properties.timeseries) { // for each forecast time step
-                    if (step.data != null && step.data.instant != null && step.data.instant.details != null) { // valid data
-                        Instant time = ZonedDateTime.parse(step.time).toInstant(); // parse forecast time
-                        // Only include future forecasts (yr.no API provides ~10 days)
-                        if (time.isBefore(now)) continue;
-                        
-                        var details = step.data.instant.details; // extract current weather details
-                        Double precip = step.data.next1Hours != null && step.data.next1Hours.details != null // extract precip if available (null-safe)
-                            ? step.data.next1Hours.details.precipitationAmount : null; // precip in next 1 hour
-                        forecasts.add(new ForecastPoint(
-                                time,
-                                lat,
-                                lon,
-                                details.airTemperature,
-                                details.windSpeed,
-                                precip
-                        ));
-                    }
-                }
-            }
-        }
-        return forecasts;
+    // grid step in degrees (met.no model grid is coarser than station spacing)
+    @Value("${forecast.grid.step:0.05}")
+    private double gridStep = 0.05;
+
+    public YrNoProvider(@Value("${yr.api.base-url:https://api.met.no}") String baseUrl,
+                        TieredCache tieredCache,
+                        StationHealthRegistry stationHealth,
+                        UpstreamTape upstreamTape,
+                        IngestPipeline ingest) {
+        this.tieredCache = tieredCache;
+        this.stationHealth = stationHealth;
+        this.ingest = ingest;
+        tieredCache.onInvalidate(CACHE, key -> {
+            cache.remove(key);
+            cacheTime.remove(key);
+        });
+        this.http = WebClient.builder()
+                .baseUrl(baseUrl)
+                .filter(upstreamTape.filter("yr-no"))
+                .defaultHeader("User-Agent", "roadsai/1.0")
+                .build();
     }
 
-    private YrNoForecastDto fetchForecast(double lat, double lon, String cacheKey) {
+    /**
+     * Fetch full forecast time series for the grid cell containing a coordinate
+     *
+     * @param latitude  Latitude (snapped to grid)
+     * @param longitude Longitude (snapped to grid)
+     * @return Forecast points sorted by time, with grid cell coordinates (empty on error)
+     */
+    public List<ForecastPoint> fetchSeries(double latitude, double longitude) {
+        double lat = snap(latitude);
+        double lon = snap(longitude);
+        String cacheKey = gridKey(lat, lon);
+
         // Check cache (1 hr)
         if (cache.containsKey(cacheKey) && cacheTime.containsKey(cacheKey) &&
                 Duration.between(cacheTime.get(cacheKey), Instant.now()).compareTo(TTL) < 0) {
+            tieredCache.l1Hit(CACHE);
             return cache.get(cacheKey);
         }
 
+        // negative cache: recent failure for this grid cell
+        String healthKey = "yr:" + cacheKey;
+        if (stationHealth.inBackoff(healthKey)) {
+            return List.of();
+        }
+
+        // shared cache or fresh fetch (one replica fetches, others reuse)
+        TieredCache.Loaded<List<ForecastPoint>> loaded = tieredCache.load(CACHE, cacheKey, TTL, TYPE, () -> fetchFresh(lat, lon));
+        if (loaded == null) {
+            stationHealth.failure(healthKey);
+            return List.of();
+        }
+        stationHealth.success(healthKey);
+        List<ForecastPoint> previous = cache.put(cacheKey, loaded.value());
+        cacheTime.put(cacheKey, loaded.fetchedAt());
+        if (!loaded.value().equals(previous)) {
+            ingest.publishForecast("yr-no", cacheKey, loaded.value()); // new data goes to the ingest pipeline once
+        }
+        return loaded.value();
+    }
+
+    // null on error (not cached)
+    private List<ForecastPoint> fetchFresh(double lat, double lon) {
         try {
-            String response = http.get()
+            String response = Deadline.bind(http.get()
                     .uri(uriBuilder -> uriBuilder
                             .path("/weatherapi/locationforecast/2.0/compact")
-                            .queryParam("lat", lat)
-                            .queryParam("lon", lon)
+                            .queryParam("lat", String.format(Locale.ROOT, "%.4f", lat))
+                            .queryParam("lon", String.format(Locale.ROOT, "%.4f", lon))
                             .build())
                     .retrieve()
-                    .bodyToMono(String.class)
+                    .bodyToMono(String.class), null)
                     .block();
 
             if (response == null || response.isBlank()) {
@@ -90,12 +129,88 @@ public class YrNoProvider {
             }
 
             YrNoForecastDto dto = json.readValue(response, YrNoForecastDto.class);
-            cache.put(cacheKey, dto);
-            cacheTime.put(cacheKey, Instant.now());
-            return dto;
+            return toSeries(dto, lat, lon);
+        } catch (Deadline.Exceeded e) {
+            throw e; // request gave up, not an upstream failure
         } catch (Exception e) {
             return null;
         }
     }
-}
 
+    // cache key for a grid cell ("lat,lon" with fixed precision, so 64.10000001 == 64.1)
+    public String gridKey(double latitude, double longitude) {
+        return String.format(Locale.ROOT, "%.4f,%.4f", snap(latitude), snap(longitude));
+    }
+
+    private double snap(double value) {
+        return Math.round(value / gridStep) * gridStep;
+    }
+
+    // parses DTO time steps once per fetch (cache hits skip ZonedDateTime parsing)
+    private List<ForecastPoint> toSeries(YrNoForecastDto dto, double lat, double lon) {
+        List<ForecastPoint> series = new ArrayList<>();
+        if (dto == null || dto.properties == null || dto.properties.timeseries == null) {
+            return series;
+        }
+        for (YrNoForecastDto.TimeStep step : dto.properties.timeseries) { // for each forecast time step
+            if (step.data != null && step.data.instant != null && step.data.instant.details != null) { // valid data
+                Instant time = ZonedDateTime.parse(step.time).toInstant(); // parse forecast time
+                var details = step.data.instant.details; // extract current weather details
+                Double precip = step.data.next1Hours != null && step.data.next1Hours.details != null // extract precip if available (null-safe)
+                        ? step.data.next1Hours.details.precipitationAmount : null; // precip in next 1 hour
+                series.add(new ForecastPoint(
+                        time,
+                        lat,
+                        lon,
+                        details.airTemperature,
+                        details.windSpeed,
+                        precip
+                ));
+            }
+        }
+        return List.copyOf(series);
+    }
+
+    @Override
+    public String snapshotName() {
+        return "yr-no";
+    }
+
+    @Override
+    public void writeSnapshot(DataOutputStream out) throws IOException {
+        Map<String, List<ForecastPoint>> data = Map.copyOf(cache);
+        out.writeInt(data.size());
+        for (var entry : data.entrySet()) {
+            writeString(out, entry.getKey());
+            writeInstant(out, cacheTime.getOrDefault(entry.getKey(), Instant.EPOCH));
+            out.writeInt(entry.getValue().size());
+            for (ForecastPoint f : entry.getValue()) {
+                writeInstant(out, f.time());
+                out.writeDouble(f.latitude());
+                out.writeDouble(f.longitude());
+                writeDouble(out, f.tempC());
+                writeDouble(out, f.windMs());
+                writeDouble(out, f.precipMm());
+            }
+        }
+    }
+
+    @Override
+    public void readSnapshot(DataInputStream in) throws IOException {
+        int entries = in.readInt();
+        for (int i = 0; i < entries; i++) {
+            String key = readString(in);
+            Instant fetchedAt = readInstant(in);
+            int n = in.readInt();
+            List<ForecastPoint> series = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                series.add(new ForecastPoint(readInstant(in), in.readDouble(), in.readDouble(),
+                        readDouble(in), readDouble(in), readDouble(in)));
+            }
+            if (Duration.between(fetchedAt, Instant.now()).compareTo(TTL) < 0) {
+                cache.put(key, List.copyOf(series));
+                cacheTime.put(key, fetchedAt);
+            }
+        }
+    }
+}
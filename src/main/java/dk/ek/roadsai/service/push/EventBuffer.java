@@ -0,0 +1,47 @@
+package dk.ek.roadsai.service.push;
+
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/// Bounded per-connection event buffer (single consumer = the connection's sender thread).
+// full buffer drops the oldest event (newer snapshots supersede older ones)
+// a consumer that keeps the buffer full for maxDropped offers in a row is reported as too slow
+public class EventBuffer<E> {
+    private final LinkedBlockingDeque<E> queue;
+    private final int maxDropped;
+    private final AtomicInteger droppedSinceTake = new AtomicInteger();
+
+    public EventBuffer(int capacity, int maxDropped) {
+        this.queue = new LinkedBlockingDeque<>(capacity);
+        this.maxDropped = maxDropped;
+    }
+
+    /**
+     * Add an event, dropping the oldest one if full
+     *
+     * @param event Event to add
+     * @return false if the consumer is too slow (caller should disconnect it)
+     */
+    public boolean offer(E event) {
+        while (!queue.offerLast(event)) {
+            if (queue.pollFirst() != null && droppedSinceTake.incrementAndGet() > maxDropped) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // next event or null after timeout
+    public E poll(long timeoutMs) throws InterruptedException {
+        E event = queue.pollFirst(timeoutMs, TimeUnit.MILLISECONDS);
+        if (event != null) {
+            droppedSinceTake.set(0);
+        }
+        return event;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+}
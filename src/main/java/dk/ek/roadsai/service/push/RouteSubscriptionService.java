@@ -0,0 +1,326 @@
+package dk.ek.roadsai.service.push;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dk.ek.roadsai.dto.ObservationsRequest;
+import dk.ek.roadsai.model.StationObservation;
+import dk.ek.roadsai.service.ConditionsService;
+import dk.ek.roadsai.service.ai.AiGateway;
+import dk.ek.roadsai.service.ai.ObservationPromptBuilder;
+import dk.ek.roadsai.service.events.IngestEvent;
+import dk.ek.roadsai.service.events.IngestPipeline;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/// Live route conditions over SSE: one computation per data change per route, fanned out to all subscribers.
+// new observations/alerts on the ingest pipeline (or the push.poll-ms fallback poll) -> ConditionsService -> serialize once -> compare with last payload -> broadcast "conditions"
+// then AI advice once per change at BACKGROUND priority -> broadcast "advice"
+// each connection has its own bounded EventBuffer + virtual sender thread, slow connections are dropped
+@Service
+public class RouteSubscriptionService {
+
+    private final ConditionsService conditionsService;
+    private final ObservationPromptBuilder promptBuilder;
+    private final AiGateway aiGateway;
+    private final ObjectMapper json;
+    private final IngestPipeline ingest;
+
+    // RVK↔IFJ only (see RouteService)
+    private final Map<String, Topic> topics = Map.of(
+            "RVK-IFJ", new Topic("RVK", "IFJ"),
+            "IFJ-RVK", new Topic("IFJ", "RVK"));
+
+    @Value("${push.buffer-size:8}")
+    private int bufferSize = 8;
+    @Value("${push.max-dropped:16}")
+    private int maxDropped = 16;
+    @Value("${push.max-subscribers:10000}")
+    private int maxSubscribers = 10000;
+    @Value("${push.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs = 1800000; // EventSource reconnects by itself
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong subscriberSeq = new AtomicLong();
+
+    // ingest consumer thread only: newest observation seen per station
+    private final Map<String, Instant> newestObservation = new HashMap<>();
+    private boolean ingestDirty;
+
+    // counters for /api/admin/push
+    private final LongAdder snapshots = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder slowDisconnects = new LongAdder();
+    private final LongAdder ingestRefreshes = new LongAdder();
+
+    public RouteSubscriptionService(
+            ConditionsService conditionsService,
+            ObservationPromptBuilder promptBuilder,
+            AiGateway aiGateway,
+            ObjectMapper json,
+            IngestPipeline ingest) {
+        this.conditionsService = conditionsService;
+        this.promptBuilder = promptBuilder;
+        this.aiGateway = aiGateway;
+        this.json = json;
+        this.ingest = ingest;
+    }
+
+    @PostConstruct
+    void subscribeIngest() {
+        ingest.subscribe("push", this::onIngest);
+    }
+
+    public boolean isKnownRoute(String from, String to) {
+        return topics.containsKey(from + "-" + to);
+    }
+
+    /**
+     * Subscribe to a route, latest snapshot (if any) is sent right away
+     *
+     * @param from Route start (RVK/IFJ)
+     * @param to   Route end (RVK/IFJ)
+     * @return Emitter, or null if the subscriber limit is reached
+     */
+    public SseEmitter subscribe(String from, String to) {
+        Topic topic = topics.get(from + "-" + to);
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber sub = new Subscriber(subscriberSeq.incrementAndGet(), emitter, new EventBuffer<>(bufferSize, maxDropped));
+        emitter.onCompletion(() -> remove(topic, sub));
+        emitter.onTimeout(() -> remove(topic, sub));
+        emitter.onError(e -> remove(topic, sub));
+        topic.subscribers.add(sub);
+
+        Event last = topic.lastConditions;
+        if (last != null) {
+            sub.buffer.offer(last);
+            Event advice = topic.lastAdvice;
+            if (advice != null && advice.version() == last.version()) {
+                sub.buffer.offer(advice);
+            }
+        } else {
+            // first subscriber on an idle route: compute now instead of waiting for the next poll
+            Thread.ofVirtual().name("push-refresh").start(() -> refresh(topic));
+        }
+        Thread.ofVirtual().name("sse-" + sub.id).start(() -> sendLoop(topic, sub));
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${push.poll-ms:60000}", initialDelayString = "${push.poll-ms:60000}")
+    public void refreshAll() {
+        for (Topic topic : topics.values()) {
+            if (!topic.subscribers.isEmpty()) {
+                refresh(topic);
+            }
+        }
+    }
+
+    // SSE comment keeps idle connections open through proxies
+    @Scheduled(fixedDelayString = "${push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (Topic topic : topics.values()) {
+            broadcast(topic, Event.HEARTBEAT);
+        }
+    }
+
+    public Map<String, Long> stats() {
+        long buffered = 0;
+        for (Topic topic : topics.values()) {
+            for (Subscriber sub : topic.subscribers) {
+                buffered += sub.buffer.size();
+            }
+        }
+        return Map.of(
+                "subscribers", (long) subscribers.get(),
+                "snapshots", snapshots.sum(),
+                "unchanged", unchanged.sum(),
+                "sent", sent.sum(),
+                "buffered", buffered,
+                "slowDisconnects", slowDisconnects.sum(),
+                "ingestRefreshes", ingestRefreshes.sum()
+        );
+    }
+
+    // notification consumer: every registry station is on RVK↔IFJ, so a newer observation (or a changed alert
+    // set) on any of them refreshes both routes, once per pipeline batch, off the consumer thread
+    // refresh() re-reads the now warm provider caches, the refreshing flag coalesces with the poll
+    private void onIngest(IngestEvent event, long sequence, boolean endOfBatch) {
+        switch (event.type()) {
+            case OBSERVATIONS -> {
+                List<StationObservation> obs = event.observations();
+                if (!obs.isEmpty()) {
+                    Instant newest = obs.getLast().timestamp(); // time-sorted
+                    Instant seen = newestObservation.get(event.key());
+                    if (seen == null || newest.isAfter(seen)) {
+                        newestObservation.put(event.key(), newest);
+                        ingestDirty = true;
+                    }
+                }
+            }
+            case ALERTS -> ingestDirty = true;
+            case FORECAST -> {
+                // forecasts only change with the yr.no model run, the poll picks them up
+            }
+        }
+        if (endOfBatch && ingestDirty) {
+            ingestDirty = false;
+            for (Topic topic : topics.values()) {
+                if (!topic.subscribers.isEmpty()) {
+                    ingestRefreshes.increment();
+                    Thread.ofVirtual().name("push-refresh").start(() -> refresh(topic));
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void closeAll() {
+        for (Topic topic : topics.values()) {
+            for (Subscriber sub : topic.subscribers) {
+                sub.emitter.complete();
+                remove(topic, sub);
+            }
+        }
+    }
+
+    // computes the route snapshot once, broadcasts only if the payload changed
+    private void refresh(Topic topic) {
+        if (!topic.refreshing.compareAndSet(false, true)) {
+            return; // concurrent refresh (first subscriber + poll) would compute the same snapshot
+        }
+        try {
+            ConditionsService.Conditions c = conditionsService.gather(new ObservationsRequest(topic.from, topic.to, null, null));
+            String payload = json.writeValueAsString(c.toResponse());
+            Event last = topic.lastConditions;
+            if (last != null && last.payload().equals(payload)) {
+                unchanged.increment();
+                return;
+            }
+            snapshots.increment();
+            Event conditions = new Event("conditions", topic.version.incrementAndGet(), payload);
+            topic.lastConditions = conditions;
+            broadcast(topic, conditions);
+
+            // AI advice for this snapshot, off the poll thread (OpenAI can take seconds)
+            Thread.ofVirtual().name("push-advice").start(() -> publishAdvice(topic, c, conditions.version()));
+        } catch (Exception e) {
+            // keep last snapshot, retry on next poll
+        } finally {
+            topic.refreshing.set(false);
+        }
+    }
+
+    private void publishAdvice(Topic topic, ConditionsService.Conditions c, long version) {
+        try {
+            String systemPrompt = promptBuilder.buildSystemPrompt();
+            String userPrompt = promptBuilder.buildUserPrompt(
+                    "rvk-isf", topic.from, topic.to, c.stationFacts(), c.corridor(), c.forecasts(), c.forecastTime());
+            List<String> advice = aiGateway.ask(promptBuilder.format(), systemPrompt, userPrompt, c.ruleAdvice(), AiGateway.Priority.BACKGROUND);
+            if (topic.version.get() != version) {
+                return; // superseded by a newer snapshot
+            }
+            Event event = new Event("advice", version, json.writeValueAsString(advice));
+            topic.lastAdvice = event;
+            broadcast(topic, event);
+        } catch (Exception e) {
+            // subscribers keep the rule-based advice from the conditions event
+        }
+    }
+
+    private void broadcast(Topic topic, Event event) {
+        for (Subscriber sub : topic.subscribers) {
+            if (!sub.buffer.offer(event)) {
+                slowDisconnects.increment();
+                sub.emitter.complete();
+                remove(topic, sub);
+            }
+        }
+    }
+
+    // one virtual thread per connection: a blocked socket write only stalls its own buffer
+    private void sendLoop(Topic topic, Subscriber sub) {
+        try {
+            while (!sub.closed) {
+                Event event = sub.buffer.poll(1000);
+                if (event == null) {
+                    continue;
+                }
+                if (event == Event.HEARTBEAT) {
+                    sub.emitter.send(SseEmitter.event().comment("keepalive"));
+                } else {
+                    sub.emitter.send(SseEmitter.event()
+                            .name(event.name())
+                            .id(Long.toString(event.version()))
+                            .data(event.payload(), MediaType.APPLICATION_JSON));
+                    sent.increment();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // client gone
+        } finally {
+            remove(topic, sub);
+        }
+    }
+
+    private void remove(Topic topic, Subscriber sub) {
+        if (topic.subscribers.remove(sub)) {
+            subscribers.decrementAndGet();
+        }
+        sub.closed = true;
+    }
+
+    private static class Topic {
+        final String from;
+        final String to;
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        final AtomicLong version = new AtomicLong();
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile Event lastConditions;
+        volatile Event lastAdvice;
+
+        Topic(String from, String to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static class Subscriber {
+        final long id;
+        final SseEmitter emitter;
+        final EventBuffer<Event> buffer;
+        volatile boolean closed;
+
+        Subscriber(long id, SseEmitter emitter, EventBuffer<Event> buffer) {
+            this.id = id;
+            this.emitter = emitter;
+            this.buffer = buffer;
+        }
+    }
+
+    // payload is serialized once per snapshot and shared by all subscribers
+    private record Event(String name, long version, String payload) {
+        static final Event HEARTBEAT = new Event("heartbeat", 0, "");
+    }
+}
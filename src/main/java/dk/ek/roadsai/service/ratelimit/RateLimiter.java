@@ -0,0 +1,155 @@
+package dk.ek.roadsai.service.ratelimit;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/// Per-client token buckets (by API key or IP) with configurable tiers.
+// bucket = one AtomicLong "theoretical arrival time" (GCRA, same limits as a token bucket): acquire is one CAS, no lock
+// buckets live in a ConcurrentHashMap (striped bins), idle (= full) buckets are evicted, so eviction never loses state
+@Service
+public class RateLimiter {
+    public static final String ANONYMOUS = "anonymous";
+
+    // "tier:requests per minute:burst", anonymous = clients without a known API key (keyed by IP)
+    @Value("${ratelimit.tiers:anonymous:60:20,partner:600:100}")
+    private String tiersConfig = "anonymous:60:20,partner:600:100";
+    // "apiKey=tier", unknown keys fall back to anonymous by IP (random keys can't mint fresh buckets)
+    @Value("${ratelimit.api-keys:}")
+    private String apiKeysConfig = "";
+    // memory bound: new clients over the cap share one bucket per tier until the next eviction sweep
+    @Value("${ratelimit.max-clients:100000}")
+    private int maxClients = 100000;
+
+    private final Map<String, Tier> tiers = new LinkedHashMap<>();
+    private final Map<String, Tier> apiKeys = new HashMap<>();
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Bucket> overflow = new ConcurrentHashMap<>();
+    private final LongAdder evicted = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        for (String t : tiersConfig.split(",")) {
+            String[] p = t.trim().split(":");
+            if (p.length == 3) {
+                tiers.put(p[0], new Tier(p[0], Double.parseDouble(p[1]), Integer.parseInt(p[2])));
+            }
+        }
+        tiers.putIfAbsent(ANONYMOUS, new Tier(ANONYMOUS, 60, 20));
+        for (String k : apiKeysConfig.split(",")) {
+            String[] p = k.trim().split("=");
+            if (p.length == 2 && tiers.containsKey(p[1])) {
+                apiKeys.put(p[0], tiers.get(p[1]));
+            }
+        }
+    }
+
+    /**
+     * Takes cost tokens from the client's bucket
+     *
+     * @param apiKey   API key header (null/unknown = anonymous)
+     * @param clientIp Client address, bucket key for anonymous clients
+     * @param cost     Tokens for this request (expensive endpoints cost more)
+     * @return 0 if allowed, else nanoseconds until the request would be allowed (Retry-After)
+     */
+    public long acquire(String apiKey, String clientIp, int cost) {
+        Tier tier = apiKey != null ? apiKeys.get(apiKey) : null;
+        String key;
+        if (tier != null) {
+            key = "key:" + apiKey;
+        } else {
+            tier = tiers.get(ANONYMOUS);
+            key = "ip:" + clientIp;
+        }
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            Tier t = tier;
+            bucket = buckets.size() < maxClients
+                    ? buckets.computeIfAbsent(key, k -> new Bucket(t))
+                    : overflow.computeIfAbsent(t.name, k -> new Bucket(t));
+        }
+        long wait = bucket.tryAcquire(cost, System.nanoTime());
+        (wait == 0 ? tier.allowed : tier.rejected).increment();
+        return wait;
+    }
+
+    // drops buckets that have refilled completely (a new bucket would be identical)
+    // a request racing the removal may get one extra burst, acceptable for abuse protection
+    @Scheduled(fixedDelayString = "${ratelimit.evict-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(e -> {
+            boolean idle = e.getValue().idle(now);
+            if (idle) evicted.increment();
+            return idle;
+        });
+    }
+
+    // allowed/rejected per tier, tracked clients, evictions
+    public Map<String, Long> stats() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (Tier t : tiers.values()) {
+            out.put(t.name + ".allowed", t.allowed.sum());
+            out.put(t.name + ".rejected", t.rejected.sum());
+        }
+        out.put("clients", (long) buckets.size());
+        out.put("evicted", evicted.sum());
+        return out;
+    }
+
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+    }
+
+    private static class Tier {
+        final String name;
+        final long intervalNanos; // one token per interval
+        final long toleranceNanos; // burst
+        final LongAdder allowed = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+
+        Tier(String name, double perMinute, int burst) {
+            this.name = name;
+            this.intervalNanos = (long) (60_000_000_000L / perMinute);
+            this.toleranceNanos = intervalNanos * burst;
+        }
+    }
+
+    private static class Bucket {
+        final Tier tier;
+        final AtomicLong tat = new AtomicLong(Long.MIN_VALUE); // when the bucket is full again (nanoTime)
+
+        Bucket(Tier tier) {
+            this.tier = tier;
+        }
+
+        long tryAcquire(int cost, long now) {
+            while (true) {
+                long current = tat.get();
+                long base = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+                long next = base + cost * tier.intervalNanos;
+                long over = next - now - tier.toleranceNanos;
+                if (over > 0) {
+                    return over;
+                }
+                if (tat.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean idle(long now) {
+            long current = tat.get();
+            return current == Long.MIN_VALUE || current - now <= 0;
+        }
+    }
+}
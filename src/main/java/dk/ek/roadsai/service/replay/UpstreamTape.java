@@ -0,0 +1,281 @@
+package dk.ek.roadsai.service.replay;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static dk.ek.roadsai.service.snapshot.SnapshotIO.*;
+
+/// Record/replay of raw upstream HTTP exchanges (Vegagerðin, IMO AWS, CAP, yr.no, OpenAI) as a WebClient filter.
+// record: response status, headers, body + latency appended to a gzip archive (request headers, e.g. the API key, never)
+// replay: same source + method + path/query (+ body key) served from the archive in recorded order, after latency * replay.latency-scale
+// POST bodies are not buffered: callers whose response depends on the body (OpenAI prompts) set BODY_KEY_HEADER,
+// which becomes part of the key and is stripped before the request leaves the process
+// providers parse and cache replayed responses exactly like live ones, so a storm day can be profiled offline
+@Service
+public class UpstreamTape {
+    public enum Mode { OFF, RECORD, REPLAY }
+
+    public static final String BODY_KEY_HEADER = "X-Tape-Body-Key";
+
+    private static final int MAGIC = 0x52415432; // "RAT2"
+    private static final int STATUS_ERROR = 0; // connection error / timeout, replayed as an error
+    private static final byte[] EMPTY = new byte[0];
+    // hop-by-hop / transport headers don't apply to the buffered body
+    private static final Set<String> SKIP_HEADERS = Set.of("set-cookie", "transfer-encoding", "connection",
+            "content-encoding", "keep-alive");
+
+    public record Exchange(
+            String source,
+            String method,
+            String uri,      // path + query, base URL not included (replay works against any base URL)
+            String bodyKey,  // BODY_KEY_HEADER of the request, "" if none
+            int status,
+            Map<String, List<String>> headers,
+            long latencyMs,
+            Instant at,
+            byte[] body
+    ) {
+    }
+
+    @Value("${replay.mode:OFF}")
+    private Mode mode = Mode.OFF;
+    @Value("${replay.path:data/upstream-tape.bin.gz}")
+    private String path = "data/upstream-tape.bin.gz";
+    @Value("${replay.latency-scale:1.0}")
+    private double latencyScale = 1.0; // 1 = original latencies, 0 = none, 2 = twice as slow
+
+    private DataOutputStream out;
+    private final Map<String, List<Exchange>> tape = new HashMap<>();
+    private final Map<String, AtomicInteger> cursors = new ConcurrentHashMap<>();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path file = Path.of(path);
+        if (mode == Mode.RECORD) {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            // sync flush: every appended exchange is readable even if the process is killed
+            out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file), true));
+            out.writeInt(MAGIC);
+        } else if (mode == Mode.REPLAY) {
+            for (Exchange e : read(file)) {
+                tape.computeIfAbsent(key(e.source(), e.method(), e.uri(), e.bodyKey()), k -> new ArrayList<>()).add(e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    // filter for one upstream source ("vegagerdin", "vedur-aws", "vedur-cap", "yr-no", "openai")
+    public ExchangeFilterFunction filter(String source) {
+        return (request, next) -> switch (mode) {
+            case OFF -> next.exchange(stripBodyKey(request));
+            case RECORD -> record(source, request, next);
+            case REPLAY -> replay(source, request);
+        };
+    }
+
+    // value for BODY_KEY_HEADER: hash of whatever the request body is derived from
+    public static String bodyKey(String... parts) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                sha.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                sha.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(sha.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Map<String, Long> stats() {
+        return Map.of(
+                "recorded", recorded.sum(),
+                "replayed", replayed.sum(),
+                "misses", misses.sum(),
+                "tapeKeys", (long) tape.size()
+        );
+    }
+
+    private Mono<ClientResponse> record(String source, ClientRequest request, ExchangeFunction next) {
+        long started = System.nanoTime();
+        String method = request.method().name();
+        String uri = pathAndQuery(request.url());
+        String bodyKey = bodyKey(request);
+        return next.exchange(stripBodyKey(request))
+                .flatMap(response -> response.bodyToMono(byte[].class).defaultIfEmpty(EMPTY).map(body -> {
+                    append(new Exchange(source, method, uri, bodyKey, response.statusCode().value(),
+                            headers(response.headers().asHttpHeaders()), elapsedMs(started), Instant.now(), body));
+                    // body was consumed, hand the provider a copy
+                    return response.mutate()
+                            .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body)))
+                            .build();
+                }))
+                .doOnError(e -> append(new Exchange(source, method, uri, bodyKey, STATUS_ERROR, Map.of(),
+                        elapsedMs(started), Instant.now(), EMPTY)));
+    }
+
+    private Mono<ClientResponse> replay(String source, ClientRequest request) {
+        String key = key(source, request.method().name(), pathAndQuery(request.url()), bodyKey(request));
+        List<Exchange> recordings = tape.get(key);
+        if (recordings == null) {
+            misses.increment();
+            return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+        }
+        // recorded order, last response repeats once the recordings for this key are used up
+        int i = cursors.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+        Exchange e = recordings.get(Math.min(i, recordings.size() - 1));
+        replayed.increment();
+
+        Mono<ClientResponse> response = e.status() == STATUS_ERROR
+                ? Mono.error(new IOException("replayed upstream error: " + key))
+                : Mono.just(ClientResponse.create(HttpStatusCode.valueOf(e.status()))
+                        .headers(h -> e.headers().forEach(h::put))
+                        .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(e.body())))
+                        .build());
+        long delayMs = Math.round(e.latencyMs() * latencyScale);
+        return delayMs > 0 ? Mono.delay(Duration.ofMillis(delayMs)).then(response) : response;
+    }
+
+    private synchronized void append(Exchange e) {
+        if (out == null) {
+            return;
+        }
+        try {
+            writeString(out, e.source());
+            writeString(out, e.method());
+            writeString(out, e.uri());
+            writeString(out, e.bodyKey());
+            out.writeInt(e.status());
+            out.writeInt(e.headers().size());
+            for (var h : e.headers().entrySet()) {
+                writeString(out, h.getKey());
+                out.writeInt(h.getValue().size());
+                for (String v : h.getValue()) {
+                    writeString(out, v);
+                }
+            }
+            out.writeLong(e.latencyMs());
+            writeInstant(out, e.at());
+            out.writeInt(e.body().length);
+            out.write(e.body());
+            out.flush();
+            recorded.increment();
+        } catch (IOException ex) {
+            // recording is best effort, the live response is still served
+        }
+    }
+
+    // all exchanges in the archive (a truncated tail from a killed recorder is ignored)
+    public static List<Exchange> read(Path file) throws IOException {
+        List<Exchange> out = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not an upstream tape: " + file);
+            }
+            while (true) {
+                String source = readString(in);
+                String method = readString(in);
+                String uri = readString(in);
+                String bodyKey = readString(in);
+                int status = in.readInt();
+                int headerCount = in.readInt();
+                Map<String, List<String>> headers = new LinkedHashMap<>();
+                for (int h = 0; h < headerCount; h++) {
+                    String name = readString(in);
+                    int n = in.readInt();
+                    List<String> values = new ArrayList<>(n);
+                    for (int v = 0; v < n; v++) {
+                        values.add(readString(in));
+                    }
+                    headers.put(name, values);
+                }
+                long latencyMs = in.readLong();
+                Instant at = readInstant(in);
+                int length = in.readInt();
+                byte[] body = in.readNBytes(length);
+                if (body.length < length) {
+                    return out; // truncated tail
+                }
+                out.add(new Exchange(source, method, uri, bodyKey, status, headers, latencyMs, at, body));
+            }
+        } catch (EOFException e) {
+            return out;
+        }
+    }
+
+    private static Map<String, List<String>> headers(HttpHeaders headers) {
+        Map<String, List<String>> out = new LinkedHashMap<>();
+        headers.forEach((name, values) -> {
+            if (!SKIP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                out.put(name, List.copyOf(values));
+            }
+        });
+        return out;
+    }
+
+    private static String key(String source, String method, String uri, String bodyKey) {
+        return bodyKey.isEmpty() ? source + ' ' + method + ' ' + uri : source + ' ' + method + ' ' + uri + " #" + bodyKey;
+    }
+
+    private static String bodyKey(ClientRequest request) {
+        String key = request.headers().getFirst(BODY_KEY_HEADER);
+        return key != null ? key : "";
+    }
+
+    // the body key is only for the tape, upstream never sees it
+    private static ClientRequest stripBodyKey(ClientRequest request) {
+        if (!request.headers().containsKey(BODY_KEY_HEADER)) {
+            return request;
+        }
+        return ClientRequest.from(request).headers(h -> h.remove(BODY_KEY_HEADER)).build();
+    }
+
+    private static String pathAndQuery(URI url) {
+        return url.getRawQuery() != null ? url.getRawPath() + '?' + url.getRawQuery() : url.getRawPath();
+    }
+
+    private static long elapsedMs(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,25 @@
+package dk.ek.roadsai.service.snapshot;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/// Health details for the warm-start snapshot: restored at startup or cold start, sections restored.
+// informational, not part of readiness: the restore finishes before Tomcat accepts traffic,
+// and a cold start (no snapshot) serves normally, just with upstream fetches on first use
+@Component("cacheSnapshot")
+public class CacheSnapshotHealthIndicator implements HealthIndicator {
+    private final CacheSnapshotService snapshots;
+
+    public CacheSnapshotHealthIndicator(CacheSnapshotService snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    @Override
+    public Health health() {
+        return Health.up()
+                .withDetail("snapshot", snapshots.restoredSections() > 0 ? "restored" : "cold start")
+                .withDetail("restoredSections", snapshots.restoredSections())
+                .build();
+    }
+}
@@ -0,0 +1,134 @@
+package dk.ek.roadsai.service.snapshot;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/// Warm-start snapshots of provider caches + AI advice on local disk.
+// restored after all beans are created (before Tomcat accepts traffic), written periodically + on shutdown
+// file: "RASN" magic, version, section count, then per section: name, byte length, participant bytes (gzip)
+@Service
+public class CacheSnapshotService implements SmartInitializingSingleton {
+    private static final int MAGIC = 0x5241534E; // "RASN"
+    private static final int VERSION = 3; // 2: AWS/Vegagerdin entries store expiry instead of fetch time, 3: AWS stores normalized observations
+
+    private final List<SnapshotParticipant> participants;
+
+    @Value("${snapshot.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${snapshot.path:data/cache-snapshot.bin}")
+    private String path = "data/cache-snapshot.bin";
+
+    private volatile int restoredSections = 0;
+
+    public CacheSnapshotService(List<SnapshotParticipant> participants) {
+        this.participants = participants;
+    }
+
+    public int restoredSections() {
+        return restoredSections;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            restore();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${snapshot.interval-ms:60000}", initialDelayString = "${snapshot.interval-ms:60000}")
+    public void scheduledWrite() {
+        if (enabled) {
+            write();
+        }
+    }
+
+    @PreDestroy
+    public void writeOnShutdown() {
+        if (enabled) {
+            write();
+        }
+    }
+
+    // writes to temp file + atomic move, so a crash never leaves a half-written snapshot
+    public synchronized void write() {
+        Path file = Path.of(path);
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(participants.size());
+                for (SnapshotParticipant p : participants) {
+                    ByteArrayOutputStream section = new ByteArrayOutputStream();
+                    try (DataOutputStream sectionOut = new DataOutputStream(section)) {
+                        p.writeSnapshot(sectionOut);
+                    }
+                    out.writeUTF(p.snapshotName());
+                    out.writeInt(section.size());
+                    section.writeTo(out);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            // snapshot is best effort, caches keep working without it
+        }
+    }
+
+    // unknown or broken sections are skipped, the rest is restored
+    void restore() {
+        Path file = Path.of(path);
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        Map<String, SnapshotParticipant> byName = new HashMap<>();
+        participants.forEach(p -> byName.put(p.snapshotName(), p));
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            int sections = in.readInt();
+            for (int i = 0; i < sections; i++) {
+                String name = in.readUTF();
+                byte[] bytes = in.readNBytes(in.readInt());
+                SnapshotParticipant p = byName.get(name);
+                if (p == null) {
+                    continue;
+                }
+                try {
+                    p.readSnapshot(new DataInputStream(new ByteArrayInputStream(bytes)));
+                    restoredSections++;
+                } catch (IOException | RuntimeException e) {
+                    // skip broken section
+                }
+            }
+        } catch (Exception e) {
+            // unreadable snapshot = cold start
+        }
+    }
+}
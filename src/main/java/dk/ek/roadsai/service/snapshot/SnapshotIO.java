@@ -0,0 +1,51 @@
+package dk.ek.roadsai.service.snapshot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/// Nullable field encoding for snapshot sections (DataOutputStream has no nulls, writeUTF caps at 64 KB).
+public final class SnapshotIO {
+
+    private SnapshotIO() {
+    }
+
+    public static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) {
+            return null;
+        }
+        return new String(in.readNBytes(len), StandardCharsets.UTF_8);
+    }
+
+    public static void writeDouble(DataOutputStream out, Double d) throws IOException {
+        out.writeBoolean(d != null);
+        if (d != null) {
+            out.writeDouble(d);
+        }
+    }
+
+    public static Double readDouble(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+
+    public static void writeInstant(DataOutputStream out, Instant t) throws IOException {
+        out.writeLong(t.toEpochMilli());
+    }
+
+    public static Instant readInstant(DataInputStream in) throws IOException {
+        return Instant.ofEpochMilli(in.readLong());
+    }
+}
@@ -0,0 +1,18 @@
+package dk.ek.roadsai.service.snapshot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/// Cache that can be persisted to / restored from the warm-start snapshot (CacheSnapshotService).
+// entries keep their original fetch time, so TTLs stay correct after restore
+public interface SnapshotParticipant {
+
+    // unique section name in the snapshot file (stable across releases)
+    String snapshotName();
+
+    void writeSnapshot(DataOutputStream out) throws IOException;
+
+    // restores entries still within TTL, ignores expired ones
+    void readSnapshot(DataInputStream in) throws IOException;
+}
@@ -0,0 +1,208 @@
+package dk.ek.roadsai.service.timing;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/// Request-scoped time budget, bound to the request thread by DeadlineFilter (/api/observations*).
+// stages draw from one budget: Deadline.check() between stages, Deadline.bind(mono, cap) for upstream calls
+// (timeout = min(cap, remaining), and the call is cancelled as soon as the deadline is cancelled)
+// work on other threads: Deadline.with(deadline, work) re-binds it there, Deadline.await(future) waits within it
+// cancelled by DeadlineWatchdog when the budget runs out or the client disconnects
+// no-op outside a request with a deadline (push, scheduled jobs): bind only applies the cap
+public final class Deadline {
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    public static final String EXPIRED = "deadline";
+    public static final String DISCONNECTED = "client disconnected";
+
+    private final long startNanos = System.nanoTime();
+    private final long expiresAtNanos;
+    private final List<Runnable> cancelHooks = new CopyOnWriteArrayList<>();
+    private volatile String cancelReason;
+
+    /// thrown by check()/bind() once the deadline is cancelled or passed (not an upstream failure)
+    public static class Exceeded extends RuntimeException {
+        public Exceeded(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+
+    private Deadline(Duration budget) {
+        this.expiresAtNanos = startNanos + budget.toNanos();
+    }
+
+    public static Deadline start(Duration budget) {
+        Deadline deadline = new Deadline(budget);
+        CURRENT.set(deadline);
+        return deadline;
+    }
+
+    /// unbound deadline for work handed to another thread (AiGateway worker)
+    public static Deadline of(Duration budget) {
+        return new Deadline(budget);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /// runs work on this thread under the given deadline (captured with current() on the submitting thread)
+    public static <T> T with(Deadline deadline, Supplier<T> work) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        try {
+            return work.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /// waits for another thread's result within the current request's deadline (unbounded outside a request)
+    // the future's failure is rethrown as CompletionException, our own deadline/disconnect as Exceeded
+    public static <T> T await(CompletableFuture<T> future) {
+        Deadline deadline = CURRENT.get();
+        return deadline == null ? future.join() : deadline.awaiting(future);
+    }
+
+    // null outside a request with a deadline
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /// throws Exceeded if the current request's deadline is cancelled or passed
+    public static void check() {
+        Deadline deadline = CURRENT.get();
+        if (deadline != null) {
+            deadline.throwIfDone();
+        }
+    }
+
+    /// current request's deadline is cancelled or passed (false outside a request)
+    public static boolean isDone() {
+        Deadline deadline = CURRENT.get();
+        return deadline != null && deadline.done();
+    }
+
+    /// upstream call bounded by the current request's deadline, cap = max timeout (null = none without deadline)
+    public static <T> Mono<T> bind(Mono<T> mono, Duration cap) {
+        Deadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return cap != null ? mono.timeout(cap) : mono;
+        }
+        return deadline.bound(mono, cap);
+    }
+
+    public <T> Mono<T> bound(Mono<T> mono, Duration cap) {
+        throwIfDone();
+        long remaining = remainingNanos();
+        boolean budgetBound = cap == null || remaining < cap.toNanos();
+        Mono<T> timed = mono.timeout(Duration.ofNanos(budgetBound ? remaining : cap.toNanos()),
+                Mono.error(() -> budgetBound ? cancel(EXPIRED) : new TimeoutException("upstream timeout " + cap)));
+        // cancel() errors the second source, firstWithSignal then cancels the upstream subscription (closes the call)
+        Mono<T> cancelled = Mono.create(sink -> {
+            AtomicBoolean fired = new AtomicBoolean();
+            Runnable hook = () -> {
+                if (fired.compareAndSet(false, true)) {
+                    sink.error(new Exceeded(cancelReason));
+                }
+            };
+            cancelHooks.add(hook);
+            sink.onDispose(() -> cancelHooks.remove(hook));
+            if (done()) {
+                hook.run();
+            }
+        });
+        return Mono.firstWithSignal(timed, cancelled);
+    }
+
+    public <T> T awaiting(CompletableFuture<T> future) {
+        throwIfDone();
+        // waits on a copy: a cancel hook wakes this waiter without touching the shared future
+        CompletableFuture<T> waiting = new CompletableFuture<>();
+        Runnable hook = () -> waiting.cancel(false);
+        cancelHooks.add(hook);
+        try {
+            if (done()) {
+                throwIfDone(); // cancelled before the hook was registered
+            }
+            future.whenComplete((value, error) -> {
+                if (error == null) {
+                    waiting.complete(value);
+                } else {
+                    waiting.completeExceptionally(error);
+                }
+            });
+            return waiting.get(remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw cancel(EXPIRED);
+        } catch (CancellationException e) {
+            if (cancelReason != null) {
+                throw new Exceeded(cancelReason);
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof CompletionException c ? c : new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } finally {
+            cancelHooks.remove(hook);
+        }
+    }
+
+    /// cancel (first reason wins), in-flight bound calls fail with Exceeded
+    public Exceeded cancel(String reason) {
+        if (cancelReason == null) {
+            synchronized (this) {
+                if (cancelReason == null) {
+                    cancelReason = reason;
+                }
+            }
+            for (Runnable hook : cancelHooks) {
+                hook.run();
+            }
+        }
+        return new Exceeded(cancelReason);
+    }
+
+    public boolean done() {
+        return cancelReason != null || System.nanoTime() - expiresAtNanos >= 0;
+    }
+
+    public void throwIfDone() {
+        if (cancelReason != null) {
+            throw new Exceeded(cancelReason);
+        }
+        if (System.nanoTime() - expiresAtNanos >= 0) {
+            throw cancel(EXPIRED);
+        }
+    }
+
+    // null while running
+    public String cancelReason() {
+        return cancelReason;
+    }
+
+    public long remainingNanos() {
+        return Math.max(0, expiresAtNanos - System.nanoTime());
+    }
+
+    public long remainingMillis() {
+        return remainingNanos() / 1_000_000;
+    }
+
+    public boolean expired() {
+        return System.nanoTime() - expiresAtNanos >= 0;
+    }
+}
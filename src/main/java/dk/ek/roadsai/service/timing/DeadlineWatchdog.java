@@ -0,0 +1,113 @@
+package dk.ek.roadsai.service.timing;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.locks.LockSupport;
+
+/// Cancels request deadlines that ran out or whose client went away, so blocked upstream calls stop right away.
+// one daemon thread probes all active requests every deadline.probe-ms (request threads are blocked in upstream calls)
+@Service
+public class DeadlineWatchdog {
+    private static final BooleanSupplier NO_PROBE = () -> false;
+
+    @Value("${deadline.probe-ms:200}")
+    private long probeMs = 200;
+
+    // request deadline -> "client is gone" probe (NO_PROBE if the server can't tell)
+    private final Map<Deadline, BooleanSupplier> active = new ConcurrentHashMap<>();
+
+    // counters for /api/admin/deadline
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+
+    private volatile boolean running;
+    private Thread watchdog;
+
+    @PostConstruct
+    void start() {
+        running = true;
+        watchdog = Thread.ofPlatform().daemon().name("deadline-watchdog").start(this::watchLoop);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (watchdog != null) {
+            LockSupport.unpark(watchdog);
+        }
+    }
+
+    /**
+     * Watch a request until finish()
+     *
+     * @param clientGone Returns true once the client closed the connection (null = no disconnect detection)
+     */
+    public void watch(Deadline deadline, BooleanSupplier clientGone) {
+        started.increment();
+        active.put(deadline, clientGone != null ? clientGone : NO_PROBE);
+    }
+
+    // request finished (response written or failed), counted by the deadline's cancel reason
+    public void finish(Deadline deadline) {
+        active.remove(deadline);
+        String reason = deadline.cancelReason();
+        if (reason == null) {
+            completed.increment();
+        } else if (Deadline.DISCONNECTED.equals(reason)) {
+            disconnected.increment();
+        } else {
+            expired.increment();
+        }
+    }
+
+    // one pass over active requests (also called by tests)
+    void probe() {
+        for (var entry : active.entrySet()) {
+            Deadline deadline = entry.getKey();
+            if (deadline.cancelReason() != null) {
+                continue;
+            }
+            if (deadline.expired()) {
+                deadline.cancel(Deadline.EXPIRED);
+            } else if (probeSafely(entry.getValue())) {
+                deadline.cancel(Deadline.DISCONNECTED);
+            }
+        }
+    }
+
+    public Map<String, Long> stats() {
+        return Map.of(
+                "started", started.sum(),
+                "completed", completed.sum(),
+                "expired", expired.sum(),
+                "disconnected", disconnected.sum(),
+                "active", (long) active.size()
+        );
+    }
+
+    private void watchLoop() {
+        long probeNanos = TimeUnit.MILLISECONDS.toNanos(probeMs);
+        while (running) {
+            LockSupport.parkNanos(probeNanos);
+            probe();
+        }
+    }
+
+    private static boolean probeSafely(BooleanSupplier clientGone) {
+        try {
+            return clientGone.getAsBoolean();
+        } catch (RuntimeException e) {
+            return false; // connection already recycled, request is finishing
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package dk.ek.roadsai.service.timing;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/// Lightweight per-request stage timer, bound to the request thread by TimingFilter (/api requests).
+// try (var s = RequestTimer.stage("cap")) { ... } is a no-op outside a timed request (push, scheduled jobs)
+// repeated stages accumulate, cache lookups are counted per namespace (l1 hit / l2 hit / miss)
+public final class RequestTimer {
+    private static final ThreadLocal<RequestTimer> CURRENT = new ThreadLocal<>();
+    private static final Stage NOOP = () -> {
+    };
+    private static final int L1 = 0, L2 = 1, MISS = 2;
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+    private final Map<String, int[]> cache = new LinkedHashMap<>();
+
+    public interface Stage extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private RequestTimer() {
+    }
+
+    public static RequestTimer start() {
+        RequestTimer timer = new RequestTimer();
+        CURRENT.set(timer);
+        return timer;
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    // null outside a timed request
+    public static RequestTimer current() {
+        return CURRENT.get();
+    }
+
+    public static Stage stage(String name) {
+        RequestTimer timer = CURRENT.get();
+        if (timer == null) {
+            return NOOP;
+        }
+        long start = System.nanoTime();
+        return () -> timer.add(name, System.nanoTime() - start);
+    }
+
+    public static void cacheL1Hit(String namespace) {
+        count(namespace, L1);
+    }
+
+    public static void cacheL2Hit(String namespace) {
+        count(namespace, L2);
+    }
+
+    public static void cacheMiss(String namespace) {
+        count(namespace, MISS);
+    }
+
+    private static void count(String namespace, int kind) {
+        RequestTimer timer = CURRENT.get();
+        if (timer != null) {
+            synchronized (timer) {
+                timer.cache.computeIfAbsent(namespace, n -> new int[3])[kind]++;
+            }
+        }
+    }
+
+    private synchronized void add(String name, long nanos) {
+        stageNanos.merge(name, nanos, Long::sum);
+    }
+
+    public long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    // "route;dur=0.12, corridor;dur=0.03, ..., total;dur=812.4" (ms, devtools Timing tab)
+    public synchronized String serverTiming() {
+        StringBuilder sb = new StringBuilder();
+        stageNanos.forEach((name, nanos) -> sb.append(name).append(";dur=").append(ms(nanos)).append(", "));
+        return sb.append("total;dur=").append(ms(System.nanoTime() - startNanos)).toString();
+    }
+
+    public synchronized Map<String, Double> stagesMs() {
+        Map<String, Double> out = new LinkedHashMap<>();
+        stageNanos.forEach((name, nanos) -> out.put(name, Math.round(nanos / 10_000.0) / 100.0));
+        return out;
+    }
+
+    // namespace -> "l1=3 l2=0 miss=1"
+    public synchronized Map<String, String> cacheSummary() {
+        Map<String, String> out = new LinkedHashMap<>();
+        cache.forEach((ns, c) -> out.put(ns, "l1=" + c[L1] + " l2=" + c[L2] + " miss=" + c[MISS]));
+        return out;
+    }
+
+    private static String ms(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,64 @@
+package dk.ek.roadsai.service.timing;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/// Bounded ring of recent slow /api requests with their stage breakdown (for /api/admin/slow-requests)
+// fixed memory: the oldest slow request is overwritten once the ring is full
+@Service
+public class SlowRequestLog {
+
+    public record SlowRequest(
+            Instant at,
+            String method,
+            String path,
+            int status,
+            long totalMs,
+            Map<String, Double> stagesMs,
+            Map<String, String> cache
+    ) {
+    }
+
+    @Value("${timing.slow-threshold-ms:1000}")
+    private long thresholdMs = 1000;
+    @Value("${timing.slow-capacity:50}")
+    private int capacity = 50;
+
+    private SlowRequest[] ring;
+    private int next;
+
+    @PostConstruct
+    void init() {
+        ring = new SlowRequest[capacity];
+    }
+
+    public void record(String method, String path, int status, RequestTimer timer) {
+        long totalMs = timer.elapsedMillis();
+        if (totalMs < thresholdMs) {
+            return;
+        }
+        SlowRequest entry = new SlowRequest(Instant.now(), method, path, status, totalMs,
+                timer.stagesMs(), timer.cacheSummary());
+        synchronized (this) {
+            ring[next] = entry;
+            next = (next + 1) % ring.length;
+        }
+    }
+
+    // slowest first
+    public synchronized List<SlowRequest> slowest() {
+        List<SlowRequest> out = new ArrayList<>(ring.length);
+        for (SlowRequest r : ring) {
+            if (r != null) out.add(r);
+        }
+        out.sort(Comparator.comparingLong(SlowRequest::totalMs).reversed());
+        return out;
+    }
+}
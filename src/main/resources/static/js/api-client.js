@@ -13,3 +13,20 @@ async function fetchObservations(request) {
     
     return await response.json();
 }
+
+// AI-enriched advice for the same request (slow, called after fast rule-based results are shown)
+async function fetchAiAdvice(request) {
+    const response = await fetch('/api/observations/advice', {
+        method: 'POST',
+        headers: {
+            'Content-Type': 'application/json'
+        },
+        body: JSON.stringify(request)
+    });
+
+    if (!response.ok) {
+        throw new Error(`HTTP error! status: ${response.status}`);
+    }
+
+    return await response.json();
+}
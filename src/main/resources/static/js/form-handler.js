@@ -1,5 +1,7 @@
 // Store forecastTime globally to pass to display functions
 let currentForecastTime = null;
+// Incremented per submit, so late AI advice from an older request is ignored
+let adviceRequestId = 0;
 
 function initializeForm() {
     const form = document.getElementById('adviceForm');
@@ -256,6 +258,17 @@ function initializeForm() {
         try {
             const data = await fetchObservations(request);
             displayResults(data, currentForecastTime);
+
+            // Enrich with AI advice in background (rule-based advice stays on failure)
+            const requestId = ++adviceRequestId;
+            const forecastTimeAtRequest = currentForecastTime;
+            fetchAiAdvice(request)
+                .then(advice => {
+                    if (requestId === adviceRequestId) { // skip if a newer request was made
+                        refreshAdvice(data, advice, forecastTimeAtRequest);
+                    }
+                })
+                .catch(err => console.warn('AI advice unavailable:', err.message));
         } catch (err) {
             showError(`Failed to fetch observations: ${err.message}`);
         } finally {
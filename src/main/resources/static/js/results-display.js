@@ -36,17 +36,22 @@ function displayResults(data, forecastTime) {
         }, 100);
     }
     
+    // Display rule-based advice with observation data and forecastTime for badge
+    refreshAdvice(data, data.advice, forecastTime);
+    
+    document.getElementById('results').classList.remove('hidden');
+}
+
+// Re-render advice table only (used when AI advice replaces rule-based advice)
+function refreshAdvice(data, advice, forecastTime) {
     // Group observations by stationId for easy lookup
     const observationsByStation = (data.observations || []).reduce((acc, obs) => { // acc= object building, obs= current obs
         if (!acc[obs.stationId]) acc[obs.stationId] = [];
         acc[obs.stationId].push(obs);
         return acc;
     }, {});
-    
-    // Display advice with observation data and forecastTime for badge
-    if (data.advice?.length > 0) {
-        displayAdvice(data.advice, data.stations || [], observationsByStation, forecastTime, data.alerts);
+
+    if (advice?.length > 0) {
+        displayAdvice(advice, data.stations || [], observationsByStation, forecastTime, data.alerts);
     }
-    
-    document.getElementById('results').classList.remove('hidden');
 }
@@ -26,6 +26,54 @@ let adviceMap = null;
 let adviceRouteLayer = null;
 let adviceMapMarkers = [];
 
+// Zoom levels the backend simplifies road geometry for (route.geometry min/max zoom)
+const ROUTE_MIN_ZOOM = 5;
+const ROUTE_MAX_ZOOM = 14;
+
+/**
+ * Decode a Google encoded polyline into [lat, lon] pairs
+ */
+function decodePolyline(encoded) {
+    const points = [];
+    let index = 0, lat = 0, lon = 0;
+    while (index < encoded.length) {
+        for (let k = 0; k < 2; k++) {
+            let result = 0, shift = 0, b;
+            do {
+                b = encoded.charCodeAt(index++) - 63;
+                result |= (b & 0x1f) << shift;
+                shift += 5;
+            } while (b >= 0x20);
+            const delta = (result & 1) ? ~(result >> 1) : (result >> 1);
+            if (k === 0) lat += delta; else lon += delta;
+        }
+        points.push([lat / 1e5, lon / 1e5]);
+    }
+    return points;
+}
+
+/**
+ * Get road geometry from the backend, simplified for the map zoom
+ * returns null when the backend has no road file (waypoints only)
+ */
+async function getServerRoute(routeCoords, zoom) {
+    // backend sends [lon, lat], route starting further south is RVK -> IFJ
+    const northbound = routeCoords[0][1] < routeCoords[routeCoords.length - 1][1];
+    const from = northbound ? 'RVK' : 'IFJ';
+    const to = northbound ? 'IFJ' : 'RVK';
+    try {
+        const response = await fetch(`/api/route/geometry?from=${from}&to=${to}&zoom=${zoom}`);
+        if (!response.ok) {
+            return null;
+        }
+        const geometry = await response.json();
+        return geometry.source === 'geojson' ? decodePolyline(geometry.polyline) : null;
+    } catch (error) {
+        console.warn('Route geometry request failed:', error.message);
+        return null;
+    }
+}
+
 /**
  * Get road-following route from OSRM
  * builds route from waypoints
@@ -80,6 +128,31 @@ async function getRoadRouteWithRetry(waypoints, maxRetries = 3) {
     return null;
 }
 
+/**
+ * Swap the backend road geometry for the simplification of the new zoom level
+ * only refetches when the clamped zoom changes, late responses for an older zoom are dropped
+ */
+function refetchRouteOnZoom(map, layer, routeCoords) {
+    const clampZoom = zoom => Math.min(ROUTE_MAX_ZOOM, Math.max(ROUTE_MIN_ZOOM, Math.round(zoom)));
+    let shownZoom = clampZoom(map.getZoom());
+    let wantedZoom = shownZoom;
+
+    map.on('zoomend', async () => {
+        const zoom = clampZoom(map.getZoom());
+        if (zoom === wantedZoom) {
+            return;
+        }
+        wantedZoom = zoom;
+        const route = await getServerRoute(routeCoords, zoom);
+        // map cleared / another zoom requested meanwhile: keep what is shown
+        if (!route || zoom !== wantedZoom || layer !== adviceRouteLayer || zoom === shownZoom) {
+            return;
+        }
+        layer.setLatLngs(route);
+        shownZoom = zoom;
+    });
+}
+
 /**
  * Clear the advice map
  */
@@ -143,11 +216,22 @@ async function initializeAdviceMap(mapData) {
             attribution: '&copy; <a href="https://www.esri.com/">Esri</a>',
             maxZoom: 19
         }).addTo(adviceMap);
+
+        // Nationwide hazard heatmap (precomputed server tiles from all road weather stations, transparent where no station data)
+        const heatmapLayer = L.tileLayer('/api/heatmap/{z}/{x}/{y}.png', {
+            minNativeZoom: 5,
+            maxNativeZoom: 9,
+            maxZoom: 19,
+            opacity: 1,
+            attribution: 'Hazards: vedur.is, Vegagerðin'
+        }).addTo(adviceMap);
+        L.control.layers(null, { 'Hazard heatmap': heatmapLayer }, { collapsed: true }).addTo(adviceMap);
         
         // Wait for map to be ready
         adviceMap.whenReady(async () => {
-            // Get road-following route using OSRM - ALWAYS use OSRM, retry if needed
-            const roadRoute = await getRoadRouteWithRetry(routeCoords);
+            // Road geometry from the backend, OSRM (with retry) if the backend only has waypoints
+            const serverRoute = await getServerRoute(routeCoords, adviceMap.getZoom());
+            const roadRoute = serverRoute ?? await getRoadRouteWithRetry(routeCoords);
             
             if (roadRoute && roadRoute.length > 0) {
                 // Use road-following route
@@ -167,6 +251,10 @@ async function initializeAdviceMap(mapData) {
                     smoothFactor: 1
                 }).addTo(adviceMap);
             }
+
+            if (serverRoute) {
+                refetchRouteOnZoom(adviceMap, adviceRouteLayer, routeCoords);
+            }
             
             // Add station markers (default Leaflet markers)
             adviceMapMarkers = [];
@@ -0,0 +1,183 @@
+package dk.ek.roadsai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dk.ek.roadsai.service.ai.AiGateway;
+import dk.ek.roadsai.service.ai.AiUsageStats;
+import dk.ek.roadsai.service.ai.ObservationAiService;
+import dk.ek.roadsai.service.cache.InMemorySharedCache;
+import dk.ek.roadsai.service.cache.TieredCache;
+import dk.ek.roadsai.service.replay.UpstreamTape;
+import dk.ek.roadsai.service.timing.Deadline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AiGatewayTest {
+
+    private static final List<String> FALLBACK = List.of("rule-based");
+
+    // records the order OpenAI would have been called in, "block" prompts wait for the latch
+    static class StubAi extends ObservationAiService {
+        final List<String> calls = new CopyOnWriteArrayList<>();
+        final List<String> formats = new CopyOnWriteArrayList<>();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        StubAi() {
+            super(new AiUsageStats(), "http://openai.invalid", new UpstreamTape());
+        }
+
+        @Override
+        public List<String> ask(String format, String systemPrompt, String userPrompt, List<String> fallback, Deadline caller) {
+            calls.add(userPrompt);
+            formats.add(format);
+            if (userPrompt.startsWith("block")) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return List.of("ai: " + userPrompt);
+        }
+    }
+
+    private final StubAi ai = new StubAi();
+    private AiGateway gateway;
+
+    private AiGateway gateway(int maxConcurrent, int requestsPerMinute, int tokensPerMinute, long maxWaitMs, long minRemainingMs) {
+        gateway = new AiGateway(ai, new TieredCache(new InMemorySharedCache(), new ObjectMapper()));
+        ReflectionTestUtils.setField(gateway, "maxConcurrent", maxConcurrent);
+        ReflectionTestUtils.setField(gateway, "requestsPerMinute", requestsPerMinute);
+        ReflectionTestUtils.setField(gateway, "tokensPerMinute", tokensPerMinute);
+        ReflectionTestUtils.setField(gateway, "maxWaitMs", maxWaitMs);
+        ReflectionTestUtils.setField(gateway, "minRemainingMs", minRemainingMs);
+        ReflectionTestUtils.invokeMethod(gateway, "start");
+        return gateway;
+    }
+
+    @AfterEach
+    void stop() {
+        ai.release.countDown();
+        if (gateway != null) {
+            ReflectionTestUtils.invokeMethod(gateway, "stop");
+        }
+    }
+
+    private CompletableFuture<List<String>> ask(String prompt, AiGateway.Priority priority) {
+        return CompletableFuture.supplyAsync(() -> gateway.ask("verbose", "system", prompt, FALLBACK, priority),
+                r -> Thread.ofVirtual().start(r));
+    }
+
+    private void awaitQueued(long n) throws InterruptedException {
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (gateway.stats().get("queued") < n) {
+            assertTrue(System.nanoTime() < until, "jobs not queued");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void interactiveJobOvertakesQueuedBackgroundJob() throws Exception {
+        gateway(1, 500, 200000, 8000, 0);
+        CompletableFuture<List<String>> running = ask("block", AiGateway.Priority.INTERACTIVE);
+        while (ai.calls.isEmpty()) {
+            Thread.sleep(5);
+        }
+
+        // background arrives first, then interactive, both wait for the only slot
+        CompletableFuture<List<String>> background = ask("background", AiGateway.Priority.BACKGROUND);
+        awaitQueued(1);
+        CompletableFuture<List<String>> interactive = ask("interactive", AiGateway.Priority.INTERACTIVE);
+        awaitQueued(2);
+        ai.release.countDown();
+
+        assertEquals(List.of("ai: interactive"), interactive.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("ai: background"), background.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("ai: block"), running.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("block", "interactive", "background"), ai.calls);
+    }
+
+    @Test
+    void expiredJobIsShedWhileAnotherWaitsForCapacity() throws Exception {
+        gateway(1, 500, 200000, 8000, 3000);
+        ask("block", AiGateway.Priority.INTERACTIVE);
+        while (ai.calls.isEmpty()) {
+            Thread.sleep(5);
+        }
+        CompletableFuture<List<String>> background = ask("background", AiGateway.Priority.BACKGROUND);
+        awaitQueued(1);
+
+        // 3.3 s budget, min-remaining 3 s: can no longer start after ~300 ms
+        long started = System.nanoTime();
+        CompletableFuture<List<String>> hurried = CompletableFuture.supplyAsync(() -> {
+            Deadline.start(Duration.ofMillis(3300));
+            try {
+                return gateway.ask("verbose", "system", "hurried", FALLBACK, AiGateway.Priority.INTERACTIVE);
+            } finally {
+                Deadline.clear();
+            }
+        }, r -> Thread.ofVirtual().start(r));
+
+        assertEquals(FALLBACK, hurried.get(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(1500), "shed before its own timeout");
+        assertEquals(1, gateway.stats().get("shed"));
+        assertFalse(background.isDone()); // still waiting for the slot
+        assertFalse(ai.calls.contains("hurried"));
+    }
+
+    @Test
+    void requestsPerMinuteLimitShedsWhatCannotStartInTime() throws Exception {
+        gateway(4, 2, 200000, 1000, 0);
+        assertEquals(List.of("ai: a"), ask("a", AiGateway.Priority.INTERACTIVE).get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("ai: b"), ask("b", AiGateway.Priority.INTERACTIVE).get(5, TimeUnit.SECONDS));
+
+        // bucket empty, next token in ~30 s, max-wait 1 s
+        long started = System.nanoTime();
+        assertEquals(FALLBACK, ask("c", AiGateway.Priority.INTERACTIVE).get(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(900), "shed right away, not at max-wait");
+        assertEquals(List.of("a", "b"), ai.calls);
+    }
+
+    @Test
+    void tokensPerMinuteLimitCountsPromptAndCompletion() throws Exception {
+        // one call reserves prompt + 800 completion tokens, a 1000 token bucket fits one
+        gateway(4, 500, 1000, 1000, 0);
+        assertEquals(List.of("ai: a"), ask("a", AiGateway.Priority.INTERACTIVE).get(5, TimeUnit.SECONDS));
+        assertEquals(FALLBACK, ask("b", AiGateway.Priority.INTERACTIVE).get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a"), ai.calls);
+        assertEquals(1, gateway.stats().get("shed"));
+    }
+
+    @Test
+    void promptFormatOfEachCallReachesUsageAccounting() throws Exception {
+        gateway(4, 500, 200000, 1000, 0);
+        ask("a", AiGateway.Priority.INTERACTIVE).get(5, TimeUnit.SECONDS);
+        gateway.ask("departure", "system", "b", FALLBACK, AiGateway.Priority.INTERACTIVE);
+        assertEquals(List.of("verbose", "departure"), ai.formats);
+    }
+
+    @Test
+    void identicalPromptsShareOneCall() throws Exception {
+        gateway(1, 500, 200000, 8000, 0);
+        CompletableFuture<List<String>> first = ask("block", AiGateway.Priority.INTERACTIVE);
+        while (ai.calls.isEmpty()) {
+            Thread.sleep(5);
+        }
+        CompletableFuture<List<String>> second = ask("block", AiGateway.Priority.INTERACTIVE);
+        Thread.sleep(100);
+        ai.release.countDown();
+
+        assertEquals(List.of("ai: block"), first.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("ai: block"), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, ai.calls.size());
+    }
+}
@@ -0,0 +1,75 @@
+package dk.ek.roadsai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dk.ek.roadsai.dto.ObservationsRequest;
+import dk.ek.roadsai.service.audit.AuditLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class AuditLogTest {
+
+    private AuditLog auditLog(JdbcTemplate jdbc, String overflow) {
+        AuditLog audit = new AuditLog(jdbc, new ObjectMapper());
+        ReflectionTestUtils.setField(audit, "capacity", 3);
+        ReflectionTestUtils.setField(audit, "batchSize", 2);
+        ReflectionTestUtils.setField(audit, "overflow", AuditLog.Overflow.valueOf(overflow));
+        return audit; // writer thread not started, flush() called directly
+    }
+
+    private void record(AuditLog audit, int i) {
+        audit.record("observations", new ObservationsRequest("RVK", "IFJ", null, null),
+                Map.of(), Map.of(), null, null, List.of("advice " + i));
+    }
+
+    @Test
+    void overflowDropsAndFlushWritesInBatches() {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        AuditLog audit = auditLog(jdbc, "DROP_NEWEST");
+        for (int i = 0; i < 5; i++) record(audit, i);
+
+        assertEquals(2, audit.stats().get("dropped"));
+        assertEquals(3, audit.stats().get("queued"));
+
+        assertEquals(3, audit.flush());
+        verify(jdbc, times(2)).batchUpdate(anyString(), anyList()); // 2 + 1 rows
+        assertEquals(3, audit.stats().get("written"));
+        assertEquals(0, audit.stats().get("queued"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dropOldestKeepsLatestAndFailuresAreCounted() {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        when(jdbc.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("db down"));
+        AuditLog audit = auditLog(jdbc, "DROP_OLDEST");
+        for (int i = 0; i < 5; i++) record(audit, i);
+
+        assertEquals(3, audit.stats().get("queued"));
+        assertEquals(0, audit.flush());
+        assertEquals(3, audit.stats().get("failed"));
+    }
+
+    @Test
+    void fullBatchIsWrittenBeforeTheFlushInterval() {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        AuditLog audit = auditLog(jdbc, "DROP_NEWEST");
+        ReflectionTestUtils.setField(audit, "flushMs", 60_000L);
+        ReflectionTestUtils.invokeMethod(audit, "start");
+        try {
+            record(audit, 1);
+            record(audit, 2); // batch-size 2: writer woken right away
+            verify(jdbc, timeout(2000)).batchUpdate(anyString(), anyList());
+        } finally {
+            ReflectionTestUtils.invokeMethod(audit, "stop");
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.service.snapshot.CacheSnapshotService;
+import dk.ek.roadsai.service.snapshot.SnapshotParticipant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheSnapshotServiceTest {
+
+    // list of strings, optionally failing on read
+    static class Section implements SnapshotParticipant {
+        final String name;
+        final List<String> values = new ArrayList<>();
+        boolean failOnRead;
+
+        Section(String name, String... values) {
+            this.name = name;
+            this.values.addAll(List.of(values));
+        }
+
+        @Override
+        public String snapshotName() {
+            return name;
+        }
+
+        @Override
+        public void writeSnapshot(DataOutputStream out) throws IOException {
+            out.writeInt(values.size());
+            for (String v : values) {
+                out.writeUTF(v);
+            }
+        }
+
+        @Override
+        public void readSnapshot(DataInputStream in) throws IOException {
+            if (failOnRead) {
+                throw new IOException("broken section");
+            }
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                values.add(in.readUTF());
+            }
+        }
+    }
+
+    private CacheSnapshotService service(Path file, SnapshotParticipant... participants) {
+        CacheSnapshotService service = new CacheSnapshotService(List.of(participants));
+        ReflectionTestUtils.setField(service, "path", file.toString());
+        return service;
+    }
+
+    @Test
+    void writeThenRestoreRoundTrips(@TempDir Path dir) {
+        Path file = dir.resolve("snapshots/cache-snapshot.bin");
+        service(file, new Section("aws", "1475", "1477"), new Section("advice", "slow down")).write();
+        assertTrue(Files.isRegularFile(file));
+        assertFalse(Files.exists(dir.resolve("snapshots/cache-snapshot.bin.tmp")));
+
+        Section aws = new Section("aws");
+        Section advice = new Section("advice");
+        CacheSnapshotService restored = service(file, aws, advice);
+        restored.afterSingletonsInstantiated();
+
+        assertEquals(List.of("1475", "1477"), aws.values);
+        assertEquals(List.of("slow down"), advice.values);
+        assertEquals(2, restored.restoredSections());
+    }
+
+    @Test
+    void brokenAndUnknownSectionsAreSkipped(@TempDir Path dir) {
+        Path file = dir.resolve("cache-snapshot.bin");
+        service(file, new Section("aws", "1475"), new Section("removed", "x"), new Section("yr", "64.1,-21.9")).write();
+
+        Section aws = new Section("aws");
+        aws.failOnRead = true;
+        Section yr = new Section("yr");
+        CacheSnapshotService restored = service(file, aws, yr);
+        restored.afterSingletonsInstantiated();
+
+        assertTrue(aws.values.isEmpty());
+        assertEquals(List.of("64.1,-21.9"), yr.values);
+        assertEquals(1, restored.restoredSections());
+    }
+
+    @Test
+    void missingOrForeignFileIsAColdStart(@TempDir Path dir) throws IOException {
+        Section aws = new Section("aws");
+        CacheSnapshotService missing = service(dir.resolve("none.bin"), aws);
+        missing.afterSingletonsInstantiated();
+        assertEquals(0, missing.restoredSections());
+
+        Path garbage = dir.resolve("garbage.bin");
+        Files.writeString(garbage, "not a snapshot");
+        CacheSnapshotService foreign = service(garbage, aws);
+        foreign.afterSingletonsInstantiated();
+        assertEquals(0, foreign.restoredSections());
+        assertTrue(aws.values.isEmpty());
+    }
+
+    @Test
+    void disabledNeitherRestoresNorWrites(@TempDir Path dir) {
+        Path file = dir.resolve("cache-snapshot.bin");
+        service(file, new Section("aws", "1475")).write();
+
+        Section aws = new Section("aws");
+        CacheSnapshotService disabled = service(file, aws);
+        ReflectionTestUtils.setField(disabled, "enabled", false);
+        disabled.afterSingletonsInstantiated();
+        assertTrue(aws.values.isEmpty());
+
+        Path other = dir.resolve("other.bin");
+        ReflectionTestUtils.setField(disabled, "path", other.toString());
+        disabled.scheduledWrite();
+        disabled.writeOnShutdown();
+        assertFalse(Files.exists(other));
+    }
+}
@@ -0,0 +1,53 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.service.ai.CompactPromptEncoder;
+import dk.ek.roadsai.service.ai.ObservationReducer;
+import dk.ek.roadsai.service.ai.TokenEstimator;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactPromptEncoderTest {
+
+    @Test
+    void trimsContextObservationsBeforeAlerts() {
+        List<Station> stations = new ArrayList<>();
+        Map<String, ObservationReducer.StationFacts> facts = new LinkedHashMap<>();
+        for (int i = 0; i < 8; i++) {
+            Station st = new Station("veg:" + i, "Station number " + i, 64 + i * 0.1, -21.9, "VEGAGERDIN");
+            stations.add(st);
+            var f = new ObservationReducer.StationFacts();
+            f.stationId = st.id();
+            f.stationName = st.name();
+            f.windMs = 12.3;
+            f.maxGustMs = 18.0;
+            f.minTempC = -1.5;
+            f.alerts = List.of();
+            facts.put(st.id(), f);
+        }
+        CapAlert alert = new CapAlert();
+        alert.severity = "Moderate";
+        alert.eventType = "Wind";
+        alert.headline = "Gale in Westfjords";
+        facts.get("veg:7").alerts = List.of(alert);
+
+        CompactPromptEncoder encoder = new CompactPromptEncoder();
+        ReflectionTestUtils.setField(encoder, "tokenBudget", 150);
+        Instant departure = Instant.now().plusSeconds(6 * 3600); // obs become context only
+
+        String prompt = encoder.encode("rvk-isf", "RVK", "IFJ", facts, stations, List.of(), departure);
+
+        assertTrue(prompt.contains("Gale in Westfjords"));
+        assertFalse(prompt.contains("Station number 7|12.3")); // last obs row trimmed first
+        assertTrue(TokenEstimator.estimate(prompt) <= 150);
+    }
+}
@@ -0,0 +1,157 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.dto.ObservationsRequest;
+import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.model.StationObservation;
+import dk.ek.roadsai.service.ConditionsService;
+import dk.ek.roadsai.service.ForecastSampler;
+import dk.ek.roadsai.service.RouteService;
+import dk.ek.roadsai.service.StationService;
+import dk.ek.roadsai.service.ai.ObservationReducer;
+import dk.ek.roadsai.service.geo.RouteGeometryService;
+import dk.ek.roadsai.service.hazard.HazardEngine;
+import dk.ek.roadsai.service.health.StationHealthRegistry;
+import dk.ek.roadsai.service.provider.VedurCapProvider;
+import dk.ek.roadsai.service.timing.Deadline;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConditionsServiceTest {
+
+    private final Station station = new Station("veg:32474", "STEHE (Steingrímsfjarðarheiði)", 65.7503, -22.1291, "VEGAGERDIN");
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private ConditionsService service() {
+        return service(inv -> {
+            Thread.sleep(300);
+            return List.of();
+        });
+    }
+
+    private ConditionsService service(Answer<List<StationObservation>> observations) {
+        StationService stations = mock(StationService.class);
+        when(stations.corridorStations(any())).thenReturn(List.of(station));
+        when(stations.fetchObsForStations(any(), any(), any())).thenAnswer(inv -> {
+            upstreamCalls.incrementAndGet();
+            return observations.answer(inv);
+        });
+        VedurCapProvider cap = mock(VedurCapProvider.class);
+        when(cap.fetchAlerts(65.7503, -22.1291)).thenReturn(List.of());
+        return new ConditionsService(new RouteService(), stations, cap, new ObservationReducer(),
+                mock(ForecastSampler.class), new HazardEngine(), new StationHealthRegistry(),
+                mock(RouteGeometryService.class));
+    }
+
+    @Test
+    void identicalConcurrentRequestsShareOneComputation() throws Exception {
+        ConditionsService service = service();
+        // same trip: case differs, departures round to the same 15 min step
+        List<ObservationsRequest> requests = List.of(
+                new ObservationsRequest("RVK", "IFJ", "2025-11-05T07:58:00Z", null),
+                new ObservationsRequest("rvk", "ifj", "2025-11-05T08:04:00Z", null),
+                new ObservationsRequest("RVK", "IFJ", "2025-11-05T08:00:00Z", null));
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(requests.size());
+        List<Future<ConditionsService.Conditions>> results = new ArrayList<>();
+        for (ObservationsRequest r : requests) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return service.gather(r);
+            }));
+        }
+        start.countDown();
+        ConditionsService.Conditions first = results.getFirst().get();
+        for (var r : results) {
+            assertSame(first, r.get());
+        }
+        pool.shutdown();
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(requests.size() - 1, service.stats().get("coalesced"));
+    }
+
+    @Test
+    void sequentialRequestsAreNotServedFromCoalescing() {
+        ConditionsService service = service();
+        ObservationsRequest r = new ObservationsRequest("RVK", "IFJ", null, null);
+
+        service.gather(r);
+        service.gather(r);
+
+        assertEquals(2, upstreamCalls.get()); // no staleness: only in-flight work is shared
+    }
+
+    @Test
+    void followerStopsWaitingAtItsOwnDeadline() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ConditionsService service = service(inv -> {
+            release.await(10, TimeUnit.SECONDS);
+            return List.of();
+        });
+        ObservationsRequest r = new ObservationsRequest("RVK", "IFJ", null, null);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<ConditionsService.Conditions> leader = pool.submit(() -> service.gather(r));
+        while (upstreamCalls.get() == 0) {
+            Thread.sleep(5);
+        }
+
+        Future<ConditionsService.Conditions> follower = pool.submit(() -> {
+            Deadline.start(Duration.ofMillis(200));
+            try {
+                return service.gather(r);
+            } finally {
+                Deadline.clear();
+            }
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> follower.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(Deadline.Exceeded.class, e.getCause());
+        assertFalse(leader.isDone());
+        release.countDown();
+        assertNotNull(leader.get(2, TimeUnit.SECONDS));
+        pool.shutdown();
+    }
+
+    @Test
+    void leadersErrorReleasesFollowers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ConditionsService service = service(inv -> {
+            release.await(10, TimeUnit.SECONDS);
+            throw new StackOverflowError();
+        });
+        ObservationsRequest r = new ObservationsRequest("RVK", "IFJ", null, null);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<ConditionsService.Conditions> leader = pool.submit(() -> service.gather(r));
+        while (upstreamCalls.get() == 0) {
+            Thread.sleep(5);
+        }
+        Future<ConditionsService.Conditions> follower = pool.submit(() -> service.gather(r));
+        while (service.stats().get("coalesced") == 0) {
+            Thread.sleep(5);
+        }
+
+        release.countDown();
+
+        assertInstanceOf(StackOverflowError.class, assertThrows(ExecutionException.class,
+                () -> leader.get(2, TimeUnit.SECONDS)).getCause());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> follower.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, e.getCause().getCause()); // CompletionException(Error)
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,229 @@
+package dk.ek.roadsai;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dk.ek.roadsai.service.cache.InMemorySharedCache;
+import dk.ek.roadsai.service.cache.TieredCache;
+import dk.ek.roadsai.service.timing.Deadline;
+import dk.ek.roadsai.service.timing.DeadlineWatchdog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeadlineTest {
+
+    @AfterEach
+    void clear() {
+        Deadline.clear();
+    }
+
+    @Test
+    void cancelAbortsInFlightCall() throws Exception {
+        Deadline deadline = Deadline.of(Duration.ofSeconds(10));
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        CompletableFuture<Throwable> failure = CompletableFuture.supplyAsync(() -> {
+            try {
+                deadline.bound(Mono.never().doOnCancel(() -> upstreamCancelled.set(true)), Duration.ofSeconds(10)).block();
+                return null;
+            } catch (Throwable e) {
+                return e;
+            }
+        });
+        Thread.sleep(100);
+
+        deadline.cancel(Deadline.DISCONNECTED);
+
+        Throwable e = failure.get(2, TimeUnit.SECONDS);
+        assertInstanceOf(Deadline.Exceeded.class, e);
+        assertEquals(Deadline.DISCONNECTED, e.getMessage());
+        assertTrue(upstreamCancelled.get()); // connection released, not left running
+    }
+
+    @Test
+    void budgetShortensUpstreamTimeout() {
+        Deadline.start(Duration.ofMillis(200));
+        long started = System.nanoTime();
+
+        Deadline.Exceeded e = assertThrows(Deadline.Exceeded.class,
+                () -> Deadline.bind(Mono.never(), Duration.ofSeconds(10)).block());
+
+        assertEquals(Deadline.EXPIRED, e.getMessage());
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(2));
+        assertThrows(Deadline.Exceeded.class, Deadline::check); // later stages are not started
+    }
+
+    @Test
+    void capStillAppliesWithinBudget() {
+        Deadline deadline = Deadline.start(Duration.ofSeconds(10));
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> Deadline.bind(Mono.never(), Duration.ofMillis(100)).block());
+
+        assertInstanceOf(TimeoutException.class, e.getCause()); // upstream timeout, request carries on
+        assertFalse(deadline.done());
+        Deadline.check();
+    }
+
+    @Test
+    void noDeadlineOutsideRequests() {
+        assertNull(Deadline.current());
+        assertEquals("ok", Deadline.bind(Mono.just("ok"), null).block());
+        Deadline.check();
+        assertFalse(Deadline.isDone());
+    }
+
+    @Test
+    void watchdogCancelsExpiredAndDisconnected() {
+        DeadlineWatchdog watchdog = new DeadlineWatchdog();
+        Deadline expired = Deadline.of(Duration.ZERO);
+        Deadline gone = Deadline.of(Duration.ofSeconds(10));
+        Deadline running = Deadline.of(Duration.ofSeconds(10));
+        watchdog.watch(expired, null);
+        watchdog.watch(gone, () -> true);
+        watchdog.watch(running, () -> false);
+
+        ReflectionTestUtils.invokeMethod(watchdog, "probe");
+
+        assertEquals(Deadline.EXPIRED, expired.cancelReason());
+        assertEquals(Deadline.DISCONNECTED, gone.cancelReason());
+        assertNull(running.cancelReason());
+        List.of(expired, gone, running).forEach(watchdog::finish);
+        assertEquals(1, watchdog.stats().get("expired"));
+        assertEquals(1, watchdog.stats().get("disconnected"));
+        assertEquals(1, watchdog.stats().get("completed"));
+        assertEquals(0, watchdog.stats().get("active"));
+    }
+
+    @Test
+    void coalescedRequestLoadsItselfWhenLeaderGivesUp() throws Exception {
+        TieredCache cache = new TieredCache(new InMemorySharedCache(), new ObjectMapper());
+        TypeReference<List<String>> type = new TypeReference<>() {
+        };
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Deadline leaderDeadline = Deadline.of(Duration.ofSeconds(10));
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<?> leader = pool.submit(() -> {
+            Deadline.start(Duration.ofSeconds(10));
+            try {
+                return cache.load("vedur-cap", "64.1,-21.9", Duration.ofMinutes(5), type, () -> {
+                    upstreamCalls.incrementAndGet();
+                    return leaderDeadline.bound(Mono.<List<String>>never(), null).block();
+                });
+            } finally {
+                Deadline.clear();
+            }
+        });
+        Thread.sleep(100);
+        Future<TieredCache.Loaded<List<String>>> follower = pool.submit(() ->
+                cache.load("vedur-cap", "64.1,-21.9", Duration.ofMinutes(5), type, () -> {
+                    upstreamCalls.incrementAndGet();
+                    return List.of("alert");
+                }));
+        Thread.sleep(100);
+
+        leaderDeadline.cancel(Deadline.DISCONNECTED);
+
+        Exception e = assertThrows(Exception.class, () -> leader.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(Deadline.Exceeded.class, e.getCause());
+        assertEquals(List.of("alert"), follower.get(2, TimeUnit.SECONDS).value()); // not the leader's failure
+        assertEquals(2, upstreamCalls.get());
+        pool.shutdown();
+    }
+
+    @Test
+    void awaitGivesUpAtTheDeadline() {
+        Deadline.start(Duration.ofMillis(200));
+        long started = System.nanoTime();
+
+        Deadline.Exceeded e = assertThrows(Deadline.Exceeded.class, () -> Deadline.await(new CompletableFuture<>()));
+
+        assertEquals(Deadline.EXPIRED, e.getMessage());
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void awaitWakesOnCancelWithoutFailingTheSharedFuture() throws Exception {
+        Deadline deadline = Deadline.of(Duration.ofSeconds(10));
+        CompletableFuture<String> shared = new CompletableFuture<>();
+        CompletableFuture<Throwable> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return Deadline.with(deadline, () -> {
+                    Deadline.await(shared);
+                    return null;
+                });
+            } catch (Throwable e) {
+                return e;
+            }
+        });
+        Thread.sleep(100);
+
+        deadline.cancel(Deadline.DISCONNECTED);
+
+        Throwable e = waiter.get(2, TimeUnit.SECONDS);
+        assertInstanceOf(Deadline.Exceeded.class, e);
+        assertEquals(Deadline.DISCONNECTED, e.getMessage());
+        assertFalse(shared.isDone()); // other waiters are not affected
+    }
+
+    @Test
+    void withBindsTheDeadlineOnAnotherThread() throws Exception {
+        Deadline deadline = Deadline.start(Duration.ZERO);
+        CompletableFuture<Boolean> task = CompletableFuture.supplyAsync(() -> Deadline.with(deadline, Deadline::isDone));
+
+        assertTrue(task.get(2, TimeUnit.SECONDS));
+        assertSame(deadline, Deadline.current());
+        assertEquals("ok", Deadline.with(null, () -> Deadline.current() == null ? "ok" : "bound"));
+        assertSame(deadline, Deadline.current()); // restored
+    }
+
+    @Test
+    void awaitRethrowsTheFuturesFailure() {
+        Deadline.start(Duration.ofSeconds(10));
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> Deadline.await(CompletableFuture.failedFuture(new IllegalStateException("upstream"))));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        Deadline.check();
+    }
+
+    @Test
+    void coalescedLoadStopsWaitingAtItsOwnDeadline() throws Exception {
+        TieredCache cache = new TieredCache(new InMemorySharedCache(), new ObjectMapper());
+        TypeReference<List<String>> type = new TypeReference<>() {
+        };
+        CompletableFuture<List<String>> upstream = new CompletableFuture<>();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<?> leader = pool.submit(() -> cache.load("yr-no", "64.1,-21.9", Duration.ofMinutes(5), type, upstream::join));
+        Thread.sleep(100);
+
+        Future<?> follower = pool.submit(() -> {
+            Deadline.start(Duration.ofMillis(200));
+            try {
+                return cache.load("yr-no", "64.1,-21.9", Duration.ofMinutes(5), type, () -> List.of("own"));
+            } finally {
+                Deadline.clear();
+            }
+        });
+
+        Exception e = assertThrows(Exception.class, () -> follower.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(Deadline.Exceeded.class, e.getCause());
+        upstream.complete(List.of("leader"));
+        leader.get(2, TimeUnit.SECONDS);
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,104 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.dto.ObservationsDelta;
+import dk.ek.roadsai.dto.ObservationsRequest;
+import dk.ek.roadsai.dto.ObservationsResponse;
+import dk.ek.roadsai.dto.StationStatus;
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.model.StationObservation;
+import dk.ek.roadsai.service.delta.DeltaSyncService;
+import dk.ek.roadsai.service.health.StationHealthRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeltaSyncServiceTest {
+    private static final ObservationsRequest KEY = new ObservationsRequest("RVK", "IFJ", null, null);
+    private static final Instant T0 = Instant.parse("2026-01-10T12:00:00Z");
+
+    private static StationObservation obs(String id, Instant t, double wind) {
+        return new StationObservation(id, t, -2.0, wind, null, null, null);
+    }
+
+    private static CapAlert alert(String headline) {
+        CapAlert a = new CapAlert();
+        a.severity = "Moderate";
+        a.eventType = "Wind";
+        a.headline = headline;
+        return a;
+    }
+
+    private static ObservationsResponse response(List<StationObservation> obs, List<CapAlert> alerts, List<String> advice) {
+        return response(obs, alerts, advice, List.of());
+    }
+
+    private static ObservationsResponse response(List<StationObservation> obs, List<CapAlert> alerts, List<String> advice,
+                                                 List<StationStatus> health) {
+        List<Station> stations = List.of(
+                new Station("imo:1", "A", 64.1, -21.9, "weather"),
+                new Station("imo:2", "B", 65.0, -22.0, "weather"));
+        return new ObservationsResponse(obs, Map.of("imo:1", alerts, "imo:2", List.of()), stations,
+                List.of(List.of(-21.9, 64.1), List.of(-22.0, 65.0)), advice, List.of(), List.of(), health);
+    }
+
+    @Test
+    void unchangedContentKeepsVersionAndDeltaHasOnlyChanges() {
+        DeltaSyncService delta = new DeltaSyncService();
+        ObservationsResponse first = response(
+                List.of(obs("imo:1", T0, 5), obs("imo:2", T0, 7)), List.of(alert("gale")), List.of("A: ok", "B: ok"));
+        long v1 = delta.publish(KEY, first);
+        assertEquals(v1, delta.publish(KEY, response(
+                List.of(obs("imo:1", T0, 5), obs("imo:2", T0, 7)), List.of(alert("gale")), List.of("A: ok", "B: ok"))));
+
+        // new reading for imo:1, old one left the window, alert replaced, advice for B changed
+        ObservationsResponse second = response(
+                List.of(obs("imo:1", T0.plusSeconds(600), 9), obs("imo:2", T0, 7)), List.of(alert("storm")),
+                List.of("A: ok", "B: strong wind"));
+        ObservationsDelta d = delta.sync(KEY, second, v1);
+
+        assertFalse(d.full());
+        assertTrue(d.version() > v1);
+        assertEquals(List.of(obs("imo:1", T0.plusSeconds(600), 9)), d.observations());
+        assertEquals(List.of("imo:1@" + T0), d.removedObservations());
+        assertEquals("storm", d.addedAlerts().get("imo:1").getFirst().headline);
+        assertEquals("gale", d.removedAlerts().get("imo:1").getFirst().headline);
+        assertEquals(Map.of(1, "B: strong wind"), d.advice());
+        assertNull(d.forecasts());
+
+        // up to date client gets an empty delta
+        ObservationsDelta none = delta.sync(KEY, second, d.version());
+        assertFalse(none.full());
+        assertTrue(none.observations().isEmpty() && none.advice().isEmpty());
+    }
+
+    @Test
+    void unknownVersionFallsBackToFull() {
+        DeltaSyncService delta = new DeltaSyncService();
+        ObservationsResponse r = response(List.of(), List.of(), List.of("A: ok", "B: ok"));
+        ObservationsDelta d = delta.sync(KEY, r, 12345L);
+        assertTrue(d.full());
+        assertSame(r, d.snapshot());
+        assertTrue(delta.sync(KEY, r, null).full());
+    }
+
+    @Test
+    void refetchOfUnchangedDataKeepsVersion() throws Exception {
+        DeltaSyncService delta = new DeltaSyncService();
+        StationHealthRegistry registry = new StationHealthRegistry();
+        List<StationObservation> obs = List.of(obs("imo:1", T0, 5));
+
+        registry.observed("imo:1", T0);
+        long v1 = delta.publish(KEY, response(obs, List.of(), List.of("A: ok"),
+                List.of(StationStatus.of(registry.health("imo:1")))));
+        Thread.sleep(5);
+        registry.observed("imo:1", T0); // same data fetched again, later lastSuccess
+
+        assertEquals(v1, delta.publish(KEY, response(obs, List.of(), List.of("A: ok"),
+                List.of(StationStatus.of(registry.health("imo:1"))))));
+    }
+}
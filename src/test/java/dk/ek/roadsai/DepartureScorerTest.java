@@ -0,0 +1,113 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.model.RiskLevel;
+import dk.ek.roadsai.service.ForecastSampler;
+import dk.ek.roadsai.service.departure.DepartureScorer;
+import dk.ek.roadsai.service.hazard.HazardEngine;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DepartureScorerTest {
+
+    private static final Instant T0 = Instant.parse("2025-11-05T00:00:00Z");
+    private static final HazardEngine.ForecastThresholds THRESHOLDS = new HazardEngine().forecastThresholds();
+
+    // hourly series over 48 h, values per hour
+    private static List<ForecastPoint> hourly(IntFunction<Double> temp, IntFunction<Double> wind, IntFunction<Double> precip) {
+        List<ForecastPoint> out = new ArrayList<>();
+        for (int h = 0; h <= 48; h++) {
+            out.add(new ForecastPoint(T0.plus(Duration.ofHours(h)), 65.75, -22.13, temp.apply(h), wind.apply(h), precip.apply(h)));
+        }
+        return out;
+    }
+
+    private static long[] departures(int count, int stepMinutes) {
+        long[] out = new long[count];
+        for (int c = 0; c < count; c++) {
+            out[c] = T0.getEpochSecond() + c * stepMinutes * 60L;
+        }
+        return out;
+    }
+
+    @Test
+    void calmWindowRanksFirst() {
+        // storm on the pass until 10:00, the second station is reached 2 h later
+        var pass = DepartureScorer.Series.of(hourly(h -> 3.0, h -> h < 10 ? 22.0 : 6.0, h -> 0.0));
+        var valley = DepartureScorer.Series.of(hourly(h -> 4.0, h -> 5.0, h -> 0.0));
+        long[] departures = departures(24, 30);
+
+        var scores = DepartureScorer.score(departures, new long[]{0, 7200},
+                new DepartureScorer.Series[]{pass, valley}, THRESHOLDS);
+        List<Integer> ranked = DepartureScorer.rank(scores);
+
+        assertEquals(RiskLevel.HIGH.ordinal(), scores.worst()[0]); // 22 m/s >= danger
+        int best = ranked.getFirst();
+        assertEquals(T0.plus(Duration.ofHours(10)).getEpochSecond(), departures[best]); // earliest calm departure
+        assertEquals(RiskLevel.LOW.ordinal(), scores.worst()[best]);
+        assertEquals(0, scores.flagged()[best]);
+    }
+
+    @Test
+    void iceNeedsFreezingAndPrecipitation() {
+        var dry = DepartureScorer.Series.of(hourly(h -> -2.0, h -> 3.0, h -> 0.0));
+        var wet = DepartureScorer.Series.of(hourly(h -> -2.0, h -> 3.0, h -> 0.5));
+
+        var scores = DepartureScorer.score(departures(1, 30), new long[]{0, 0},
+                new DepartureScorer.Series[]{dry, wet}, THRESHOLDS);
+
+        assertEquals(RiskLevel.HIGH.ordinal(), scores.worst()[0]);
+        assertEquals(2, scores.flagged()[0]); // freezing (MODERATE) + ice (HIGH)
+        assertEquals(-2.0, scores.minTempC()[0]);
+    }
+
+    @Test
+    void samplingMatchesForecastSampler() {
+        List<ForecastPoint> points = hourly(h -> -5.0 + h * 0.5, h -> h % 2 == 0 ? 4.0 : 10.0, h -> h * 0.1);
+        var series = DepartureScorer.Series.of(points);
+        long[] departures = departures(60, 17); // off the hourly grid
+        long offset = 1234;
+
+        for (int c = 0; c < departures.length; c++) {
+            // single station, single candidate: minTemp / peakWind are the sampled values
+            var scores = DepartureScorer.score(new long[]{departures[c]}, new long[]{offset},
+                    new DepartureScorer.Series[]{series}, THRESHOLDS);
+            ForecastPoint expected = ForecastSampler.interpolate(points, Instant.ofEpochSecond(departures[c] + offset));
+            assertEquals(expected.tempC(), scores.minTempC()[0], 1e-9);
+            assertEquals(expected.windMs(), scores.peakWindMs()[0], 1e-9);
+        }
+    }
+
+    @Test
+    void departuresBeyondForecastHorizonAreNotRanked() {
+        var series = DepartureScorer.Series.of(hourly(h -> 5.0, h -> 5.0, h -> 0.0));
+        long[] departures = departures(100, 30); // last ETAs past hour 48
+
+        var scores = DepartureScorer.score(departures, new long[]{3 * 3600},
+                new DepartureScorer.Series[]{series}, THRESHOLDS);
+        List<Integer> ranked = DepartureScorer.rank(scores);
+
+        assertEquals(91, ranked.size()); // departures up to 45:00
+        assertFalse(scores.covered()[91]);
+        assertTrue(ranked.stream().allMatch(c -> scores.covered()[c]));
+    }
+
+    @Test
+    void missingForecastRaisesNothing() {
+        var series = DepartureScorer.Series.of(hourly(h -> null, h -> null, h -> null));
+
+        var scores = DepartureScorer.score(departures(3, 30), new long[]{0},
+                new DepartureScorer.Series[]{series}, THRESHOLDS);
+
+        assertEquals(0, scores.worst()[0]);
+        assertTrue(Double.isNaN(scores.peakWindMs()[0]));
+        assertEquals(3, DepartureScorer.rank(scores).size());
+    }
+}
@@ -0,0 +1,38 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.service.push.EventBuffer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventBufferTest {
+
+    @Test
+    void fullBufferKeepsNewestEvents() throws Exception {
+        EventBuffer<String> buffer = new EventBuffer<>(2, 10);
+
+        buffer.offer("v1");
+        buffer.offer("v2");
+        assertTrue(buffer.offer("v3"));
+
+        assertEquals("v2", buffer.poll(10));
+        assertEquals("v3", buffer.poll(10));
+        assertNull(buffer.poll(10));
+    }
+
+    @Test
+    void stalledConsumerIsReportedAsSlow() throws Exception {
+        EventBuffer<Integer> buffer = new EventBuffer<>(2, 3);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buffer.offer(i)); // 3 drops allowed
+        }
+        assertFalse(buffer.offer(5));
+
+        // a consumer that keeps up resets the drop count
+        EventBuffer<Integer> keepingUp = new EventBuffer<>(2, 3);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(keepingUp.offer(i));
+            if (i % 3 == 0) keepingUp.poll(10);
+        }
+    }
+}
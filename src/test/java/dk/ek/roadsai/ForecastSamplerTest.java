@@ -0,0 +1,29 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.service.ForecastSampler;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForecastSamplerTest {
+
+    @Test
+    void interpolatesBetweenSteps() {
+        Instant t0 = Instant.parse("2025-11-05T12:00:00Z");
+        List<ForecastPoint> series = List.of(
+                new ForecastPoint(t0, 64.1, -21.9, 0.0, 10.0, 0.4),
+                new ForecastPoint(t0.plusSeconds(3600), 64.1, -21.9, 2.0, 20.0, 1.0)
+        );
+
+        ForecastPoint mid = ForecastSampler.interpolate(series, t0.plusSeconds(900));
+
+        assertEquals(0.5, mid.tempC(), 1e-9);
+        assertEquals(12.5, mid.windMs(), 1e-9);
+        assertEquals(0.4, mid.precipMm());
+        assertNull(ForecastSampler.interpolate(series, t0.plusSeconds(7200))); // beyond horizon
+    }
+}
@@ -0,0 +1,68 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.dto.vedur.is.CapAlert;
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.model.RiskLevel;
+import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.model.StationRisk;
+import dk.ek.roadsai.service.ai.ObservationReducer;
+import dk.ek.roadsai.service.hazard.HazardEngine;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HazardEngineTest {
+
+    private final HazardEngine engine = new HazardEngine();
+    private final Station station = new Station("veg:32474", "STEHE (Steingrímsfjarðarheiði)", 65.7503, -22.1291, "VEGAGERDIN");
+
+    @Test
+    void calmStationIsLow() {
+        var facts = facts(5.0, 8.0, 4.0);
+
+        StationRisk risk = engine.evaluate(Map.of(station.id(), facts), List.of(station), List.of()).getFirst();
+
+        assertEquals(RiskLevel.LOW, risk.level());
+        assertTrue(risk.advice().startsWith(station.name() + ":"));
+    }
+
+    @Test
+    void strongGustsAndForecastIceRaiseLevel() {
+        var facts = facts(16.0, 27.0, 3.0);
+        var forecast = new ForecastPoint(Instant.now(), station.latitude(), station.longitude(), -1.0, 10.0, 0.8);
+
+        StationRisk risk = engine.evaluate(Map.of(station.id(), facts), List.of(station), List.of(forecast)).getFirst();
+
+        assertEquals(RiskLevel.SEVERE, risk.level());
+        assertTrue(risk.reasons().contains("gusts 27 m/s"));
+        assertTrue(risk.reasons().stream().anyMatch(r -> r.startsWith("forecast ice risk")));
+    }
+
+    @Test
+    void capAlertSeverityMapsToLevel() {
+        var facts = facts(null, null, null);
+        CapAlert alert = new CapAlert();
+        alert.severity = "Moderate";
+        alert.eventType = "Wind";
+        facts.alerts = List.of(alert);
+
+        StationRisk risk = engine.evaluate(Map.of(station.id(), facts), List.of(station), List.of()).getFirst();
+
+        assertEquals(RiskLevel.HIGH, risk.level());
+    }
+
+    private ObservationReducer.StationFacts facts(Double wind, Double gust, Double temp) {
+        var facts = new ObservationReducer.StationFacts();
+        facts.stationId = station.id();
+        facts.stationName = station.name();
+        facts.windMs = wind;
+        facts.maxGustMs = gust;
+        facts.minTempC = temp;
+        facts.alerts = List.of();
+        return facts;
+    }
+}
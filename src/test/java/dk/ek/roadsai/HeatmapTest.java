@@ -0,0 +1,133 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.service.heatmap.HazardGrid;
+import dk.ek.roadsai.service.heatmap.HeatmapService;
+import dk.ek.roadsai.service.heatmap.TileRenderer;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeatmapTest {
+
+    // Hafnarfjall (severe) and Ísafjörður (low)
+    private static final List<HazardGrid.Sample> SAMPLES = List.of(
+            new HazardGrid.Sample(64.4755, -21.9603, 3),
+            new HazardGrid.Sample(66.0596, -23.1699, 0));
+
+    private static HazardGrid grid(List<HazardGrid.Sample> samples, ForkJoinPool pool) {
+        return HazardGrid.interpolate(samples, 63.2, -24.6, 66.6, -13.4, 0.02, 80, 2, pool);
+    }
+
+    @Test
+    void idwHonoursStationsAndRadius() {
+        HazardGrid g = grid(SAMPLES, ForkJoinPool.commonPool());
+
+        assertEquals(3, g.value(64.4755, -21.9603), 0.05);
+        assertEquals(0, g.value(66.0596, -23.1699), 0.05);
+        assertTrue(g.coverage(64.4755, -21.9603) > 0.95);
+        // east Iceland is > 80 km from both stations
+        assertEquals(0, g.coverage(65.26, -14.4));
+    }
+
+    @Test
+    void parallelMatchesSingleThreadAndBruteForce() {
+        Random rnd = new Random(47);
+        List<HazardGrid.Sample> samples = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            samples.add(new HazardGrid.Sample(63.3 + rnd.nextDouble() * 3.2, -24.5 + rnd.nextDouble() * 11, rnd.nextInt(4)));
+        }
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool many = new ForkJoinPool(4);
+        try {
+            HazardGrid a = grid(samples, single);
+            HazardGrid b = grid(samples, many);
+            for (int i = 0; i < 500; i++) {
+                double lat = 63.2 + 0.02 * rnd.nextInt(170);
+                double lon = -24.6 + 0.02 * rnd.nextInt(560);
+                assertEquals(a.value(lat, lon), b.value(lat, lon));
+                assertEquals(a.coverage(lat, lon), b.coverage(lat, lon));
+                assertEquals(bruteForce(samples, lat, lon), a.value(lat, lon), 1e-4, lat + "," + lon);
+            }
+        } finally {
+            single.shutdown();
+            many.shutdown();
+        }
+    }
+
+    @Test
+    void stationNearTheRadiusEdgeIsFoundNorthOfAllSamples() {
+        // buckets are sized for the northernmost sample (63.402N), the grid cell at 63.42N spans slightly more longitude:
+        // A sits just west of a bucket boundary, a bucket-wide scan around -21.6 starts just east of it
+        double bucketLon = (80 / 111.195) / Math.cos(Math.toRadians(63.402));
+        double west = -21.6 - 2 * bucketLon - 0.0001;
+        List<HazardGrid.Sample> samples = List.of(
+                new HazardGrid.Sample(63.3, west, 1),
+                new HazardGrid.Sample(63.402, west + bucketLon - 0.0001, 3)); // A, 79.98 km from the cell
+        HazardGrid g = grid(samples, ForkJoinPool.commonPool());
+
+        assertTrue(g.coverage(63.42, -21.6) > 0);
+        assertEquals(bruteForce(samples, 63.42, -21.6), g.value(63.42, -21.6), 1e-4);
+    }
+
+    @Test
+    void tilesArePngAndEmptyAwayFromData() {
+        HazardGrid g = grid(SAMPLES, ForkJoinPool.commonPool());
+        int z = 7;
+        byte[] png = TileRenderer.render(g, z, TileRenderer.tileX(z, -21.9603), TileRenderer.tileY(z, 64.4755), 0.6);
+
+        assertNotNull(png);
+        assertArrayEquals(new byte[]{(byte) 0x89, 'P', 'N', 'G'}, Arrays.copyOf(png, 4));
+        assertNull(TileRenderer.render(g, z, TileRenderer.tileX(z, -14.4), TileRenderer.tileY(z, 65.26), 0.6));
+        assertNull(TileRenderer.render(g, z, 0, 0, 0.6)); // outside Iceland
+    }
+
+    @Test
+    void tileReadsServeCurrentSetAndSkipUnchangedRefreshes() throws Exception {
+        HeatmapService heatmap = new HeatmapService(null, null, null, null, null);
+        ReflectionTestUtils.setField(heatmap, "maxZoom", 7);
+        heatmap.init();
+        try {
+            heatmap.update(SAMPLES);
+            int x = TileRenderer.tileX(7, -21.9603), y = TileRenderer.tileY(7, 64.4755);
+            HeatmapService.Tile tile = heatmap.tile(7, x, y);
+            byte[] empty = heatmap.tile(3, 0, 0).png();
+
+            assertEquals(1, tile.version());
+            assertTrue(tile.png().length > empty.length);
+
+            heatmap.update(List.copyOf(SAMPLES));
+            assertEquals(1, heatmap.tile(7, x, y).version());
+            assertEquals(1L, heatmap.stats().get("unchanged"));
+
+            heatmap.update(List.of(SAMPLES.get(1)));
+            assertEquals(2, heatmap.tile(7, x, y).version());
+        } finally {
+            heatmap.close();
+        }
+    }
+
+    private static double bruteForce(List<HazardGrid.Sample> samples, double lat, double lon) {
+        return bruteForce(samples, lat, lon, 80);
+    }
+
+    private static double bruteForce(List<HazardGrid.Sample> samples, double lat, double lon, double radiusKm) {
+        double w = 0, v = 0;
+        for (HazardGrid.Sample s : samples) {
+            double dy = (s.lat() - lat) * 111.195;
+            double dx = (s.lon() - lon) * 111.195 * Math.cos(Math.toRadians(lat));
+            double d = Math.sqrt(dx * dx + dy * dy);
+            if (d > radiusKm) continue;
+            d = Math.max(d, 0.05);
+            w += 1 / (d * d);
+            v += s.value() / (d * d);
+        }
+        return w == 0 ? 0 : v / w;
+    }
+}
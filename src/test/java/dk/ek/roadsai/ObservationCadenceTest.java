@@ -0,0 +1,62 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.service.provider.ObservationCadence;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ObservationCadenceTest {
+
+    private final Instant obs = Instant.parse("2025-11-05T12:00:00Z");
+
+    private ObservationCadence cadence() {
+        return new ObservationCadence(Duration.ofMinutes(10), Duration.ofMinutes(2), Duration.ofMinutes(15));
+    }
+
+    @Test
+    void refreshesRightAfterNextObservationIsDue() {
+        ObservationCadence c = cadence();
+
+        // fetched 3 min after the 12:00 observation, next one 12:10 + 2 min lag + margin
+        Instant expires = c.expiresAt("1475", obs, obs.plusSeconds(180));
+
+        assertEquals(obs.plus(Duration.ofMinutes(12)).plusSeconds(20), expires);
+    }
+
+    @Test
+    void backsOffWhenNothingNew() {
+        ObservationCadence c = cadence();
+        c.expiresAt("1475", obs, obs.plusSeconds(180));
+
+        Instant t1 = obs.plus(Duration.ofMinutes(13));
+        Instant t2 = t1.plus(Duration.ofMinutes(1));
+        assertEquals(t1.plus(Duration.ofMinutes(1)), c.expiresAt("1475", obs, t1));
+        assertEquals(t2.plus(Duration.ofMinutes(2)), c.expiresAt("1475", obs, t2));
+        // publish lag raised to at least what we just saw (3 min overdue on first miss)
+        assertTrue(c.lagSeconds() >= 180);
+    }
+
+    @Test
+    void probesEarlierWhileObservationsArriveOnTime() {
+        ObservationCadence c = cadence();
+        c.expiresAt("1475", obs, obs.plusSeconds(180));
+
+        c.expiresAt("1475", obs.plus(Duration.ofMinutes(10)), obs.plus(Duration.ofMinutes(12)));
+
+        assertTrue(c.lagSeconds() < 120);
+    }
+
+    @Test
+    void overdueFeedIsCappedAndFloored() {
+        ObservationCadence c = cadence();
+        Instant fetchedAt = obs.plus(Duration.ofHours(2)); // station stopped reporting
+
+        Instant expires = c.expiresAt("2481", obs, fetchedAt);
+
+        assertFalse(expires.isBefore(fetchedAt.plusSeconds(30)));
+        assertFalse(expires.isAfter(fetchedAt.plus(Duration.ofMinutes(15))));
+    }
+}
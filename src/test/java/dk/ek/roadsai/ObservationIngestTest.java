@@ -0,0 +1,137 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.dto.vedur.is.VedurAwsDto;
+import dk.ek.roadsai.dto.vegagerdin.VegagerdinItemDto;
+import dk.ek.roadsai.model.StationObservation;
+import dk.ek.roadsai.service.ingest.IcelandTime;
+import dk.ek.roadsai.service.ingest.ObservationIngest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ObservationIngestTest {
+    private static final ZoneId Z_REYK = ZoneId.of("Atlantic/Reykjavik");
+
+    @Test
+    void parsersMatchJavaTime() {
+        DateTimeFormatter dotted = DateTimeFormatter.ofPattern("d.M.yyyy HH:mm:ss");
+        Random rnd = new Random(46);
+        for (int i = 0; i < 20_000; i++) {
+            // 1940..2060 covers the pre-1968 DST periods (ZoneRules fallback) and the fixed UTC+0 period
+            LocalDateTime t = LocalDateTime.of(1940, 1, 1, 0, 0).plusSeconds(rnd.nextLong(120L * 365 * 86_400));
+            long expected = t.atZone(Z_REYK).toEpochSecond();
+
+            assertEquals(expected, IcelandTime.parseIso(t.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)), t.toString());
+            assertEquals(expected, IcelandTime.parseDotted(t.format(dotted)), t.toString());
+        }
+    }
+
+    @Test
+    void layoutVariants() {
+        long t = Instant.parse("2025-11-04T21:50:00Z").getEpochSecond();
+        assertEquals(t, IcelandTime.parseDotted("4.11.2025 21:50:00"));
+        assertEquals(t, IcelandTime.parseDotted("04.11.2025 21:50"));
+        assertEquals(t, IcelandTime.parseIso("2025-11-04T21:50:00"));
+        assertEquals(t, IcelandTime.parseIso("2025-11-04 21:50"));
+        assertEquals(t, IcelandTime.parseIso("2025-11-04T21:50:00.000"));
+    }
+
+    @Test
+    void malformedIsInvalid() {
+        for (String s : new String[]{null, "", "2025-11-04", "2025-13-04T21:50:00", "2025-02-29T10:00:00",
+                "2025-11-04T24:00:00", "2025-11-04T21:50:0x", "2025-11-04X21:50:00", "2025-11-04T21:50:00Z"}) {
+            assertEquals(IcelandTime.INVALID, IcelandTime.parseIso(s), s);
+        }
+        for (String s : new String[]{null, "", "4.11.25 21:50:00", "32.1.2025 10:00:00", "4.11.2025", "4/11/2025 21:50:00",
+                "4.11.2025 21:5", "4.11.2025 21:50:00 ", "123.11.2025 21:50:00"}) {
+            assertEquals(IcelandTime.INVALID, IcelandTime.parseDotted(s), s);
+        }
+        assertEquals(Instant.parse("2024-02-29T10:00:00Z").getEpochSecond(), IcelandTime.parseIso("2024-02-29T10:00:00"));
+    }
+
+    @Test
+    void imoRowsAreSortedImmutableAndSkipMalformed() {
+        List<StationObservation> obs = ObservationIngest.imo("imo:1475", List.of(
+                aws("2025-11-05T20:50:00", 3.0), aws("garbage", 1.0), aws("2025-11-05T20:40:00", 2.0)));
+
+        assertEquals(2, obs.size());
+        assertEquals(2.0, obs.get(0).tempC());
+        assertEquals(Instant.parse("2025-11-05T20:50:00Z"), ObservationIngest.newest(obs));
+        assertThrows(UnsupportedOperationException.class, () -> obs.add(obs.getFirst()));
+    }
+
+    @Test
+    void vegagerdinGroupsWantedStationsOnly() {
+        Map<String, List<StationObservation>> byStation = ObservationIngest.vegagerdin(List.of(
+                veg(31674, "4.11.2025 21:50:00"), veg(31674, "4.11.2025 21:40:00"),
+                veg(99999, "4.11.2025 21:50:00"), veg(31985, "bad")), Set.of(31674, 31985));
+
+        assertEquals(Set.of("veg:31674"), byStation.keySet());
+        assertEquals(Instant.parse("2025-11-04T21:40:00Z"), byStation.get("veg:31674").getFirst().timestamp());
+    }
+
+    @Test
+    void vegagerdinLatestKeepsNewestRowOfEveryStationWithCoordinates() {
+        VegagerdinItemDto east = veg(33751, "4.11.2025 21:50:00");
+        east.breidd = 65.26;
+        east.lengd = -14.4;
+        east.nafn = "FAGRI (Fagridalur)";
+        VegagerdinItemDto older = veg(31674, "4.11.2025 21:40:00");
+        older.breidd = 64.4755;
+        older.lengd = -21.9603;
+        VegagerdinItemDto newer = veg(31674, "4.11.2025 21:50:00");
+        newer.breidd = 64.4755;
+        newer.lengd = -21.9603;
+
+        List<ObservationIngest.Latest> latest = ObservationIngest.vegagerdinLatest(List.of(
+                older, east, newer, veg(99999, "4.11.2025 21:50:00"))); // 99999 has no coordinates
+
+        Map<String, ObservationIngest.Latest> byId = new HashMap<>();
+        latest.forEach(l -> byId.put(l.station().id(), l));
+        assertEquals(Set.of("veg:33751", "veg:31674"), byId.keySet());
+        assertEquals("FAGRI (Fagridalur)", byId.get("veg:33751").station().name());
+        assertEquals(-14.4, byId.get("veg:33751").station().longitude());
+        assertEquals(Instant.parse("2025-11-04T21:50:00Z"), byId.get("veg:31674").observation().timestamp());
+    }
+
+    @Test
+    void windowReturnsSameListWhenFullyCovered() {
+        List<VedurAwsDto.Aws10minBasic> rows = new ArrayList<>();
+        for (int m = 0; m < 60; m += 10) {
+            rows.add(aws("2025-11-05T20:" + (m == 0 ? "00" : m) + ":00", m));
+        }
+        List<StationObservation> obs = ObservationIngest.imo("imo:1475", rows);
+        Instant t0 = Instant.parse("2025-11-05T20:00:00Z");
+
+        assertSame(obs, ObservationIngest.window(obs, t0.minusSeconds(1), t0.plusSeconds(3600)));
+        List<StationObservation> mid = ObservationIngest.window(obs, t0.plusSeconds(600), t0.plusSeconds(1800));
+        assertEquals(List.of(10.0, 20.0, 30.0), mid.stream().map(StationObservation::tempC).toList());
+        assertTrue(ObservationIngest.window(obs, t0.plusSeconds(7200), t0.plusSeconds(9000)).isEmpty());
+    }
+
+    private static VedurAwsDto.Aws10minBasic aws(String time, double t) {
+        var a = new VedurAwsDto.Aws10minBasic();
+        a.time = time;
+        a.t = t;
+        return a;
+    }
+
+    private static VegagerdinItemDto veg(int nr, String dags) {
+        var v = new VegagerdinItemDto();
+        v.nrVedurstofa = nr;
+        v.dags = dags;
+        v.hiti = 1.0;
+        return v;
+    }
+}
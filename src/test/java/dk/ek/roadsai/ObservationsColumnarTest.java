@@ -0,0 +1,85 @@
+package dk.ek.roadsai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import dk.ek.roadsai.config.WireFormatConfig;
+import dk.ek.roadsai.dto.ObservationsColumnar;
+import dk.ek.roadsai.dto.ObservationsResponse;
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.model.Station;
+import dk.ek.roadsai.model.StationObservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ObservationsColumnarTest {
+
+    private static ObservationsResponse response() {
+        List<Station> stations = List.of(
+                new Station("imo:1", "A", 64.1, -21.9, "weather"),
+                new Station("veg:2", "B", 65.0, -22.0, "road"));
+        List<StationObservation> obs = new ArrayList<>();
+        Instant t0 = Instant.parse("2026-01-10T12:00:00Z");
+        for (int i = 0; i < 60; i++) {
+            obs.add(new StationObservation(i % 2 == 0 ? "imo:1" : "veg:2", t0.plusSeconds(60L * i),
+                    -2.5, 12.0 + i % 7, i % 3 == 0 ? null : 18.0, null, "snow"));
+        }
+        List<ForecastPoint> forecasts = List.of(new ForecastPoint(t0.plusSeconds(3600), 64.1, -21.9, -1.0, 9.0, 0.4));
+        return new ObservationsResponse(obs, Map.of(), stations,
+                List.of(List.of(-21.9, 64.1), List.of(-22.0, 65.0)), List.of("A: ok", "B: ok"), forecasts, List.of(), List.of());
+    }
+
+    @Test
+    void columnsMatchRows() {
+        ObservationsResponse r = response();
+        ObservationsColumnar c = ObservationsColumnar.of(r);
+
+        assertEquals(60, c.observations().time().length);
+        assertEquals(1, c.observations().station()[1]); // veg:2
+        assertEquals(r.observations().get(5).timestamp().getEpochSecond(), c.observations().time()[5]);
+        assertNull(c.observations().gustMs()[0]);
+        assertEquals(18.0, c.observations().gustMs()[1]);
+        assertArrayEquals(new double[]{64.1, 65.0}, c.routeLat());
+        assertEquals(-1.0, c.forecasts().tempC()[0]);
+    }
+
+    @Test
+    void columnarCborIsMuchSmallerThanJsonRows() throws Exception {
+        ObjectMapper json = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        CBORMapper cbor = CBORMapper.builder().addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+        ObservationsResponse r = response();
+
+        int jsonRows = json.writeValueAsBytes(r).length;
+        int cborColumnar = cbor.writeValueAsBytes(ObservationsColumnar.of(r)).length;
+        assertTrue(cborColumnar * 2 < jsonRows, "cbor columnar " + cborColumnar + " vs json " + jsonRows);
+
+        // CBOR decodes to the same document as JSON
+        assertEquals(json.readTree(json.writeValueAsBytes(r)), cbor.readTree(cbor.writeValueAsBytes(r)));
+    }
+
+    @Test
+    void rowCborWritesInstantsAsEpochMillis() throws Exception {
+        // Boot's builder writes ISO dates (JSON keeps them)
+        Jackson2ObjectMapperBuilder boot = new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper json = boot.build();
+        ObjectMapper cbor = new WireFormatConfig().cborHttpMessageConverter(boot).getObjectMapper();
+        ObservationsResponse r = response();
+
+        JsonNode time = cbor.readTree(cbor.writeValueAsBytes(r)).get("observations").get(0).get("timestamp");
+        assertTrue(time.isIntegralNumber(), "CBOR timestamp " + time);
+        assertEquals(r.observations().getFirst().timestamp().toEpochMilli(), time.longValue());
+        assertTrue(json.valueToTree(r).get("observations").get(0).get("timestamp").isTextual());
+    }
+}
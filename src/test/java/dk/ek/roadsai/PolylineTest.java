@@ -0,0 +1,93 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.dto.RouteGeometry;
+import dk.ek.roadsai.service.RouteService;
+import dk.ek.roadsai.service.geo.Polyline;
+import dk.ek.roadsai.service.geo.RouteGeometryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PolylineTest {
+
+    @Test
+    void encodesLikeTheReferenceImplementation() {
+        // example from the encoded polyline algorithm documentation
+        Polyline line = Polyline.of(new double[]{38.5, 40.7, 43.252}, new double[]{-120.2, -120.95, -126.453});
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", line.encode());
+
+        Polyline decoded = Polyline.decode(line.encode());
+        assertEquals(3, decoded.size());
+        assertEquals(43.252, decoded.lat(2), 1e-9);
+        assertEquals(-126.453, decoded.lon(2), 1e-9);
+    }
+
+    @Test
+    void simplifyDropsNearlyCollinearPointsAndKeepsCorners() {
+        // straight 1° northbound line with 1 m wiggles, then a 90° corner
+        int n = 101;
+        double[] lat = new double[n + 1];
+        double[] lon = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 64.0 + i * 0.01;
+            lon[i] = -21.0 + (i % 2 == 0 ? 0 : 0.00002);
+        }
+        lat[n] = 65.0;
+        lon[n] = -20.0;
+        Polyline line = Polyline.of(lat, lon);
+
+        Polyline simplified = line.simplify(10);
+        assertEquals(3, simplified.size());
+        assertEquals(65.0, simplified.lat(1), 1e-9); // corner kept
+        assertEquals(line.size(), line.simplify(0.1).size());
+        assertEquals(111.2, line.distanceAlongKm(n - 1), 0.5);
+        assertEquals(line.lengthKm(), line.reversed().lengthKm(), 1e-9);
+    }
+
+    @Test
+    void geojsonIsLoadedOrientedAndSimplifiedPerZoom(@TempDir Path dir) throws Exception {
+        // IFJ -> RVK order in the file, two parts sharing a vertex
+        Path file = dir.resolve("road.geojson");
+        Files.writeString(file, """
+                {"type":"FeatureCollection","features":[
+                 {"type":"Feature","geometry":{"type":"LineString","coordinates":[[-23.12,66.07],[-23.0,66.0],[-22.5,65.9]]}},
+                 {"type":"Feature","geometry":{"type":"MultiLineString","coordinates":[[[-22.5,65.9],[-22.0,65.5],[-21.8,64.12]]]}}
+                ]}""");
+        RouteGeometryService service = new RouteGeometryService(new RouteService());
+        ReflectionTestUtils.setField(service, "path", file.toString());
+        service.init();
+
+        assertEquals("geojson", service.source());
+        Polyline north = service.polyline("RVK", "IFJ");
+        assertEquals(5, north.size());
+        assertEquals(64.12, north.lat(0), 1e-9);
+        assertEquals(66.07, service.polyline("IFJ", "RVK").lat(0), 1e-9);
+
+        RouteGeometry coarse = service.geometry("RVK", "IFJ", 1); // clamped to min zoom
+        RouteGeometry fine = service.geometry("RVK", "IFJ", 14);
+        assertEquals(5, coarse.zoom());
+        assertTrue(coarse.points() <= fine.points());
+        assertEquals(5, fine.points());
+        assertEquals(Polyline.decode(fine.polyline()).lat(4), 66.07, 1e-5);
+    }
+
+    @Test
+    void bundledResourceIsUsedWhenNoFileOnDisk(@TempDir Path dir) {
+        RouteGeometryService service = new RouteGeometryService(new RouteService());
+        ReflectionTestUtils.setField(service, "path", dir.resolve("missing.geojson").toString());
+        ReflectionTestUtils.setField(service, "resource", "roads/test-road.geojson");
+        service.init();
+
+        assertEquals("geojson", service.source());
+        assertEquals(3, service.polyline("RVK", "IFJ").size());
+
+        ReflectionTestUtils.setField(service, "resource", "roads/missing.geojson");
+        service.init();
+        assertEquals("waypoints", service.source());
+    }
+}
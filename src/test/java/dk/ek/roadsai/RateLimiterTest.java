@@ -0,0 +1,61 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.service.ratelimit.RateLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterTest {
+
+    private RateLimiter limiter() {
+        RateLimiter limiter = new RateLimiter();
+        ReflectionTestUtils.setField(limiter, "tiersConfig", "anonymous:60:5,partner:600:50");
+        ReflectionTestUtils.setField(limiter, "apiKeysConfig", "secret=partner");
+        limiter.init();
+        return limiter;
+    }
+
+    @Test
+    void burstThenRejectWithRetryAfter() {
+        RateLimiter limiter = limiter();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.acquire(null, "10.0.0.1", 1), "within burst");
+        }
+        long wait = limiter.acquire(null, "10.0.0.1", 1);
+        assertTrue(wait > 0, "over burst");
+        assertEquals(1, RateLimiter.retryAfterSeconds(wait), "one token per second at 60/min");
+
+        // other clients and known API keys have their own buckets
+        assertEquals(0, limiter.acquire(null, "10.0.0.2", 1));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(0, limiter.acquire("secret", "10.0.0.1", 1));
+        }
+        // unknown key is limited by IP (already empty)
+        assertTrue(limiter.acquire("guess", "10.0.0.1", 1) > 0);
+
+        Map<String, Long> stats = limiter.stats();
+        assertEquals(2, stats.get("anonymous.rejected"));
+        assertEquals(50, stats.get("partner.allowed"));
+    }
+
+    @Test
+    void idleBucketsAreEvicted() throws InterruptedException {
+        RateLimiter limiter = limiter();
+        limiter.acquire(null, "10.0.0.3", 1);
+        assertEquals(1, limiter.stats().get("clients"));
+        limiter.evictIdle(); // not refilled yet
+        assertEquals(1, limiter.stats().get("clients"));
+
+        RateLimiter fast = new RateLimiter();
+        ReflectionTestUtils.setField(fast, "tiersConfig", "anonymous:6000000:1"); // refills in 10 µs
+        fast.init();
+        fast.acquire(null, "10.0.0.4", 1);
+        Thread.sleep(5);
+        fast.evictIdle();
+        assertEquals(0, fast.stats().get("clients"));
+        assertEquals(1, fast.stats().get("evicted"));
+    }
+}
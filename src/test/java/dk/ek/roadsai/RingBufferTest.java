@@ -0,0 +1,137 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.service.events.RingBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferTest {
+
+    // slot type for the tests, overwritten in place like IngestEvent
+    static class Slot {
+        int producer;
+        int value;
+    }
+
+    @Test
+    void everyConsumerSeesEveryEventInOrder() throws Exception {
+        RingBuffer<Slot> ring = new RingBuffer<>(64, Slot::new);
+        List<int[]> a = Collections.synchronizedList(new ArrayList<>());
+        List<int[]> b = Collections.synchronizedList(new ArrayList<>());
+        ring.subscribe("a", 16, 100_000, (e, seq, end) -> a.add(new int[]{e.producer, e.value}));
+        ring.subscribe("b", 16, 100_000, (e, seq, end) -> b.add(new int[]{e.producer, e.value}));
+
+        int producers = 4, perProducer = 2000;
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            pool.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    int value = i;
+                    assertTrue(ring.publish(e -> {
+                        e.producer = producer;
+                        e.value = value;
+                    }, TimeUnit.SECONDS.toNanos(5)));
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        ring.close();
+
+        for (List<int[]> seen : List.of(a, b)) {
+            assertEquals(producers * perProducer, seen.size());
+            // per producer, values arrive in publish order
+            int[] next = new int[producers];
+            for (int[] event : seen) {
+                assertEquals(next[event[0]]++, event[1]);
+            }
+        }
+        assertEquals(producers * perProducer, ring.published());
+        assertEquals(0, ring.dropped());
+    }
+
+    @Test
+    void batchesEndWithEndOfBatch() throws Exception {
+        RingBuffer<Slot> ring = new RingBuffer<>(64, Slot::new);
+        CountDownLatch hold = new CountDownLatch(1);
+        List<Boolean> ends = Collections.synchronizedList(new ArrayList<>());
+        ring.subscribe("batch", 4, 100_000, (e, seq, end) -> {
+            hold.await(); // let the first batch pile up behind the first event
+            ends.add(end);
+        });
+        for (int i = 0; i < 10; i++) {
+            ring.publish(e -> e.value = 1, 0);
+        }
+        hold.countDown();
+        ring.close();
+
+        assertEquals(10, ends.size());
+        assertTrue(ends.getLast());
+        RingBuffer<Slot>.Subscription s = ring.subscriptions().getFirst();
+        assertEquals(10, s.processed());
+        assertTrue(s.batches() < 10, "events should be handed over in batches");
+        assertEquals(s.batches(), ends.stream().filter(end -> end).count());
+    }
+
+    @Test
+    void fullRingWaitsThenDrops() throws Exception {
+        RingBuffer<Slot> ring = new RingBuffer<>(4, Slot::new);
+        CountDownLatch blocked = new CountDownLatch(1);
+        ring.subscribe("slow", 1, 100_000, (e, seq, end) -> blocked.await());
+
+        for (int i = 0; i < ring.capacity(); i++) {
+            assertTrue(ring.publish(e -> e.value = 1, 0));
+        }
+        long start = System.nanoTime();
+        assertFalse(ring.publish(e -> e.value = 2, TimeUnit.MILLISECONDS.toNanos(20)));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20), "producer waits before dropping");
+        assertEquals(1, ring.dropped());
+        assertEquals(1, ring.waited());
+
+        blocked.countDown();
+        ring.close();
+        assertTrue(ring.publish(e -> e.value = 3, 0), "slots are released once the consumer caught up");
+    }
+
+    @Test
+    void failingHandlerDoesNotStallTheRing() throws Exception {
+        RingBuffer<Slot> ring = new RingBuffer<>(8, Slot::new);
+        AtomicInteger ok = new AtomicInteger();
+        ring.subscribe("flaky", 4, 100_000, (e, seq, end) -> {
+            if (e.value % 2 == 0) {
+                throw new IllegalStateException("boom");
+            }
+            ok.incrementAndGet();
+        });
+        for (int i = 0; i < 100; i++) {
+            int value = i;
+            assertTrue(ring.publish(e -> e.value = value, TimeUnit.SECONDS.toNanos(5)));
+        }
+        ring.close();
+
+        RingBuffer<Slot>.Subscription s = ring.subscriptions().getFirst();
+        assertEquals(50, ok.get());
+        assertEquals(50, s.failed());
+        assertEquals(100, s.processed());
+        assertEquals(0, s.lag());
+    }
+
+    @Test
+    void noConsumersNeverBlocks() {
+        RingBuffer<Slot> ring = new RingBuffer<>(4, Slot::new);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(ring.publish(e -> e.value = 1, 0));
+        }
+        assertEquals(0, ring.dropped());
+    }
+}
@@ -3,7 +3,8 @@ package dk.ek.roadsai;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// no warm-start snapshot files in the working tree
+@SpringBootTest(properties = "snapshot.enabled=false")
 class RoadsAiApplicationTests {
 
     @Test
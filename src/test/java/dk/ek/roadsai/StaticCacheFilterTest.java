@@ -0,0 +1,38 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.config.StaticCacheFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StaticCacheFilterTest {
+
+    private final StaticCacheFilter filter = new StaticCacheFilter();
+
+    private String cacheControl(String uri) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", uri), response, new MockFilterChain());
+        return response.getHeader("Cache-Control");
+    }
+
+    @Test
+    void fingerprintedAssetsAreImmutable() throws Exception {
+        assertEquals("public, max-age=31536000, immutable", cacheControl("/app-7a5d51cac817ce23cb59a5d0635a53a1.js"));
+    }
+
+    @Test
+    void pagesAreRevalidated() throws Exception {
+        assertEquals("no-cache", cacheControl("/"));
+        assertEquals("no-cache", cacheControl("/index.html"));
+    }
+
+    @Test
+    void apiAndActuatorAreLeftAlone() throws Exception {
+        assertNull(cacheControl("/api/heatmap/6/30/17.png"));
+        assertNull(cacheControl("/actuator/health"));
+        assertNull(cacheControl("/error"));
+    }
+}
@@ -0,0 +1,56 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.model.HealthStatus;
+import dk.ek.roadsai.model.StationHealth;
+import dk.ek.roadsai.service.health.StationHealthRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StationHealthRegistryTest {
+
+    @Test
+    void failuresBackOffExponentiallyAndSuccessResets() {
+        StationHealthRegistry registry = new StationHealthRegistry();
+        assertEquals(HealthStatus.UNKNOWN, registry.health("imo:1").status());
+        assertFalse(registry.inBackoff("imo:1"));
+
+        registry.failure("imo:1");
+        StationHealth first = registry.health("imo:1");
+        assertEquals(HealthStatus.FAILING, first.status());
+        assertTrue(registry.inBackoff("imo:1"));
+        long firstBackoff = Duration.between(Instant.now(), first.retryAt()).toSeconds();
+        assertTrue(firstBackoff > 25 && firstBackoff <= 30, "base backoff 30s");
+
+        registry.failure("imo:1");
+        long secondBackoff = Duration.between(Instant.now(), registry.health("imo:1").retryAt()).toSeconds();
+        assertTrue(secondBackoff > 55 && secondBackoff <= 60, "doubled backoff");
+        assertEquals(1, registry.skipped());
+
+        for (int i = 0; i < 10; i++) registry.failure("imo:1");
+        long capped = Duration.between(Instant.now(), registry.health("imo:1").retryAt()).toSeconds();
+        assertTrue(capped <= 900, "capped at max");
+
+        registry.observed("imo:1", Instant.now());
+        StationHealth ok = registry.health("imo:1");
+        assertEquals(HealthStatus.OK, ok.status());
+        assertEquals(0, ok.consecutiveFailures());
+        assertFalse(registry.inBackoff("imo:1"));
+    }
+
+    @Test
+    void silentOrOldObservationStationIsStale() {
+        StationHealthRegistry registry = new StationHealthRegistry();
+        registry.observed("veg:1", Instant.now().minus(Duration.ofHours(2)));
+        registry.observed("veg:2", null);
+        registry.success("yr:64.1,-21.9"); // forecast source, no observations expected
+
+        assertEquals(HealthStatus.STALE, registry.health("veg:1").status());
+        assertEquals(HealthStatus.STALE, registry.health("veg:2").status());
+        assertEquals(HealthStatus.OK, registry.health("yr:64.1,-21.9").status());
+        assertEquals(3, registry.all().size());
+    }
+}
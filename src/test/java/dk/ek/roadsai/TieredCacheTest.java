@@ -0,0 +1,143 @@
+package dk.ek.roadsai;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import dk.ek.roadsai.config.SharedCacheConfig;
+import dk.ek.roadsai.model.ForecastPoint;
+import dk.ek.roadsai.service.cache.InMemorySharedCache;
+import dk.ek.roadsai.service.cache.RedisSharedCache;
+import dk.ek.roadsai.service.cache.TieredCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredCacheTest {
+
+    private static final TypeReference<List<ForecastPoint>> TYPE = new TypeReference<>() {
+    };
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private final ObjectMapper json = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void secondReplicaReadsFromSharedCache() {
+        InMemorySharedCache shared = new InMemorySharedCache();
+        TieredCache nodeA = new TieredCache(shared, json);
+        TieredCache nodeB = new TieredCache(shared, json);
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        List<ForecastPoint> series = List.of(new ForecastPoint(Instant.parse("2025-11-05T12:00:00Z"), 64.1, -21.9, -1.0, 12.0, 0.3));
+
+        var a = nodeA.load("yr-no", "64.1000,-21.9000", TTL, TYPE, () -> {
+            upstreamCalls.incrementAndGet();
+            return series;
+        });
+        var b = nodeB.load("yr-no", "64.1000,-21.9000", TTL, TYPE, () -> {
+            upstreamCalls.incrementAndGet();
+            return series;
+        });
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(series, b.value());
+        assertEquals(a.fetchedAt().toEpochMilli(), b.fetchedAt().toEpochMilli()); // original fetch time kept
+    }
+
+    @Test
+    void leaseLetsOnlyOneReplicaLoad() throws Exception {
+        InMemorySharedCache shared = new InMemorySharedCache();
+        List<TieredCache> nodes = List.of(new TieredCache(shared, json), new TieredCache(shared, json), new TieredCache(shared, json));
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(9);
+        List<Future<TieredCache.Loaded<List<String>>>> results = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            TieredCache node = nodes.get(i % nodes.size());
+            results.add(pool.submit(() -> {
+                start.await();
+                return node.load("ai-advice", "k", TTL, new TypeReference<List<String>>() {
+                }, () -> {
+                    upstreamCalls.incrementAndGet();
+                    sleep(300);
+                    return List.of("Hólmavík: drive carefully");
+                });
+            }));
+        }
+        start.countDown();
+        for (var r : results) {
+            assertEquals(List.of("Hólmavík: drive carefully"), r.get().value());
+        }
+        pool.shutdown();
+
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void storeInvalidatesOtherReplicas() {
+        InMemorySharedCache shared = new InMemorySharedCache();
+        TieredCache nodeA = new TieredCache(shared, json);
+        TieredCache nodeB = new TieredCache(shared, json);
+        List<String> evictedOnA = new ArrayList<>();
+        List<String> evictedOnB = new ArrayList<>();
+        nodeA.onInvalidate("vedur-cap", evictedOnA::add);
+        nodeB.onInvalidate("vedur-cap", evictedOnB::add);
+
+        nodeA.load("vedur-cap", "64.1,-21.9", TTL, new TypeReference<List<String>>() {
+        }, () -> List.of("alert"));
+
+        assertEquals(List.of("64.1,-21.9"), evictedOnB);
+        assertTrue(evictedOnA.isEmpty()); // own writes are not echoed
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        InMemorySharedCache shared = new InMemorySharedCache();
+        TieredCache node = new TieredCache(shared, json);
+        AtomicInteger upstreamCalls = new AtomicInteger();
+
+        assertNull(node.load("vedur-aws", "1475", TTL, TYPE, () -> {
+            upstreamCalls.incrementAndGet();
+            return null;
+        }));
+        node.load("vedur-aws", "1475", TTL, TYPE, () -> {
+            upstreamCalls.incrementAndGet();
+            return List.of();
+        });
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void backendIsChosenAtRuntime() throws Exception {
+        SharedCacheConfig config = new SharedCacheConfig();
+        assertInstanceOf(InMemorySharedCache.class, config.sharedCache());
+
+        // Redis client connects lazily, no server needed to build the backend
+        ReflectionTestUtils.setField(config, "type", "Redis");
+        try (var redis = config.sharedCache()) {
+            assertInstanceOf(RedisSharedCache.class, redis);
+        }
+
+        ReflectionTestUtils.setField(config, "type", "memcached");
+        assertThrows(IllegalStateException.class, config::sharedCache);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package dk.ek.roadsai;
+
+import dk.ek.roadsai.service.replay.UpstreamTape;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpstreamTapeTest {
+
+    private UpstreamTape tape(UpstreamTape.Mode mode, Path file) throws Exception {
+        UpstreamTape tape = new UpstreamTape();
+        ReflectionTestUtils.setField(tape, "mode", mode);
+        ReflectionTestUtils.setField(tape, "path", file.toString());
+        ReflectionTestUtils.setField(tape, "latencyScale", 0.0);
+        tape.init();
+        return tape;
+    }
+
+    @Test
+    void recordedResponsesAreReplayedInOrderWithoutUpstream(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("tape.bin.gz");
+        AtomicInteger upstreamCalls = new AtomicInteger();
+
+        UpstreamTape recorder = tape(UpstreamTape.Mode.RECORD, file);
+        WebClient live = WebClient.builder()
+                .baseUrl("http://upstream.invalid")
+                .exchangeFunction(req -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header("Content-Type", "application/json")
+                        .body("[" + upstreamCalls.incrementAndGet() + "]")
+                        .build()))
+                .filter(recorder.filter("vegagerdin"))
+                .build();
+        assertEquals("[1]", live.get().uri("/api/vedur2014_1").retrieve().bodyToMono(String.class).block());
+        assertEquals("[2]", live.get().uri("/api/vedur2014_1").retrieve().bodyToMono(String.class).block());
+        recorder.close();
+
+        List<UpstreamTape.Exchange> archived = UpstreamTape.read(file);
+        assertEquals(2, archived.size());
+        assertEquals("/api/vedur2014_1", archived.getFirst().uri());
+        assertEquals(List.of("application/json"), archived.getFirst().headers().get("Content-Type"));
+
+        // replay against another base URL, upstream never called, last response repeats
+        UpstreamTape player = tape(UpstreamTape.Mode.REPLAY, file);
+        WebClient replayed = WebClient.builder()
+                .baseUrl("http://127.0.0.1:1")
+                .exchangeFunction(req -> Mono.error(new AssertionError("upstream called in replay")))
+                .filter(player.filter("vegagerdin"))
+                .build();
+        for (String expected : List.of("[1]", "[2]", "[2]")) {
+            assertEquals(expected, replayed.get().uri("/api/vedur2014_1").retrieve().bodyToMono(String.class).block());
+        }
+        assertEquals(2, upstreamCalls.get());
+        assertEquals(3, player.stats().get("replayed"));
+    }
+
+    @Test
+    void postsAreReplayedByBodyKeyNotCallOrder(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("tape.bin.gz");
+        AtomicInteger upstreamCalls = new AtomicInteger();
+
+        UpstreamTape recorder = tape(UpstreamTape.Mode.RECORD, file);
+        WebClient live = WebClient.builder()
+                .baseUrl("http://upstream.invalid")
+                .exchangeFunction(req -> {
+                    // body key never leaves the process
+                    assertNull(req.headers().getFirst(UpstreamTape.BODY_KEY_HEADER));
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .body("completion " + upstreamCalls.incrementAndGet())
+                            .build());
+                })
+                .filter(recorder.filter("openai"))
+                .build();
+        String rvk = UpstreamTape.bodyKey("system", "RVK->IFJ");
+        String ifj = UpstreamTape.bodyKey("system", "IFJ->RVK");
+        assertNotEquals(rvk, ifj);
+        assertEquals("completion 1", post(live, rvk));
+        assertEquals("completion 2", post(live, ifj));
+        recorder.close();
+
+        // replayed in the opposite order, each prompt still gets its own completion
+        UpstreamTape player = tape(UpstreamTape.Mode.REPLAY, file);
+        WebClient replayed = WebClient.builder()
+                .baseUrl("http://127.0.0.1:1")
+                .exchangeFunction(req -> Mono.error(new AssertionError("upstream called in replay")))
+                .filter(player.filter("openai"))
+                .build();
+        assertEquals("completion 2", post(replayed, ifj));
+        assertEquals("completion 1", post(replayed, rvk));
+
+        // a prompt that was never recorded is a miss, not somebody else's advice
+        String other = UpstreamTape.bodyKey("system", "RVK->IFJ at 06:00");
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, replayed.post().uri("/chat/completions")
+                .header(UpstreamTape.BODY_KEY_HEADER, other)
+                .exchangeToMono(r -> Mono.just(r.statusCode())).block());
+        assertEquals(1, player.stats().get("misses"));
+    }
+
+    private static String post(WebClient client, String bodyKey) {
+        return client.post().uri("/chat/completions")
+                .header(UpstreamTape.BODY_KEY_HEADER, bodyKey)
+                .retrieve().bodyToMono(String.class).block();
+    }
+}
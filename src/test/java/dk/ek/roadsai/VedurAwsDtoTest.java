@@ -3,7 +3,7 @@ package dk.ek.roadsai;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dk.ek.roadsai.dto.vedur.is.VedurAwsDto.Aws10minBasic;
-import dk.ek.roadsai.dto.vedur.is.VedurAwsDto;
+import dk.ek.roadsai.service.ingest.ObservationIngest;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
@@ -29,7 +29,7 @@ public class VedurAwsDtoTest {
 
         ObjectMapper om = new ObjectMapper().findAndRegisterModules();
         List<Aws10minBasic> list = om.readValue(sample, new TypeReference<>() {});
-        var obs = VedurAwsDto.map("imo:1475", list);
+        var obs = ObservationIngest.imo("imo:1475", list);
 
         assertEquals(1, obs.size());
         assertEquals(3.2, obs.getFirst().tempC());